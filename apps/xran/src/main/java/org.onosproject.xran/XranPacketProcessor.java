@@ -34,4 +34,13 @@ public interface XranPacketProcessor {
      * @throws InterruptedException interrupted exception
      */
     void handlePacket(XrancPdu pdu, ChannelHandlerContext ctx) throws IOException, InterruptedException;
+
+    /**
+     * Check whether packets with the given API ID are handled.
+     * Packets that are not handled are dropped before their body is decoded.
+     *
+     * @param apiId API ID in the header of the incoming packet
+     * @return true if the packet should be passed to handlePacket
+     */
+    boolean isHandled(int apiId);
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.onosproject.xran.asn1lib.pdu.XrancPdu;
+
+import java.io.IOException;
+
+/**
+ * Handler for received PDUs of one type.
+ */
+@FunctionalInterface
+public interface XranPduHandler {
+
+    /**
+     * Handle a received PDU.
+     *
+     * @param pdu received PDU
+     * @param ctx channel the PDU was received on
+     * @throws IOException          io exception
+     * @throws InterruptedException interrupted exception
+     */
+    void handle(XrancPdu pdu, ChannelHandlerContext ctx) throws IOException, InterruptedException;
+}
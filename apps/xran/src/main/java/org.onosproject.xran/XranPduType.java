@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran;
+
+import java.util.Optional;
+
+/**
+ * Types of xRAN PDUs, keyed by the API ID carried in the PDU header.
+ */
+public enum XranPduType {
+    CELL_CONFIG_REQUEST(0, "CellConfigRequest"),
+    CELL_CONFIG_REPORT(1, "CellConfigReport"),
+    UE_ADMISSION_REQUEST(2, "UEAdmissionRequest"),
+    UE_ADMISSION_RESPONSE(3, "UEAdmissionResponse"),
+    UE_ADMISSION_STATUS(4, "UEAdmissionStatus"),
+    UE_CONTEXT_UPDATE(5, "UEContextUpdate"),
+    UE_RECONFIG_IND(6, "UEReconfigInd"),
+    UE_RELEASE_IND(7, "UEReleaseInd"),
+    BEARER_ADMISSION_REQUEST(8, "BearerAdmissionRequest"),
+    BEARER_ADMISSION_RESPONSE(9, "BearerAdmissionResponse"),
+    BEARER_ADMISSION_STATUS(10, "BearerAdmissionStatus"),
+    BEARER_RELEASE_IND(11, "BearerReleaseInd"),
+    HO_REQUEST(12, "HORequest"),
+    HO_FAILURE(13, "HOFailure"),
+    HO_COMPLETE(14, "HOComplete"),
+    RX_SIG_MEAS_REPORT(15, "RXSigMeasReport"),
+    L2_MEAS_CONFIG(16, "L2MeasConfig"),
+    RADIO_MEAS_REPORT_PER_UE(17, "RadioMeasReportPerUE"),
+    RADIO_MEAS_REPORT_PER_CELL(18, "RadioMeasReportPerCell"),
+    SCHED_MEAS_REPORT_PER_UE(19, "SchedMeasReportPerUE"),
+    SCHED_MEAS_REPORT_PER_CELL(20, "SchedMeasReportPerCell"),
+    PDCP_MEAS_REPORT_PER_UE(21, "PDCPMeasReportPerUe"),
+    UE_CAPABILITY_ENQUIRY(22, "UECapabilityEnquiry"),
+    UE_CAPABILITY_INFO(23, "UECapabilityInfo"),
+    SCELL_ADD(24, "ScellAdd"),
+    SCELL_ADD_STATUS(25, "ScellAddStatus"),
+    SCELL_DELETE(26, "ScellDelete"),
+    RRM_CONFIG(27, "RRMConfig"),
+    RRM_CONFIG_STATUS(28, "RRMConfigStatus"),
+    SENB_ADD(29, "SeNBAdd"),
+    SENB_ADD_STATUS(30, "SeNBAddStatus"),
+    SENB_DELETE(31, "SeNBDelete"),
+    TRAFFIC_SPLIT_CONFIG(32, "TrafficSplitConfig"),
+    HO_CAUSE(33, "HOCause"),
+    RRC_MEAS_CONFIG(34, "RRCMeasConfig");
+
+    private static final XranPduType[] BY_API_ID = new XranPduType[values().length];
+
+    static {
+        for (XranPduType type : values()) {
+            BY_API_ID[type.apiId] = type;
+        }
+    }
+
+    private final int apiId;
+    private final String pduName;
+
+    XranPduType(int apiId, String pduName) {
+        this.apiId = apiId;
+        this.pduName = pduName;
+    }
+
+    /**
+     * Get the API ID of this PDU type.
+     *
+     * @return API ID as carried in the PDU header
+     */
+    public int apiId() {
+        return apiId;
+    }
+
+    /**
+     * Get the name of the PDU as defined in the ASN.1 specification.
+     *
+     * @return PDU name
+     */
+    public String pduName() {
+        return pduName;
+    }
+
+    /**
+     * Get the PDU type of the given API ID.
+     *
+     * @param apiId API ID
+     * @return PDU type if the API ID is known
+     */
+    public static Optional<XranPduType> fromApiId(int apiId) {
+        if (apiId < 0 || apiId >= BY_API_ID.length) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(BY_API_ID[apiId]);
+    }
+
+    /**
+     * Get the PDU type of the given PDU name.
+     *
+     * @param pduName PDU name as defined in the ASN.1 specification
+     * @return PDU type if the name is known
+     */
+    public static Optional<XranPduType> fromPduName(String pduName) {
+        for (XranPduType type : values()) {
+            if (type.pduName.equals(pduName)) {
+                return Optional.of(type);
+            }
+        }
+        return Optional.empty();
+    }
+}
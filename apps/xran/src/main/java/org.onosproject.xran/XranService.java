@@ -16,6 +16,8 @@
 
 package org.onosproject.xran;
 
+import org.onosproject.cluster.NodeId;
+import org.onosproject.xran.asn1lib.api.ECGI;
 import org.onosproject.xran.asn1lib.pdu.RRMConfig;
 import org.onosproject.xran.impl.entities.RnibLink;
 
@@ -51,6 +53,13 @@ public interface XranService {
      */
     void addListener(XranHostListener listener);
 
+    /**
+     * Add a listener of R-NIB changes, delivered in batches.
+     *
+     * @param listener listener
+     */
+    void addListener(XranStoreListener listener);
+
     /**
      * Remove a CELL device listener.
      *
@@ -65,6 +74,13 @@ public interface XranService {
      */
     void removeListener(XranHostListener listener);
 
+    /**
+     * Remove a listener of R-NIB changes.
+     *
+     * @param listener listener
+     */
+    void removeListener(XranStoreListener listener);
+
     /**
      * Send modified RRM configuration.
      *
@@ -89,6 +105,72 @@ public interface XranService {
      */
     boolean sendScellDelete(RnibLink link);
 
+    /**
+     * Add a handler for received PDUs of the given type.
+     * Handlers run on the worker of the CELL the PDU was received from.
+     *
+     * @param type    PDU type
+     * @param handler handler
+     */
+    void addPduHandler(XranPduType type, XranPduHandler handler);
+
+    /**
+     * Remove a handler of received PDUs.
+     *
+     * @param type    PDU type
+     * @param handler handler
+     */
+    void removePduHandler(XranPduType type, XranPduHandler handler);
+
+    /**
+     * Get number of received PDUs that were dropped because no handler was registered for them.
+     *
+     * @return number of unhandled PDUs
+     */
+    long getUnhandledPdus();
+
+    /**
+     * Get number of times handlers of received PDUs of the given type were run.
+     *
+     * @param type PDU type
+     * @return number of handler invocations
+     */
+    long getPduInvocations(XranPduType type);
+
+    /**
+     * Get time spent in handlers of received PDUs of the given type.
+     *
+     * @param type PDU type
+     * @return time in nanoseconds
+     */
+    long getPduHandlingNanos(XranPduType type);
+
+    /**
+     * Get number of handler invocations for received PDUs of the given type that threw an exception.
+     *
+     * @param type PDU type
+     * @return number of failures
+     */
+    long getPduFailures(XranPduType type);
+
+    /**
+     * Hand the association of a CELL with this controller instance over to its new master.
+     * The association is only closed if the CELL is balanced to the new master, which accepts it once it
+     * reconnects; otherwise this instance keeps terminating it.
+     *
+     * @param ecgi   CELL ECGI
+     * @param master new master of the CELL
+     * @return true if the association was closed
+     */
+    boolean relinquishCell(ECGI ecgi, NodeId master);
+
+    /**
+     * Get number of CELL and UE requests that are still waiting for a reply and being retried.
+     *
+     * @return reconciliation queue depth
+     */
+    int getReconciliationQueueDepth();
+
     /**
      * Get northbound timeout.
      *
@@ -18,26 +18,30 @@ package org.onosproject.xran;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.collect.BiMap;
 import io.netty.channel.ChannelHandlerContext;
+import org.onosproject.cluster.NodeId;
 import org.onosproject.store.Store;
 import org.onosproject.xran.asn1lib.api.CRNTI;
 import org.onosproject.xran.asn1lib.api.ECGI;
 import org.onosproject.xran.asn1lib.api.PCIARFCN;
+import org.onosproject.xran.impl.entities.MeasurementTable;
 import org.onosproject.xran.impl.entities.RnibCell;
 import org.onosproject.xran.impl.entities.RnibLink;
 import org.onosproject.xran.impl.entities.RnibSlice;
+import org.onosproject.xran.impl.entities.RnibSnapshot;
 import org.onosproject.xran.impl.entities.RnibUe;
 import org.onosproject.xran.impl.identifiers.EcgiCrntiPair;
 import org.onosproject.xran.impl.identifiers.LinkId;
+import org.onosproject.xran.impl.util.ConcurrentBiIndex;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Created by dimitris on 7/22/17.
  */
-public interface XranStore extends Store {
+public interface XranStore extends Store<XranStoreEvent, XranStoreDelegate> {
 
     // LINKS STORE
 
@@ -112,6 +116,71 @@ public interface XranStore extends Store {
      */
     void modifyLinkRrmConf(RnibLink link, JsonNode rrmConf);
 
+    /**
+     * Modify specified link's measurements. Every report the update replaces is also recorded in the history of
+     * the link and in the measurement table.
+     *
+     * @param link   LINK entity
+     * @param update sets the new measurements
+     */
+    void modifyLinkMeasurements(RnibLink link, Consumer<RnibLink.Measurements> update);
+
+    /**
+     * Modify other properties of a link in place, e.g. its bearer parameters.
+     *
+     * @param link   LINK entity
+     * @param update changes the link
+     */
+    void modifyLink(RnibLink link, Consumer<RnibLink> update);
+
+    /**
+     * Get the table of the last metrics of every stored link, for aggregates and rollups across links.
+     *
+     * @return MeasurementTable
+     */
+    MeasurementTable getMeasurementTable();
+
+    /**
+     * Modify specified link's type. If it becomes the primary, the previous primary of its UE becomes non serving.
+     *
+     * @param link LINK entity
+     * @param type new link type
+     */
+    void modifyLinkType(RnibLink link, RnibLink.Type type);
+
+    /**
+     * Apply a batch of mutations atomically. Readers see the UEs and CELLs involved either before or after the
+     * whole batch, and the batch is not applied if any of them changed since the versions it expects were read.
+     *
+     * @param transaction batch of mutations
+     * @return true if applied, false if an expected version did not match
+     */
+    boolean transact(XranStoreTransaction transaction);
+
+    /**
+     * Get the version of a UE, which changes on every write to the UE or its links.
+     *
+     * @param ueId UE ID
+     * @return version, 0 if the UE was never written
+     */
+    long getUeVersion(long ueId);
+
+    /**
+     * Get the version of a CELL, which changes on every write to the CELL or its links.
+     *
+     * @param ecgi CELL ECGI
+     * @return version, 0 if the CELL was never written
+     */
+    long getCellVersion(ECGI ecgi);
+
+    /**
+     * Get a serialized view of all CELLs, UEs and links. Each entity is serialized while it is not being modified,
+     * and only again once it was modified. The view is shared by all callers until the R-NIB is changed again.
+     *
+     * @return snapshot of the R-NIB
+     */
+    RnibSnapshot getSnapshot();
+
     /**
      * Put new link to store.
      *
@@ -199,6 +268,22 @@ public interface XranStore extends Store {
      */
     void modifyCellRrmConf(RnibCell cell, JsonNode rrmConf) throws Exception;
 
+    /**
+     * Modify CELL's measurements.
+     *
+     * @param cell   CELL entity
+     * @param update sets the new measurements
+     */
+    void modifyCellMeasurements(RnibCell cell, Consumer<RnibCell.Measurements> update);
+
+    /**
+     * Modify other properties of a CELL in place, e.g. its configuration.
+     *
+     * @param cell   CELL entity
+     * @param update changes the CELL
+     */
+    void modifyCell(RnibCell cell, Consumer<RnibCell> update);
+
     /**
      * Put new CELL to the store.
      *
@@ -252,6 +337,40 @@ public interface XranStore extends Store {
      */
     boolean removeCell(long sliceId);
 
+    // CELL OWNERSHIP
+
+    /**
+     * Record this controller instance as the owner of a CELL, i.e. the instance terminating its association.
+     * A CELL owned by an instance that is no longer active is taken over.
+     *
+     * @param ecgi CELL ECGI
+     * @return true if this instance owns the CELL, false if another instance does
+     */
+    boolean claimCell(ECGI ecgi);
+
+    /**
+     * Stop owning a CELL, if this controller instance owns it.
+     *
+     * @param ecgi CELL ECGI
+     */
+    void releaseCell(ECGI ecgi);
+
+    /**
+     * Get the controller instance that owns a CELL.
+     *
+     * @param ecgi CELL ECGI
+     * @return node ID of the owner if the CELL is owned
+     */
+    Optional<NodeId> getCellOwner(ECGI ecgi);
+
+    // JOURNAL
+
+    /**
+     * Checkpoint the R-NIB and stop journaling its changes until the store is activated again.
+     * Called before the CELL associations are closed on shutdown, so that the R-NIB is restored as it was.
+     */
+    void closeJournal();
+
     // CONTROLLER
 
     /**
@@ -304,6 +423,14 @@ public interface XranStore extends Store {
      */
     void storeUe(RnibCell cell, RnibUe ue);
 
+    /**
+     * Modify a UE in place, e.g. its state.
+     *
+     * @param ue     UE entity
+     * @param update changes the UE
+     */
+    void modifyUe(RnibUe ue, Consumer<RnibUe> update);
+
     /**
      * Remove UE from store.
      *
@@ -338,11 +465,11 @@ public interface XranStore extends Store {
     Optional<ChannelHandlerContext> getCtx(ECGI ecgi);
 
     /**
-     * Get the ECGI, CRNTI to UE bimap.
+     * Get the ECGI, CRNTI to UE index.
      *
-     * @return BiMap of EcgiCrntiPair to Long
+     * @return index of EcgiCrntiPair to Long
      */
-    BiMap<EcgiCrntiPair, Long> getCrnti();
+    ConcurrentBiIndex<EcgiCrntiPair, Long> getCrnti();
 
     /**
      * Put new ECGI, CRNTI pair of primary link to UE and remove old one.
@@ -353,7 +480,18 @@ public interface XranStore extends Store {
     void storeCrnti(RnibCell cell, RnibUe ue);
 
     /**
-     * Put a new primary link between a CELL and a UE.
+     * Change the CRNTI of a UE at a CELL, if the UE still has the old CRNTI there.
+     *
+     * @param ue       UE
+     * @param ecgi     CELL ECGI
+     * @param oldCrnti CRNTI the UE is expected to have
+     * @param newCrnti new CRNTI
+     * @return true if the CRNTI was changed
+     */
+    boolean rebindCrnti(RnibUe ue, ECGI ecgi, CRNTI oldCrnti, CRNTI newCrnti);
+
+    /**
+     * Put a new primary link between a CELL and a UE and move the ECGI, CRNTI pair of the UE to it, atomically.
      *
      * @param cell CELL entity
      * @param ue   UE entity
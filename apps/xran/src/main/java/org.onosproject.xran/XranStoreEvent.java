@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran;
+
+import org.onosproject.event.AbstractEvent;
+import org.onosproject.xran.impl.entities.RnibCell;
+import org.onosproject.xran.impl.entities.RnibLink;
+import org.onosproject.xran.impl.entities.RnibUe;
+
+/**
+ * Change of a CELL, UE or link of the R-NIB.
+ * The subject is the RnibCell, RnibUe or RnibLink that changed.
+ */
+public class XranStoreEvent extends AbstractEvent<XranStoreEvent.Type, Object> {
+
+    /**
+     * Kind of change.
+     */
+    public enum Type {
+        CELL_ADDED,
+        CELL_REPLACED,
+        CELL_REMOVED,
+        CELL_MEASUREMENT_UPDATED,
+        UE_ADDED,
+        UE_REPLACED,
+        UE_REMOVED,
+        LINK_ADDED,
+        LINK_REPLACED,
+        LINK_REMOVED,
+        LINK_TYPE_CHANGED,
+        LINK_MEASUREMENT_UPDATED;
+
+        /**
+         * Check whether the change is the addition of an entity that was not in the R-NIB.
+         *
+         * @return true for added types
+         */
+        public boolean isAdded() {
+            return this == CELL_ADDED || this == UE_ADDED || this == LINK_ADDED;
+        }
+
+        /**
+         * Check whether the change replaced an entity with another one of the same identity, or stored it again.
+         *
+         * @return true for replaced types
+         */
+        public boolean isReplaced() {
+            return this == CELL_REPLACED || this == UE_REPLACED || this == LINK_REPLACED;
+        }
+
+        /**
+         * Check whether the change is the removal of an entity.
+         *
+         * @return true for removed types
+         */
+        public boolean isRemoved() {
+            return this == CELL_REMOVED || this == UE_REMOVED || this == LINK_REMOVED;
+        }
+
+        /**
+         * Check whether the change is an update of measurements.
+         *
+         * @return true for measurement types
+         */
+        public boolean isMeasurement() {
+            return this == CELL_MEASUREMENT_UPDATED || this == LINK_MEASUREMENT_UPDATED;
+        }
+    }
+
+    /**
+     * Create an event about a CELL.
+     *
+     * @param type event type
+     * @param cell CELL entity
+     */
+    public XranStoreEvent(Type type, RnibCell cell) {
+        super(type, cell);
+    }
+
+    /**
+     * Create an event about a UE.
+     *
+     * @param type event type
+     * @param ue   UE entity
+     */
+    public XranStoreEvent(Type type, RnibUe ue) {
+        super(type, ue);
+    }
+
+    /**
+     * Create an event about a link.
+     *
+     * @param type event type
+     * @param link LINK entity
+     */
+    public XranStoreEvent(Type type, RnibLink link) {
+        super(type, link);
+    }
+
+    /**
+     * Create an event of another type about the same entity.
+     *
+     * @param type event type
+     * @return event
+     */
+    public XranStoreEvent withType(Type type) {
+        if (subject() instanceof RnibCell) {
+            return new XranStoreEvent(type, (RnibCell) subject());
+        }
+        if (subject() instanceof RnibUe) {
+            return new XranStoreEvent(type, (RnibUe) subject());
+        }
+        return new XranStoreEvent(type, (RnibLink) subject());
+    }
+
+    /**
+     * Get the identity of the entity that changed, equal for every event about the same entity.
+     *
+     * @return ECGI of a CELL, ID of a UE or LinkId of a link
+     */
+    public Object entityKey() {
+        if (subject() instanceof RnibCell) {
+            return ((RnibCell) subject()).getEcgi();
+        }
+        if (subject() instanceof RnibUe) {
+            return ((RnibUe) subject()).getId();
+        }
+        return ((RnibLink) subject()).getLinkId();
+    }
+}
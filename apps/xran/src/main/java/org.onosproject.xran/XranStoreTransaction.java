@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.onosproject.xran.asn1lib.api.ECGI;
+import org.onosproject.xran.impl.entities.RnibCell;
+import org.onosproject.xran.impl.entities.RnibLink;
+import org.onosproject.xran.impl.entities.RnibUe;
+import org.onosproject.xran.impl.identifiers.LinkId;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Batch of store mutations applied together by {@link XranStore#transact(XranStoreTransaction)}.
+ * The transaction only applies if the UEs and CELLs it expects are still at the versions that were read.
+ */
+public final class XranStoreTransaction {
+
+    private final List<Operation> operations = Lists.newArrayList();
+    private final Map<Long, Long> ueVersions = Maps.newHashMap();
+    private final Map<ECGI, Long> cellVersions = Maps.newHashMap();
+
+    /**
+     * Put a new primary link between a CELL and a UE, demoting the previous primary, and move the ECGI, CRNTI pair
+     * of the UE to that CELL.
+     *
+     * @param cell CELL entity
+     * @param ue   UE entity
+     * @return this transaction
+     */
+    public XranStoreTransaction putPrimaryLink(RnibCell cell, RnibUe ue) {
+        operations.add(new Operation(Type.PUT_PRIMARY_LINK, checkNotNull(cell), checkNotNull(ue), null, null, null));
+        return this;
+    }
+
+    /**
+     * Put a link, demoting the previous primary if the link is the primary.
+     *
+     * @param link LINK entity
+     * @return this transaction
+     */
+    public XranStoreTransaction putLink(RnibLink link) {
+        checkNotNull(link.getLinkId(), "link must have an ID");
+        operations.add(new Operation(Type.PUT_LINK, link.getLinkId().getCell(), link.getLinkId().getUe(),
+                link, link.getLinkId(), null));
+        return this;
+    }
+
+    /**
+     * Remove a link.
+     *
+     * @param linkId link ID
+     * @return this transaction
+     */
+    public XranStoreTransaction removeLink(LinkId linkId) {
+        operations.add(new Operation(Type.REMOVE_LINK, linkId.getCell(), linkId.getUe(), null, linkId, null));
+        return this;
+    }
+
+    /**
+     * Change the type of a link, demoting the previous primary if it becomes the primary.
+     *
+     * @param link LINK entity
+     * @param type new link type
+     * @return this transaction
+     */
+    public XranStoreTransaction modifyLinkType(RnibLink link, RnibLink.Type type) {
+        checkNotNull(link.getLinkId(), "link must have an ID");
+        operations.add(new Operation(Type.MODIFY_LINK_TYPE, link.getLinkId().getCell(), link.getLinkId().getUe(),
+                link, link.getLinkId(), checkNotNull(type)));
+        return this;
+    }
+
+    /**
+     * Move the ECGI, CRNTI pair of a UE to a CELL.
+     *
+     * @param cell new primary CELL
+     * @param ue   UE
+     * @return this transaction
+     */
+    public XranStoreTransaction storeCrnti(RnibCell cell, RnibUe ue) {
+        operations.add(new Operation(Type.STORE_CRNTI, checkNotNull(cell), checkNotNull(ue), null, null, null));
+        return this;
+    }
+
+    /**
+     * Only apply the transaction if the UE is still at the given version.
+     *
+     * @param ueId    UE ID
+     * @param version version read with {@link XranStore#getUeVersion(long)}
+     * @return this transaction
+     */
+    public XranStoreTransaction expectUeVersion(long ueId, long version) {
+        ueVersions.put(ueId, version);
+        return this;
+    }
+
+    /**
+     * Only apply the transaction if the CELL is still at the given version.
+     *
+     * @param ecgi    CELL ECGI
+     * @param version version read with {@link XranStore#getCellVersion(ECGI)}
+     * @return this transaction
+     */
+    public XranStoreTransaction expectCellVersion(ECGI ecgi, long version) {
+        cellVersions.put(checkNotNull(ecgi), version);
+        return this;
+    }
+
+    /**
+     * Get the mutations in the order they are applied.
+     *
+     * @return list of operations
+     */
+    public List<Operation> getOperations() {
+        return ImmutableList.copyOf(operations);
+    }
+
+    /**
+     * Get the expected version of each UE.
+     *
+     * @return map of UE ID to version
+     */
+    public Map<Long, Long> getUeVersions() {
+        return ImmutableMap.copyOf(ueVersions);
+    }
+
+    /**
+     * Get the expected version of each CELL.
+     *
+     * @return map of ECGI to version
+     */
+    public Map<ECGI, Long> getCellVersions() {
+        return ImmutableMap.copyOf(cellVersions);
+    }
+
+    /**
+     * Kind of mutation.
+     */
+    public enum Type {
+        PUT_PRIMARY_LINK,
+        PUT_LINK,
+        REMOVE_LINK,
+        MODIFY_LINK_TYPE,
+        STORE_CRNTI
+    }
+
+    /**
+     * Single mutation of a transaction.
+     */
+    public static final class Operation {
+        private final Type type;
+        private final RnibCell cell;
+        private final RnibUe ue;
+        private final RnibLink link;
+        private final LinkId linkId;
+        private final RnibLink.Type linkType;
+
+        private Operation(Type type, RnibCell cell, RnibUe ue, RnibLink link, LinkId linkId, RnibLink.Type linkType) {
+            this.type = type;
+            this.cell = cell;
+            this.ue = ue;
+            this.link = link;
+            this.linkId = linkId;
+            this.linkType = linkType;
+        }
+
+        /**
+         * Get the kind of mutation.
+         *
+         * @return Type
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Get the CELL the mutation is about.
+         *
+         * @return RnibCell
+         */
+        public RnibCell getCell() {
+            return cell;
+        }
+
+        /**
+         * Get the UE the mutation is about.
+         *
+         * @return RnibUe
+         */
+        public RnibUe getUe() {
+            return ue;
+        }
+
+        /**
+         * Get the link to put or modify.
+         *
+         * @return RnibLink or null
+         */
+        public RnibLink getLink() {
+            return link;
+        }
+
+        /**
+         * Get the ID of the link to put, remove or modify.
+         *
+         * @return LinkId or null
+         */
+        public LinkId getLinkId() {
+            return linkId;
+        }
+
+        /**
+         * Get the new link type.
+         *
+         * @return link type or null
+         */
+        public RnibLink.Type getLinkType() {
+            return linkType;
+        }
+    }
+}
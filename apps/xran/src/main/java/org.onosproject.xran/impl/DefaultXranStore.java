@@ -17,42 +17,83 @@
 package org.onosproject.xran.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import io.netty.channel.ChannelHandlerContext;
+import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.NodeId;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
 import org.onosproject.core.IdGenerator;
+import org.onosproject.net.DeviceId;
 import org.onosproject.store.AbstractStore;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.StorageService;
+import org.onosproject.store.service.Versioned;
 import org.onosproject.xran.XranService;
 import org.onosproject.xran.XranStore;
+import org.onosproject.xran.XranStoreDelegate;
+import org.onosproject.xran.XranStoreEvent;
+import org.onosproject.xran.XranStoreTransaction;
 import org.onosproject.xran.asn1lib.api.CRNTI;
 import org.onosproject.xran.asn1lib.api.ECGI;
 import org.onosproject.xran.asn1lib.api.EUTRANCellIdentifier;
 import org.onosproject.xran.asn1lib.api.PCIARFCN;
+import org.onosproject.xran.impl.entities.LinkMetric;
+import org.onosproject.xran.impl.entities.MeasurementTable;
 import org.onosproject.xran.impl.entities.RnibCell;
 import org.onosproject.xran.impl.entities.RnibLink;
 import org.onosproject.xran.impl.entities.RnibSlice;
+import org.onosproject.xran.impl.entities.RnibSnapshot;
 import org.onosproject.xran.impl.entities.RnibUe;
 import org.onosproject.xran.impl.identifiers.EcgiCrntiPair;
 import org.onosproject.xran.impl.identifiers.LinkId;
+import org.onosproject.xran.impl.identifiers.PackedKeys;
+import org.onosproject.xran.impl.util.ConcurrentBiIndex;
+import org.onosproject.xran.impl.util.ConcurrentLongMap;
+import org.onosproject.xran.impl.util.Revision;
 import org.slf4j.Logger;
 
 import javax.xml.bind.DatatypeConverter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static org.onlab.util.Tools.groupedThreads;
+import static org.onosproject.net.DeviceId.deviceId;
+import static org.onosproject.xran.impl.entities.RnibCell.uri;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -60,28 +101,86 @@ import static org.slf4j.LoggerFactory.getLogger;
  */
 @Component(immediate = true)
 @Service
-public class DefaultXranStore extends AbstractStore implements XranStore {
+public class DefaultXranStore extends AbstractStore<XranStoreEvent, XranStoreDelegate> implements XranStore {
     private static final String XRAN_APP_ID = "org.onosproject.xran";
 
+    private static final int UE_LOCK_STRIPES = 256;
+
+    private static final int CELL_LOCK_STRIPES = 64;
+
+    // optimistic reads retried before a reader falls back to the lock.
+    private static final int OPTIMISTIC_READS = 8;
+
+    private static final String JOURNAL_FILE = "rnib.journal";
+
+    // entities also change in place, e.g. UE states, so the R-NIB is checkpointed at least this often.
+    private static final long CHECKPOINT_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final long CHECKPOINT_POLL_MS = 1000;
+
     private final Logger log = getLogger(getClass());
 
+    private final ObjectMapper mapper = new ObjectMapper();
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected CoreService coreService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected StorageService storageService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ClusterService clusterService;
+
     protected ConcurrentMap<LinkId, RnibLink> linkMap = new ConcurrentHashMap<>();
+    // writes lock the UEs they change and then the cells, so writes to different UEs run in parallel.
+    private final Striped<Lock> ueLocks = Striped.lock(UE_LOCK_STRIPES);
+    private final Striped<Lock> cellLocks = Striped.lock(CELL_LOCK_STRIPES);
+    // version of each UE and cell, odd while a write is in progress. Readers retry if it changed while they read.
+    private final ConcurrentMap<Long, AtomicLong> ueVersions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ECGI, AtomicLong> cellVersions = new ConcurrentHashMap<>();
+    // completed writes take their version from here, so versions are never reused, even by a re-added cell.
+    private final AtomicLong clock = new AtomicLong();
+    // changes of the R-NIB, in place changes of entities included; a snapshot is shared until the count changes.
+    private final AtomicLong changes = new AtomicLong();
+    // last snapshot with the serialized entities it was built from, which the next snapshot reuses if unchanged.
+    private final AtomicReference<SerializedRnib> snapshot = new AtomicReference<>();
+    // links of each cell and of each UE, kept in step with linkMap. Links are only removed through removeLink,
+    // removeCell and removeUe leave them to the caller, so these indexes follow linkMap alone.
+    private ConcurrentMap<ECGI, ConcurrentMap<Long, RnibLink>> cellLinkMap = new ConcurrentHashMap<>();
+    private ConcurrentMap<Long, ConcurrentMap<ECGI, RnibLink>> ueLinkMap = new ConcurrentHashMap<>();
+    // links keyed by the ECI of their cell packed with their UE ID, for lookups that allocate nothing.
+    private ConcurrentLongMap<RnibLink> packedLinkMap = new ConcurrentLongMap<>();
+    // last metrics of every link in columns, with running aggregates per cell, kept in step with linkMap.
+    private final MeasurementTable measurementTable = new MeasurementTable();
+    // last link stored as primary for each UE; link types change in place, so it is checked when read.
+    private ConcurrentMap<Long, RnibLink> primaryLinkMap = new ConcurrentHashMap<>();
     private ConcurrentMap<ECGI, RnibCell> cellMap = new ConcurrentHashMap<>();
+    // packed 28-bit ECI to ECGI of each stored cell, for lookups by HEX ECI.
+    private ConcurrentMap<Integer, ECGI> eciMap = new ConcurrentHashMap<>();
     private ConcurrentMap<Long, RnibUe> ueMap = new ConcurrentHashMap<>();
     private ConcurrentMap<Object, RnibSlice> sliceMap = new ConcurrentHashMap<>();
 
     private XranService controller;
     private IdGenerator ueIdGenerator;
 
+    // journal of the R-NIB for warm restarts, null while changes are not journaled.
+    private volatile RnibJournal journal;
+    private volatile long lastCheckpoint;
+    private ScheduledExecutorService checkpointExecutor;
+
+    // cluster wide owner of each cell, keyed by the device ID of the cell. The R-NIB of a cell is held by its owner.
+    // Package-private so that tests can stand in for the storage service.
+    ConsistentMap<DeviceId, NodeId> cellOwnerMap;
+    NodeId localNodeId;
+
     // map to get the context channel based on ecgi
     private ConcurrentMap<ECGI, ChannelHandlerContext> ctxMap = new ConcurrentHashMap<>();
     // pci-arfcn to ecgi bimap
-    private BiMap<PCIARFCN, ECGI> pciarfcnMap = HashBiMap.create();
+    private ConcurrentBiIndex<PCIARFCN, ECGI> pciarfcnMap = new ConcurrentBiIndex<>();
     // ECGI, CRNTI pair of primary cell for specified UE.
-    private BiMap<EcgiCrntiPair, Long> crntiMap = HashBiMap.create();
+    private ConcurrentBiIndex<EcgiCrntiPair, Long> crntiMap = new ConcurrentBiIndex<>(this::indexCrnti);
+    // UE ID of each ECGI, CRNTI pair in crntiMap keyed by the packed pair, kept in step by indexCrnti.
+    private ConcurrentLongMap<Long> packedCrntiMap = new ConcurrentLongMap<>();
 
 
     @Activate
@@ -91,15 +190,48 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
         // create ue id generator
         ueIdGenerator = coreService.getIdGenerator("xran-ue-id");
 
+        localNodeId = clusterService.getLocalNode().id();
+        cellOwnerMap = storageService.<DeviceId, NodeId>consistentMapBuilder()
+                .withName("onos-xran-cell-owners")
+                .withSerializer(Serializer.using(KryoNamespaces.API))
+                .build();
+
+        try {
+            openJournal(Paths.get(System.getProperty("karaf.data", "data"), "xran", JOURNAL_FILE));
+        } catch (IOException e) {
+            log.warn(ExceptionUtils.getFullStackTrace(e));
+        }
+        checkpointExecutor = Executors.newSingleThreadScheduledExecutor(
+                groupedThreads("onos/xran", "checkpoint", log));
+        checkpointExecutor.scheduleWithFixedDelay(this::checkpointIfDue, CHECKPOINT_POLL_MS, CHECKPOINT_POLL_MS,
+                TimeUnit.MILLISECONDS);
+
         log.info("XRAN Default Store Started");
     }
 
     @Deactivate
     public void deactivate() {
+        checkpointExecutor.shutdownNow();
+        closeJournal();
+
+        // cells owned here lose their association with this instance.
+        cellMap.keySet().forEach(this::releaseCell);
+        cellOwnerMap = null;
+
         linkMap.clear();
+        cellLinkMap.clear();
+        ueLinkMap.clear();
+        packedLinkMap.clear();
+        measurementTable.clear();
+        primaryLinkMap.clear();
         cellMap.clear();
+        eciMap.clear();
         ueMap.clear();
         sliceMap.clear();
+        ctxMap.clear();
+        pciarfcnMap.clear();
+        crntiMap.clear();
+        packedCrntiMap.clear();
 
         controller = null;
         ueIdGenerator = null;
@@ -116,85 +248,46 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
 
     @Override
     public List<RnibLink> getLinks(ECGI ecgi) {
-        List<RnibLink> list = Lists.newArrayList();
-        list.addAll(
-                linkMap.keySet()
-                        .stream()
-                        .filter(k -> k.getEcgi().equals(ecgi))
-                        .map(v -> linkMap.get(v))
-                        .collect(Collectors.toList()));
-        return list;
+        if (ecgi == null) {
+            return Lists.newArrayList();
+        }
+        return read(cellVersions, ecgi, cellLocks, () -> linksOf(cellLinkMap, ecgi));
     }
 
     @Override
     public List<RnibLink> getLinks(String eciHex) {
-        List<RnibLink> list = Lists.newArrayList();
-        EUTRANCellIdentifier eci = hexToEci(eciHex);
-
-        list.addAll(
-                linkMap.keySet()
-                        .stream()
-                        .filter(k -> k.getEcgi().getEUTRANcellIdentifier().equals(eci))
-                        .map(v -> linkMap.get(v))
-                        .collect(Collectors.toList()));
-
-        return list;
+        return getLinks(hexToEcgi(eciHex));
     }
 
     @Override
     public List<RnibLink> getLinks(long euId) {
-        List<RnibLink> list = Lists.newArrayList();
-
-        list.addAll(
-                linkMap.keySet()
-                        .stream()
-                        .filter(k -> k.getUeId().equals(euId))
-                        .map(v -> linkMap.get(v))
-                        .collect(Collectors.toList()));
-
-        return list;
+        return read(ueVersions, euId, ueLocks, () -> linksOf(ueLinkMap, euId));
     }
 
 
     @Override
     public Optional<RnibLink> getLink(String eciHex, long euId) {
-        EUTRANCellIdentifier eci = hexToEci(eciHex);
-
-        Optional<LinkId> first = linkMap.keySet()
-                .stream()
-                .filter(linkId -> linkId.getEcgi().getEUTRANcellIdentifier().equals(eci) &&
-                        linkId.getUeId().equals(euId))
-                .findFirst();
-
-        return first.map(linkId -> linkMap.get(linkId));
+        return Optional.ofNullable(linkOf(hexToEcgi(eciHex), euId));
     }
 
     @Override
     public void storeLink(RnibLink link) {
-        synchronized (this) {
-            if (link.getLinkId() != null) {
-                // if we add a primary link then change the primary to non serving
-                if (link.getType().equals(RnibLink.Type.SERVING_PRIMARY)) {
-                    RnibUe ue = link.getLinkId().getUe();
-                    getLinks(ue.getId())
-                            .stream()
-                            .filter(l -> l.getType().equals(RnibLink.Type.SERVING_PRIMARY))
-                            .forEach(l -> l.setType(RnibLink.Type.NON_SERVING));
-                }
-                linkMap.put(link.getLinkId(), link);
-            }
+        if (link.getLinkId() != null) {
+            transact(new XranStoreTransaction().putLink(link));
         }
     }
 
     @Override
     public boolean removeLink(LinkId link) {
-        return linkMap.remove(link) != null;
+        try (Write write = new Write(Collections.singleton(link.getUeId()), Collections.singleton(link.getEcgi()))) {
+            write.begin();
+            return removeLinkLocked(link);
+        }
     }
 
     @Override
     public Optional<RnibLink> getLink(ECGI ecgi, Long ueId) {
-        LinkId linkId = LinkId.valueOf(ecgi, ueId);
-        return Optional.ofNullable(linkMap.get(linkId));
+        return ueId == null ? Optional.empty() : Optional.ofNullable(linkOf(ecgi, ueId));
     }
 
     @Override
@@ -204,7 +297,83 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
 
     @Override
     public void modifyLinkRrmConf(RnibLink link, JsonNode rrmConf) {
-        link.modifyRrmParameters(rrmConf);
+        modifyLink(link, l -> l.modifyRrmParameters(rrmConf));
+    }
+
+    @Override
+    public void modifyLink(RnibLink link, Consumer<RnibLink> update) {
+        modify(link.getRevision(), link, update);
+    }
+
+    @Override
+    public void modifyLinkMeasurements(RnibLink link, Consumer<RnibLink.Measurements> update) {
+        RnibLink.Measurements measurements = link.getMeasurements();
+        RnibLink.Measurements.RadioReport radioReport = measurements.getRadioReport();
+        RnibLink.Measurements.SchedMeasReport schedMeasReport = measurements.getSchedMeasReport();
+        RnibLink.Measurements.PdcpMeasReport pdcpMeasReport = measurements.getPdcpMeasReport();
+        modify(link.getRevision(), measurements, update);
+
+        // every new report is a sample of the link history and replaces the link's values in the measurement table.
+        if (measurements.getRadioReport() != radioReport) {
+            recordReport(link, LinkMetric.Report.RADIO);
+        }
+        if (measurements.getSchedMeasReport() != schedMeasReport) {
+            recordReport(link, LinkMetric.Report.SCHED);
+        }
+        if (measurements.getPdcpMeasReport() != pdcpMeasReport) {
+            recordReport(link, LinkMetric.Report.PDCP);
+        }
+        notifyDelegate(new XranStoreEvent(XranStoreEvent.Type.LINK_MEASUREMENT_UPDATED, link));
+    }
+
+    private void recordReport(RnibLink link, LinkMetric.Report report) {
+        link.getHistory().record(link.getMeasurements(), report);
+        measurementTable.update(link, report);
+    }
+
+    @Override
+    public MeasurementTable getMeasurementTable() {
+        return measurementTable;
+    }
+
+    @Override
+    public void modifyLinkType(RnibLink link, RnibLink.Type type) {
+        transact(new XranStoreTransaction().modifyLinkType(link, type));
+    }
+
+    @Override
+    public boolean transact(XranStoreTransaction transaction) {
+        Set<Long> ueIds = Sets.newHashSet(transaction.getUeVersions().keySet());
+        Set<ECGI> ecgis = Sets.newHashSet(transaction.getCellVersions().keySet());
+        List<XranStoreTransaction.Operation> operations = transaction.getOperations();
+        operations.forEach(operation -> {
+            if (operation.getUe() != null && operation.getUe().getId() != null) {
+                ueIds.add(operation.getUe().getId());
+            }
+            if (operation.getCell() != null && operation.getCell().getEcgi() != null) {
+                ecgis.add(operation.getCell().getEcgi());
+            }
+        });
+
+        try (Write write = new Write(ueIds, ecgis)) {
+            if (!versionsMatch(ueVersions, transaction.getUeVersions()) ||
+                    !versionsMatch(cellVersions, transaction.getCellVersions())) {
+                return false;
+            }
+            write.begin();
+            operations.forEach(this::apply);
+            return true;
+        }
+    }
+
+    @Override
+    public long getUeVersion(long ueId) {
+        return versionOf(ueVersions, ueId);
+    }
+
+    @Override
+    public long getCellVersion(ECGI ecgi) {
+        return versionOf(cellVersions, ecgi);
     }
 
     @Override
@@ -232,24 +401,48 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
     @Override
     public Optional<Object> getNode(String nodeId) {
         try {
-            return Optional.ofNullable(getCell(nodeId));
+            Optional<RnibCell> cell = getCell(nodeId);
+            if (cell.isPresent()) {
+                return Optional.of(cell.get());
+            }
         } catch (Exception ignored) {
         }
-        return Optional.ofNullable(getUe(Long.parseLong(nodeId)));
+        try {
+            return getUe(Long.parseLong(nodeId)).map(ue -> ue);
+        } catch (NumberFormatException ignored) {
+            return Optional.empty();
+        }
     }
 
     @Override
     public void storeCell(RnibCell cell) {
-        if (cell.getEcgi() != null) {
-            cellMap.putIfAbsent(cell.getEcgi(), cell);
+        if (cell.getEcgi() != null && cellMap.putIfAbsent(cell.getEcgi(), cell) == null) {
+            changes.incrementAndGet();
+            eciMap.put(PackedKeys.eci(cell.getEcgi().getEUTRANcellIdentifier()), cell.getEcgi());
+            journal(j -> j.putCell(cell));
+            notifyDelegate(new XranStoreEvent(XranStoreEvent.Type.CELL_ADDED, cell));
         }
     }
 
     @Override
     public boolean removeCell(ECGI ecgi) {
-        pciarfcnMap.inverse().remove(ecgi);
-        ctxMap.remove(ecgi);
-        return cellMap.remove(ecgi) != null;
+        if (ecgi == null) {
+            return false;
+        }
+        try (Write write = new Write(Collections.emptySet(), Collections.singleton(ecgi))) {
+            write.begin();
+            write.forgetCell(ecgi);
+            pciarfcnMap.removeValue(ecgi);
+            ctxMap.remove(ecgi);
+            RnibCell removed = cellMap.remove(ecgi);
+            if (removed != null) {
+                eciMap.remove(PackedKeys.eci(ecgi.getEUTRANcellIdentifier()));
+                journal(j -> j.removeCell(ecgi));
+                notifyDelegate(new XranStoreEvent(XranStoreEvent.Type.CELL_REMOVED, removed));
+                return true;
+            }
+            return false;
+        }
     }
 
     @Override
@@ -259,12 +452,7 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
 
     @Override
     public Optional<RnibCell> getCell(String hexeci) {
-        EUTRANCellIdentifier eci = hexToEci(hexeci);
-        Optional<ECGI> first = cellMap.keySet()
-                .stream()
-                .filter(ecgi -> ecgi.getEUTRANcellIdentifier().equals(eci))
-                .findFirst();
-        return first.map(ecgi -> cellMap.get(ecgi));
+        return Optional.ofNullable(cellMap.get(hexToEcgi(hexeci)));
     }
 
     @Override
@@ -286,7 +474,24 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
                 .map(link -> link.getLinkId().getUe())
                 .collect(Collectors.toList());
 
-        cell.modifyRrmConfig(rrmConf, ueList);
+        cell.getRevision().begin();
+        try {
+            cell.modifyRrmConfig(rrmConf, ueList);
+        } finally {
+            cell.getRevision().end();
+            changes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void modifyCell(RnibCell cell, Consumer<RnibCell> update) {
+        modify(cell.getRevision(), cell, update);
+    }
+
+    @Override
+    public void modifyCellMeasurements(RnibCell cell, Consumer<RnibCell.Measurements> update) {
+        modify(cell.getRevision(), cell.getMeasurements(), update);
+        notifyDelegate(new XranStoreEvent(XranStoreEvent.Type.CELL_MEASUREMENT_UPDATED, cell));
     }
 
     @Override
@@ -304,6 +509,47 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
         return sliceMap.remove(sliceId) != null;
     }
 
+    @Override
+    public boolean claimCell(ECGI ecgi) {
+        if (cellOwnerMap == null || ecgi == null) {
+            return true;
+        }
+        DeviceId id = deviceId(uri(ecgi));
+        Versioned<NodeId> owner = cellOwnerMap.putIfAbsent(id, localNodeId);
+        if (owner == null || owner.value().equals(localNodeId)) {
+            return true;
+        }
+        // an instance that left the cluster has lost the association, so the cell is taken over from it.
+        return !clusterService.getState(owner.value()).isActive() &&
+                cellOwnerMap.replace(id, owner.version(), localNodeId);
+    }
+
+    @Override
+    public void releaseCell(ECGI ecgi) {
+        if (cellOwnerMap != null && ecgi != null) {
+            cellOwnerMap.remove(deviceId(uri(ecgi)), localNodeId);
+        }
+    }
+
+    @Override
+    public Optional<NodeId> getCellOwner(ECGI ecgi) {
+        if (cellOwnerMap == null || ecgi == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(Versioned.valueOrNull(cellOwnerMap.get(deviceId(uri(ecgi)))));
+    }
+
+    @Override
+    public void closeJournal() {
+        RnibJournal current = journal;
+        if (current != null) {
+            current.checkpoint(this::writeRnib);
+            // later changes, e.g. removals of the associations closed while stopping, are not journaled.
+            journal = null;
+            current.close();
+        }
+    }
+
     @Override
     public Optional<XranService> getController() {
         return Optional.ofNullable(controller);
@@ -323,7 +569,18 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
         } else {
             newId = ue.getId();
         }
-        ueMap.put(newId, ue);
+        RnibUe old = ueMap.put(newId, ue);
+        changes.incrementAndGet();
+        journal(j -> j.putUe(ue));
+        if (old != ue) {
+            notifyDelegate(new XranStoreEvent(old == null ? XranStoreEvent.Type.UE_ADDED :
+                    XranStoreEvent.Type.UE_REPLACED, ue));
+        }
+    }
+
+    @Override
+    public void modifyUe(RnibUe ue, Consumer<RnibUe> update) {
+        modify(ue.getRevision(), ue, update);
     }
 
     @Override
@@ -335,8 +592,18 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
     @Override
     public boolean removeUe(long ueId) {
         log.info("removing ue {} {}", ueId, ueMap);
-        crntiMap.inverse().remove(ueId);
-        return ueMap.remove(ueId) != null;
+        try (Write write = new Write(Collections.singleton(ueId), Collections.emptySet())) {
+            write.begin();
+            write.forgetUe(ueId);
+            crntiMap.removeValue(ueId);
+            RnibUe removed = ueMap.remove(ueId);
+            if (removed != null) {
+                journal(j -> j.removeUe(ueId));
+                notifyDelegate(new XranStoreEvent(XranStoreEvent.Type.UE_REMOVED, removed));
+                return true;
+            }
+            return false;
+        }
     }
 
     @Override
@@ -346,6 +613,9 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
             pciarfcn.setPci(cfg.getPci());
             pciarfcn.setEarfcnDl(cfg.getEarfcnDl());
             pciarfcnMap.put(pciarfcn, value.getEcgi());
+            if (cellMap.get(value.getEcgi()) == value) {
+                journal(j -> j.putCell(value));
+            }
         });
     }
 
@@ -363,37 +633,35 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
     }
 
     @Override
-    public BiMap<EcgiCrntiPair, Long> getCrnti() {
+    public ConcurrentBiIndex<EcgiCrntiPair, Long> getCrnti() {
         return crntiMap;
     }
 
     @Override
     public void storeCrnti(RnibCell cell, RnibUe ue) {
-        CRNTI crnti = ue.getCrnti();
-        ECGI ecgi = cell.getEcgi();
+        transact(new XranStoreTransaction().storeCrnti(cell, ue));
+    }
 
-        if (crnti != null && ecgi != null) {
-            // check if there is an ecgi, crnti pair for this UE id.
-            EcgiCrntiPair oldPair = crntiMap.inverse().get(ue.getId()),
-                    newPair = EcgiCrntiPair.valueOf(cell.getEcgi(), ue.getCrnti());
-
-            if (oldPair == null) {
-                crntiMap.put(newPair, ue.getId());
-            } else {
-                // remove old pair and add the new pair which corresponds to the primary cell.
-                crntiMap.inverse().remove(ue.getId());
-                crntiMap.put(newPair, ue.getId());
+    @Override
+    public boolean rebindCrnti(RnibUe ue, ECGI ecgi, CRNTI oldCrnti, CRNTI newCrnti) {
+        if (ue.getId() == null || ecgi == null || oldCrnti == null || newCrnti == null) {
+            return false;
+        }
+        try (Write write = new Write(Collections.singleton(ue.getId()), Collections.singleton(ecgi))) {
+            write.begin();
+            if (crntiMap.rebind(ue.getId(), EcgiCrntiPair.valueOf(ecgi, oldCrnti),
+                    EcgiCrntiPair.valueOf(ecgi, newCrnti))) {
+                modifyUe(ue, u -> u.setCrnti(newCrnti));
+                return true;
             }
+            return false;
         }
     }
 
     @Override
     public void putPrimaryLink(RnibCell cell, RnibUe ue) {
-        RnibLink link = new RnibLink(cell, ue);
-        // set link to primary before storing
-        link.setType(RnibLink.Type.SERVING_PRIMARY);
-        storeLink(link);
-        storeCrnti(cell, ue);
+        // the link and the ECGI, CRNTI pair move to the new primary together.
+        transact(new XranStoreTransaction().putPrimaryLink(cell, ue));
     }
 
     @Override
@@ -416,18 +684,41 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
 
     @Override
     public Optional<CRNTI> getCrnti(Long ueId) {
-        return Optional.ofNullable(getCrnti().inverse().get(ueId).getValue());
+        return Optional.ofNullable(crntiMap.getKey(ueId)).map(EcgiCrntiPair::getValue);
     }
 
     @Override
     public Optional<RnibCell> getPrimaryCell(RnibUe ue) {
-        // search all links for this UE and find PRIMARY.
-        Optional<RnibLink> primary = getLinks().stream()
-                .filter(l -> l.getType().equals(RnibLink.Type.SERVING_PRIMARY))
-                .filter(l -> l.getLinkId().getUe().equals(ue))
-                .findFirst();
+        if (ue.getId() == null) {
+            return Optional.empty();
+        }
+
+        return read(ueVersions, ue.getId(), ueLocks, () -> {
+            RnibLink primary = primaryLinkMap.get(ue.getId());
+            if (primary != null && primary.getType().equals(RnibLink.Type.SERVING_PRIMARY)) {
+                return Optional.of(primary.getLinkId().getCell());
+            }
 
-        return primary.flatMap(l -> Optional.of(l.getLinkId().getCell()));
+            // the indexed link was demoted in place, search the links of this UE for the PRIMARY.
+            return linksOf(ueLinkMap, ue.getId()).stream()
+                    .filter(l -> l.getType().equals(RnibLink.Type.SERVING_PRIMARY))
+                    .findFirst()
+                    .map(l -> l.getLinkId().getCell());
+        });
+    }
+
+    @Override
+    public RnibSnapshot getSnapshot() {
+        long epoch = changes.get();
+        SerializedRnib last = snapshot.get();
+        if (last != null && last.snapshot.getEpoch() == epoch) {
+            return last.snapshot;
+        }
+
+        SerializedRnib taken = new SerializedRnib(epoch, last);
+        // changes made while it was taken may be in it, but it is still replaced at the next count.
+        return snapshot.updateAndGet(current -> current == null || current.snapshot.getEpoch() < epoch
+                ? taken : current).snapshot;
     }
 
     @Override
@@ -437,18 +728,521 @@ public class DefaultXranStore extends AbstractStore implements XranStore {
 
     @Override
     public Optional<RnibUe> getUe(ECGI ecgi, CRNTI crnti) {
-        return Optional.ofNullable(crntiMap.get(EcgiCrntiPair.valueOf(ecgi, crnti)))
-                .flatMap(this::getUe);
+        long key = PackedKeys.ecgiCrnti(ecgi, crnti);
+        Long ueId = key != PackedKeys.NONE ? packedCrntiMap.get(key) : crntiMap.get(EcgiCrntiPair.valueOf(ecgi, crnti));
+        return ueId == null ? Optional.empty() : Optional.ofNullable(ueMap.get(ueId));
     }
 
     /**
-     * Get from HEX string the according ECI class object.
+     * Change a part of an entity in place between a begin and end of the entity's revision.
+     *
+     * @param revision revision of the entity
+     * @param part     entity or part of it
+     * @param update   changes the part
+     * @param <T>      type of the part
+     */
+    private <T> void modify(Revision revision, T part, Consumer<T> update) {
+        revision.begin();
+        try {
+            update.accept(part);
+        } finally {
+            revision.end();
+            changes.incrementAndGet();
+        }
+    }
+
+    /**
+     * Apply one operation of a transaction. Must be called inside the transaction's write.
+     *
+     * @param operation operation
+     */
+    private void apply(XranStoreTransaction.Operation operation) {
+        switch (operation.getType()) {
+            case PUT_PRIMARY_LINK: {
+                RnibLink link = new RnibLink(operation.getCell(), operation.getUe());
+                // set link to primary before storing
+                link.setType(RnibLink.Type.SERVING_PRIMARY);
+                storeLinkLocked(link);
+                storeCrntiLocked(operation.getCell(), operation.getUe());
+                break;
+            }
+            case PUT_LINK:
+                storeLinkLocked(operation.getLink());
+                break;
+            case REMOVE_LINK:
+                removeLinkLocked(operation.getLinkId());
+                break;
+            case MODIFY_LINK_TYPE: {
+                RnibLink link = operation.getLink();
+                if (operation.getLinkType().equals(RnibLink.Type.SERVING_PRIMARY)) {
+                    demotePrimary(link.getLinkId().getUeId(), link);
+                }
+                modifyLink(link, l -> l.setType(operation.getLinkType()));
+                if (linkMap.get(link.getLinkId()) == link) {
+                    unindexLink(link);
+                    indexLink(link);
+                    measurementTable.updateType(link);
+                    notifyDelegate(new XranStoreEvent(XranStoreEvent.Type.LINK_TYPE_CHANGED, link));
+                }
+                break;
+            }
+            case STORE_CRNTI:
+                storeCrntiLocked(operation.getCell(), operation.getUe());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void storeLinkLocked(RnibLink link) {
+        // if we add a primary link then change the primary to non serving
+        if (link.getType().equals(RnibLink.Type.SERVING_PRIMARY)) {
+            demotePrimary(link.getLinkId().getUeId(), link);
+        }
+        RnibLink old = linkMap.put(link.getLinkId(), link);
+        if (old != null) {
+            unindexLink(old);
+        }
+        indexLink(link);
+        // a link stored again keeps its metrics.
+        if (old != link) {
+            if (old != null) {
+                measurementTable.remove(old);
+            }
+            measurementTable.add(link);
+        }
+        notifyDelegate(new XranStoreEvent(old == null ? XranStoreEvent.Type.LINK_ADDED :
+                XranStoreEvent.Type.LINK_REPLACED, link));
+    }
+
+    private boolean removeLinkLocked(LinkId linkId) {
+        RnibLink old = linkMap.remove(linkId);
+        if (old != null) {
+            unindexLink(old);
+            measurementTable.remove(old);
+            notifyDelegate(new XranStoreEvent(XranStoreEvent.Type.LINK_REMOVED, old));
+            return true;
+        }
+        return false;
+    }
+
+    private void storeCrntiLocked(RnibCell cell, RnibUe ue) {
+        CRNTI crnti = ue.getCrnti();
+        ECGI ecgi = cell.getEcgi();
+
+        if (crnti != null && ecgi != null && ue.getId() != null) {
+            // the old pair of this UE, e.g. at the source CELL of a hand off, is replaced in the same step.
+            crntiMap.put(EcgiCrntiPair.valueOf(ecgi, crnti), ue.getId());
+        }
+    }
+
+    /**
+     * Make every primary link of a UE, other than the given link, non serving.
+     *
+     * @param ueId UE ID
+     * @param link link that becomes the primary
+     */
+    private void demotePrimary(Long ueId, RnibLink link) {
+        linksOf(ueLinkMap, ueId).stream()
+                .filter(l -> l != link && l.getType().equals(RnibLink.Type.SERVING_PRIMARY))
+                .forEach(l -> {
+                    modifyLink(l, demoted -> demoted.setType(RnibLink.Type.NON_SERVING));
+                    measurementTable.updateType(l);
+                    journal(j -> j.putLink(l));
+                    notifyDelegate(new XranStoreEvent(XranStoreEvent.Type.LINK_TYPE_CHANGED, l));
+                });
+    }
+
+    /**
+     * Read a view of a UE or cell that is consistent with a single version of it.
+     * The view is read without locking and read again if a write changed the version meanwhile; after a few tries
+     * it is read holding the lock.
+     *
+     * @param versions UE or cell versions
+     * @param key      UE ID or ECGI
+     * @param locks    UE or cell locks
+     * @param reader   reads the view
+     * @param <K>      type of the key
+     * @param <T>      type of the view
+     * @return view
+     */
+    private static <K, T> T read(ConcurrentMap<K, AtomicLong> versions, K key, Striped<Lock> locks,
+                                 Supplier<T> reader) {
+        for (int i = 0; i < OPTIMISTIC_READS; i++) {
+            long before = versionOf(versions, key);
+            if ((before & 1) == 0) {
+                T view = reader.get();
+                if (versionOf(versions, key) == before) {
+                    return view;
+                }
+            }
+            Thread.yield();
+        }
+
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <K> long versionOf(ConcurrentMap<K, AtomicLong> versions, K key) {
+        AtomicLong version = key == null ? null : versions.get(key);
+        return version == null ? 0 : version.get();
+    }
+
+    private static <K> boolean versionsMatch(ConcurrentMap<K, AtomicLong> versions, Map<K, Long> expected) {
+        return expected.entrySet().stream().allMatch(e -> versionOf(versions, e.getKey()) == e.getValue());
+    }
+
+    /**
+     * Locks of a write to some UEs and cells, held until closed.
+     * UEs are locked before cells, each in stripe order, and the cells of the links of the UEs are locked too since
+     * demoting a primary changes them. Versions are odd from begin until close.
+     */
+    private final class Write implements AutoCloseable {
+        private final Set<Long> ueIds = Sets.newHashSet();
+        private final Set<ECGI> ecgis = Sets.newHashSet();
+        private final Set<Long> forgottenUes = Sets.newHashSet();
+        private final Set<ECGI> forgottenCells = Sets.newHashSet();
+        private final List<Lock> locks = Lists.newArrayList();
+        private boolean begun;
+
+        private Write(Collection<Long> ueIds, Collection<ECGI> ecgis) {
+            ueIds.stream().filter(id -> id != null).forEach(this.ueIds::add);
+            ueLocks.bulkGet(this.ueIds).forEach(this::lock);
+
+            // links of these UEs only change under their locks, so their cells are stable from here on.
+            ecgis.stream().filter(ecgi -> ecgi != null).forEach(this.ecgis::add);
+            this.ueIds.forEach(id -> {
+                ConcurrentMap<ECGI, RnibLink> links = ueLinkMap.get(id);
+                if (links != null) {
+                    this.ecgis.addAll(links.keySet());
+                }
+            });
+            cellLocks.bulkGet(this.ecgis).forEach(this::lock);
+        }
+
+        private void lock(Lock lock) {
+            lock.lock();
+            locks.add(lock);
+        }
+
+        private void begin() {
+            ueIds.forEach(id -> ueVersions.computeIfAbsent(id, k -> new AtomicLong()).getAndUpdate(v -> v | 1));
+            ecgis.forEach(ecgi -> cellVersions.computeIfAbsent(ecgi, k -> new AtomicLong())
+                    .getAndUpdate(v -> v | 1));
+            begun = true;
+        }
+
+        private void forgetUe(long ueId) {
+            forgottenUes.add(ueId);
+        }
+
+        private void forgetCell(ECGI ecgi) {
+            forgottenCells.add(ecgi);
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (begun) {
+                    long version = clock.addAndGet(2);
+                    ueIds.forEach(id -> ueVersions.get(id).set(version));
+                    ecgis.forEach(ecgi -> cellVersions.get(ecgi).set(version));
+                    forgottenUes.forEach(ueVersions::remove);
+                    forgottenCells.forEach(cellVersions::remove);
+                    changes.incrementAndGet();
+                }
+            } finally {
+                Lists.reverse(locks).forEach(Lock::unlock);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the R-NIB with the serialized entities it was built from.
+     * Entities whose revision did not change since the previous snapshot keep their JSON tree, so a snapshot taken
+     * while reports keep arriving only serializes the entities they changed.
+     */
+    private final class SerializedRnib {
+        private final RnibSnapshot snapshot;
+        private final Map<ECGI, SerializedEntity> cells = Maps.newHashMap();
+        private final Map<Long, SerializedEntity> ues = Maps.newHashMap();
+        private final Map<LinkId, SerializedEntity> links = Maps.newHashMap();
+
+        private SerializedRnib(long epoch, SerializedRnib previous) {
+            ArrayNode cellArray = serialize(cellMap, RnibCell::getRevision,
+                    previous == null ? null : previous.cells, cells);
+            ArrayNode ueArray = serialize(ueMap, RnibUe::getRevision,
+                    previous == null ? null : previous.ues, ues);
+            ArrayNode linkArray = serialize(linkMap, RnibLink::getRevision,
+                    previous == null ? null : previous.links, links);
+            snapshot = new RnibSnapshot(epoch, cellArray, ueArray, linkArray);
+        }
+
+        private <K, T> ArrayNode serialize(Map<K, T> entities, Function<T, Revision> revisionOf,
+                                           Map<K, SerializedEntity> previous, Map<K, SerializedEntity> serialized) {
+            ArrayNode array = mapper.createArrayNode();
+            entities.forEach((key, entity) -> {
+                Revision revision = revisionOf.apply(entity);
+                long before = revision.get();
+                SerializedEntity reused = previous == null ? null : previous.get(key);
+                if (reused == null || reused.entity != entity || reused.revision != before) {
+                    JsonNode json = revision.read(() -> mapper.valueToTree(entity), OPTIMISTIC_READS);
+                    // modified on every try, serialize it as it is and serialize it again next time.
+                    reused = json != null ? new SerializedEntity(entity, before, json)
+                            : new SerializedEntity(entity, -1, mapper.valueToTree(entity));
+                }
+                serialized.put(key, reused);
+                array.add(reused.json);
+            });
+            return array;
+        }
+    }
+
+    // JSON tree of an entity, reused while the entity keeps the revision. A tree that may mix revisions has -1.
+    private static final class SerializedEntity {
+        private final Object entity;
+        private final long revision;
+        private final JsonNode json;
+
+        private SerializedEntity(Object entity, long revision, JsonNode json) {
+            this.entity = entity;
+            this.revision = revision;
+            this.json = json;
+        }
+    }
+
+    /**
+     * Add a stored link to the cell, UE and primary link indexes.
+     * Must be called inside a write to the link's UE.
+     *
+     * @param link stored link
+     */
+    private void indexLink(RnibLink link) {
+        ECGI ecgi = link.getLinkId().getEcgi();
+        Long ueId = link.getLinkId().getUeId();
+
+        // the cell index is shared with other UEs, so add inside compute where it cannot be pruned concurrently.
+        cellLinkMap.compute(ecgi, (k, links) -> {
+            ConcurrentMap<Long, RnibLink> updated = links == null ? new ConcurrentHashMap<>() : links;
+            updated.put(ueId, link);
+            return updated;
+        });
+        ueLinkMap.computeIfAbsent(ueId, k -> new ConcurrentHashMap<>()).put(ecgi, link);
+        if (link.getType().equals(RnibLink.Type.SERVING_PRIMARY)) {
+            primaryLinkMap.put(ueId, link);
+        }
+        long key = PackedKeys.link(ecgi, ueId);
+        if (key != PackedKeys.NONE) {
+            packedLinkMap.put(key, link);
+        }
+        journal(j -> j.putLink(link));
+    }
+
+    /**
+     * Remove a link that is no longer stored from the cell, UE and primary link indexes.
+     * Must be called inside a write to the link's UE.
+     *
+     * @param link removed link
+     */
+    private void unindexLink(RnibLink link) {
+        ECGI ecgi = link.getLinkId().getEcgi();
+        Long ueId = link.getLinkId().getUeId();
+
+        cellLinkMap.computeIfPresent(ecgi, (k, links) -> {
+            links.remove(ueId, link);
+            return links.isEmpty() ? null : links;
+        });
+        ueLinkMap.computeIfPresent(ueId, (k, links) -> {
+            links.remove(ecgi, link);
+            return links.isEmpty() ? null : links;
+        });
+        primaryLinkMap.remove(ueId, link);
+        long key = PackedKeys.link(ecgi, ueId);
+        if (key != PackedKeys.NONE) {
+            packedLinkMap.remove(key, link);
+        }
+        journal(j -> j.removeLink(link.getLinkId()));
+    }
+
+    /**
+     * Get the link between a cell and a UE without building a link ID.
+     *
+     * @param ecgi ECGI of the cell
+     * @param ueId UE ID
+     * @return link or null if not found
+     */
+    private RnibLink linkOf(ECGI ecgi, long ueId) {
+        long key = PackedKeys.link(ecgi, ueId);
+        if (key != PackedKeys.NONE) {
+            return packedLinkMap.get(key);
+        }
+        ConcurrentMap<Long, RnibLink> links = ecgi == null ? null : cellLinkMap.get(ecgi);
+        return links == null ? null : links.get(ueId);
+    }
+
+    /**
+     * Restore the R-NIB from a journal and journal every change of it from now on.
+     * Must be called before the store is used.
+     *
+     * @param file journal file
+     * @throws IOException if the journal cannot be opened
+     */
+    void openJournal(Path file) throws IOException {
+        RnibJournal opened = RnibJournal.open(file);
+        restore(opened.replay());
+        // compact the replayed changes before new ones are appended.
+        opened.checkpoint(this::writeRnib);
+        lastCheckpoint = System.currentTimeMillis();
+        journal = opened;
+    }
+
+    /**
+     * Stop journaling changes without a checkpoint, as when the instance stops abruptly.
+     * The changes recorded so far stay in the journal.
+     */
+    void stopJournal() {
+        RnibJournal current = journal;
+        if (current != null) {
+            journal = null;
+            current.close();
+        }
+    }
+
+    /**
+     * Add the entities of a replayed journal to the empty R-NIB. CELLs owned by another instance are dropped, and so
+     * are the links and CRNTIs of dropped or removed entities.
+     *
+     * @param state replayed journal
+     */
+    private void restore(RnibJournal.State state) {
+        state.getCells().values().forEach(cell -> {
+            // the instance now owning the CELL rebuilds its R-NIB from the reports of the CELL.
+            if (!claimCell(cell.getEcgi())) {
+                log.info("Cell {} is owned by {}; not restoring it", cell.getEcgi(),
+                        getCellOwner(cell.getEcgi()).orElse(null));
+                return;
+            }
+            cellMap.put(cell.getEcgi(), cell);
+            eciMap.put(PackedKeys.eci(cell.getEcgi().getEUTRANcellIdentifier()), cell.getEcgi());
+            storePciArfcn(cell);
+        });
+        state.getUes().values().forEach(ue -> ueMap.put(ue.getId(), ue));
+        state.getCrntis().forEach((pair, ueId) -> {
+            RnibUe ue = ueMap.get(ueId);
+            if (ue != null) {
+                ue.setCrnti(pair.getValue());
+                crntiMap.put(pair, ueId);
+            }
+        });
+        state.getLinks().forEach((linkId, type) -> {
+            RnibCell cell = cellMap.get(linkId.getEcgi());
+            RnibUe ue = ueMap.get(linkId.getUeId());
+            if (cell != null && ue != null) {
+                RnibLink link = new RnibLink(cell, ue);
+                link.setType(type);
+                linkMap.put(link.getLinkId(), link);
+                indexLink(link);
+                measurementTable.add(link);
+            }
+        });
+        changes.incrementAndGet();
+        log.info("Restored {} cells, {} UEs and {} links", cellMap.size(), ueMap.size(), linkMap.size());
+    }
+
+    /**
+     * Record the whole R-NIB into a journal being checkpointed.
+     *
+     * @param target journal
+     */
+    private void writeRnib(RnibJournal target) {
+        cellMap.values().forEach(target::putCell);
+        ueMap.values().forEach(target::putUe);
+        linkMap.values().forEach(target::putLink);
+        crntiMap.forEach(target::bindCrnti);
+    }
+
+    private void checkpointIfDue() {
+        RnibJournal current = journal;
+        if (current != null && (current.isCheckpointDue() ||
+                System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_INTERVAL_MS)) {
+            current.checkpoint(this::writeRnib);
+            lastCheckpoint = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Record a change in the journal, if changes are journaled.
+     *
+     * @param change records the change
+     */
+    private void journal(Consumer<RnibJournal> change) {
+        RnibJournal current = journal;
+        if (current != null) {
+            change.accept(current);
+        }
+    }
+
+    /**
+     * Keep the packed CRNTI index in step with crntiMap. Called by crntiMap while the change is locked.
+     *
+     * @param pair ECGI, CRNTI pair
+     * @param ueId UE ID now bound to the pair, or null if it was unbound
+     */
+    private void indexCrnti(EcgiCrntiPair pair, Long ueId) {
+        if (ueId == null) {
+            journal(j -> j.unbindCrnti(pair));
+        } else {
+            journal(j -> j.bindCrnti(pair, ueId));
+        }
+
+        long key = PackedKeys.ecgiCrnti(pair.getKey(), pair.getValue());
+        if (key == PackedKeys.NONE) {
+            return;
+        }
+        if (ueId == null) {
+            packedCrntiMap.remove(key);
+        } else {
+            packedCrntiMap.put(key, ueId);
+        }
+    }
+
+    /**
+     * Get a copy of the links indexed under a key.
+     *
+     * @param index cell or UE link index
+     * @param key   ECGI or UE ID
+     * @param <K>   type of the key
+     * @return list of links, empty if none or the key is null
+     */
+    private static <K> List<RnibLink> linksOf(ConcurrentMap<K, ? extends ConcurrentMap<?, RnibLink>> index, K key) {
+        if (key == null) {
+            return Lists.newArrayList();
+        }
+        ConcurrentMap<?, RnibLink> links = index.get(key);
+        return links == null ? Lists.newArrayList() : Lists.newArrayList(links.values());
+    }
+
+    /**
+     * Get the ECGI of a HEX ECI, as stored if the cell is known.
+     * ECGIs are equal when their ECIs are, so links of cells that were already removed are still found.
      *
      * @param eciHex HEX string
-     * @return ECI object if created successfully
+     * @return ECGI used as a lookup key
      */
-    private EUTRANCellIdentifier hexToEci(String eciHex) {
-        byte[] hexBinary = DatatypeConverter.parseHexBinary(eciHex);
-        return new EUTRANCellIdentifier(hexBinary, 28);
+    private ECGI hexToEcgi(String eciHex) {
+        byte[] eci = DatatypeConverter.parseHexBinary(eciHex);
+        ECGI stored = PackedKeys.isEci(eci) ? eciMap.get(PackedKeys.eci(eci)) : null;
+        if (stored != null) {
+            return stored;
+        }
+
+        ECGI ecgi = new ECGI();
+        ecgi.setEUTRANcellIdentifier(new EUTRANCellIdentifier(eci, 28));
+        return ecgi;
     }
 }
@@ -0,0 +1,694 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl;
+
+import com.google.common.collect.Maps;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.onosproject.xran.asn1lib.api.CRNTI;
+import org.onosproject.xran.asn1lib.api.ECGI;
+import org.onosproject.xran.asn1lib.api.ENBUES1APID;
+import org.onosproject.xran.asn1lib.api.MMEUES1APID;
+import org.onosproject.xran.asn1lib.ber.BerByteArrayOutputStream;
+import org.onosproject.xran.asn1lib.pdu.CellConfigReport;
+import org.onosproject.xran.impl.entities.RnibCell;
+import org.onosproject.xran.impl.entities.RnibLink;
+import org.onosproject.xran.impl.entities.RnibUe;
+import org.onosproject.xran.impl.identifiers.EcgiCrntiPair;
+import org.onosproject.xran.impl.identifiers.LinkId;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Journal of the changes of the R-NIB in a memory-mapped file, starting with a checkpoint of the whole R-NIB.
+ * Each change is appended as a checksummed record, so a record torn by a crash is dropped on replay. A checkpoint
+ * writes the R-NIB to a new file that atomically replaces the journal.
+ * Only CELLs, UEs, links and CRNTIs are kept; measurements, timers and associations are rebuilt from the CELLs.
+ * Changes are encoded by the threads recording them and queued in the order they are recorded; a single appender
+ * thread writes them to the file, so recording a change never waits for the file.
+ */
+final class RnibJournal {
+
+    private static final Logger log = getLogger(RnibJournal.class);
+
+    private static final int MAGIC = 0x524E4942;
+
+    private static final int FORMAT = 1;
+
+    // magic, format and the end of the checkpoint.
+    private static final int CHECKPOINT_END_OFFSET = 8;
+    private static final int HEADER_BYTES = 12;
+
+    // length and checksum of the payload.
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private static final int MIN_CAPACITY = 1 << 20;
+
+    // a checkpoint is due once the changes since the last one take more than this, or more than the checkpoint.
+    private static final int MIN_JOURNAL_BYTES = 1 << 18;
+
+    private static final int BER_BUFFER_SIZE = 256;
+
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    // encoding buffers of each thread recording changes, reused for every record.
+    private static final ThreadLocal<Encoder> ENCODERS = ThreadLocal.withInitial(Encoder::new);
+
+    private static final byte PUT_CELL = 1;
+    private static final byte REMOVE_CELL = 2;
+    private static final byte PUT_UE = 3;
+    private static final byte REMOVE_UE = 4;
+    private static final byte PUT_LINK = 5;
+    private static final byte REMOVE_LINK = 6;
+    private static final byte BIND_CRNTI = 7;
+    private static final byte UNBIND_CRNTI = 8;
+
+    private final Path file;
+    // records encoded but not written yet, each with its header.
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean appendScheduled = new AtomicBoolean();
+    private final ExecutorService appender =
+            Executors.newSingleThreadExecutor(groupedThreads("onos/xran", "journal", log));
+    // held by the appender while it writes, and by checkpoints, replays and close.
+    private final ReentrantLock fileLock = new ReentrantLock();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int checkpointEnd;
+
+    private RnibJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Open a journal, creating an empty one if the file does not exist or holds no journal.
+     * Appending starts after the last complete record.
+     *
+     * @param file journal file
+     * @return journal
+     * @throws IOException if the file cannot be mapped
+     */
+    static RnibJournal open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        RnibJournal journal = new RnibJournal(file);
+        journal.channel = FileChannel.open(file, CREATE, READ, WRITE);
+        journal.buffer = journal.channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(journal.channel.size(), MIN_CAPACITY));
+        if (journal.buffer.getInt(0) == MAGIC && journal.buffer.getInt(4) == FORMAT) {
+            journal.checkpointEnd = journal.buffer.getInt(CHECKPOINT_END_OFFSET);
+            journal.buffer.position(HEADER_BYTES);
+            byte[] record;
+            do {
+                record = nextRecord(journal.buffer);
+            } while (record != null);
+        } else {
+            journal.writeHeader();
+        }
+        return journal;
+    }
+
+    /**
+     * Read the R-NIB held by the journal.
+     *
+     * @return state after the checkpoint and every change recorded since
+     */
+    State replay() {
+        State state = new State();
+        fileLock.lock();
+        try {
+            if (buffer == null) {
+                return state;
+            }
+
+            ByteBuffer records = buffer.duplicate();
+            records.position(HEADER_BYTES);
+            byte[] payload;
+            while ((payload = nextRecord(records)) != null) {
+                try {
+                    state.apply(new DataInputStream(new ByteArrayInputStream(payload)));
+                } catch (IOException e) {
+                    log.warn(ExceptionUtils.getFullStackTrace(e));
+                }
+            }
+            return state;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Record a stored CELL or a change of its configuration.
+     *
+     * @param cell CELL entity
+     */
+    void putCell(RnibCell cell) {
+        append(record(PUT_CELL, out -> {
+            writeBer(out, cell.getEcgi()::encode);
+            writeBer(out, cell.getOptConf().<BerEncoder>map(conf -> conf::encode).orElse(null));
+        }));
+    }
+
+    /**
+     * Record a removed CELL.
+     *
+     * @param ecgi CELL ECGI
+     */
+    void removeCell(ECGI ecgi) {
+        append(record(REMOVE_CELL, out -> writeBer(out, ecgi::encode)));
+    }
+
+    /**
+     * Record a stored UE. Its CRNTI is recorded with the ECGI, CRNTI pair bound to it.
+     *
+     * @param ue UE entity
+     */
+    void putUe(RnibUe ue) {
+        RnibUe.ContextIds ids = ue.getContextIds() != null ? ue.getContextIds() : new RnibUe.ContextIds();
+        append(record(PUT_UE, out -> {
+            out.writeLong(ue.getId());
+            out.writeUTF(ue.getState().name());
+            out.writeUTF(ids.getImsi() == null ? "" : ids.getImsi());
+            writeBer(out, ids.getEnbS1apId() == null ? null : ids.getEnbS1apId()::encode);
+            writeBer(out, ids.getMmeS1apId() == null ? null : ids.getMmeS1apId()::encode);
+        }));
+    }
+
+    /**
+     * Record a removed UE.
+     *
+     * @param ueId UE ID
+     */
+    void removeUe(long ueId) {
+        append(record(REMOVE_UE, out -> out.writeLong(ueId)));
+    }
+
+    /**
+     * Record a stored link or a change of its type.
+     *
+     * @param link LINK entity
+     */
+    void putLink(RnibLink link) {
+        append(record(PUT_LINK, out -> {
+            writeBer(out, link.getLinkId().getEcgi()::encode);
+            out.writeLong(link.getLinkId().getUeId());
+            out.writeUTF(link.getType().name());
+        }));
+    }
+
+    /**
+     * Record a removed link.
+     *
+     * @param linkId link ID
+     */
+    void removeLink(LinkId linkId) {
+        append(record(REMOVE_LINK, out -> {
+            writeBer(out, linkId.getEcgi()::encode);
+            out.writeLong(linkId.getUeId());
+        }));
+    }
+
+    /**
+     * Record an ECGI, CRNTI pair bound to a UE.
+     *
+     * @param pair ECGI, CRNTI pair
+     * @param ueId UE ID
+     */
+    void bindCrnti(EcgiCrntiPair pair, long ueId) {
+        append(record(BIND_CRNTI, out -> {
+            writeBer(out, pair.getKey()::encode);
+            writeBer(out, pair.getValue()::encode);
+            out.writeLong(ueId);
+        }));
+    }
+
+    /**
+     * Record an ECGI, CRNTI pair that was unbound.
+     *
+     * @param pair ECGI, CRNTI pair
+     */
+    void unbindCrnti(EcgiCrntiPair pair) {
+        append(record(UNBIND_CRNTI, out -> {
+            writeBer(out, pair.getKey()::encode);
+            writeBer(out, pair.getValue()::encode);
+        }));
+    }
+
+    /**
+     * Check whether the changes since the last checkpoint have grown enough to compact them.
+     *
+     * @return true if a checkpoint is due
+     */
+    boolean isCheckpointDue() {
+        fileLock.lock();
+        try {
+            return buffer != null && buffer.position() - checkpointEnd > Math.max(MIN_JOURNAL_BYTES, checkpointEnd);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Replace the journal with a checkpoint of the R-NIB. Changes recorded before the checkpoint starts are written
+     * to the replaced journal, and changes recorded meanwhile wait and are appended after it.
+     *
+     * @param writer records the whole R-NIB through the put and bind methods of the journal it is given
+     */
+    void checkpoint(Consumer<RnibJournal> writer) {
+        fileLock.lock();
+        try {
+            if (buffer != null) {
+                writePending();
+                writeCheckpoint(writer);
+            }
+        } finally {
+            fileLock.unlock();
+        }
+        scheduleAppend();
+    }
+
+    private void writeCheckpoint(Consumer<RnibJournal> writer) {
+        FileChannel oldChannel = channel;
+        MappedByteBuffer oldBuffer = buffer;
+        int oldCheckpointEnd = checkpointEnd;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(tmp);
+            channel = FileChannel.open(tmp, CREATE_NEW, READ, WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, MIN_CAPACITY);
+            writeHeader();
+            writer.accept(this);
+            checkpointEnd = buffer.position();
+            buffer.putInt(CHECKPOINT_END_OFFSET, checkpointEnd);
+            buffer.force();
+            Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+            oldChannel.close();
+        } catch (IOException e) {
+            log.warn(ExceptionUtils.getFullStackTrace(e));
+            // keep appending to the previous journal, which still holds every change.
+            if (channel != oldChannel) {
+                closeQuietly(channel);
+            }
+            channel = oldChannel;
+            buffer = oldBuffer;
+            checkpointEnd = oldCheckpointEnd;
+        }
+    }
+
+    /**
+     * Write the changes recorded so far, flush the journal and stop recording changes.
+     */
+    void close() {
+        fileLock.lock();
+        try {
+            if (buffer != null) {
+                writePending();
+                buffer.force();
+                closeQuietly(channel);
+                buffer = null;
+                channel = null;
+            }
+        } finally {
+            fileLock.unlock();
+        }
+        appender.shutdown();
+        try {
+            appender.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue a record for the appender. Records written by a checkpoint go straight to the new journal, since the
+     * checkpoint holds the file.
+     *
+     * @param record encoded record with its header, or null if it could not be encoded
+     */
+    private void append(byte[] record) {
+        if (record == null) {
+            return;
+        }
+        if (fileLock.isHeldByCurrentThread()) {
+            write(record);
+            return;
+        }
+        pending.add(record);
+        scheduleAppend();
+    }
+
+    private void scheduleAppend() {
+        if (!pending.isEmpty() && appendScheduled.compareAndSet(false, true)) {
+            try {
+                appender.execute(this::appendPending);
+            } catch (RejectedExecutionException e) {
+                // closed, the records are dropped as the journal no longer records changes.
+                appendScheduled.set(false);
+            }
+        }
+    }
+
+    private void appendPending() {
+        appendScheduled.set(false);
+        fileLock.lock();
+        try {
+            writePending();
+        } finally {
+            fileLock.unlock();
+        }
+        // records queued after the last poll but before the flag was cleared are picked up here.
+        scheduleAppend();
+    }
+
+    private void writePending() {
+        byte[] record;
+        while ((record = pending.poll()) != null) {
+            write(record);
+        }
+    }
+
+    /**
+     * Write a record after the last one. Must be called holding the file lock.
+     *
+     * @param record encoded record with its header
+     */
+    private void write(byte[] record) {
+        if (buffer == null) {
+            return;
+        }
+
+        try {
+            // the record is followed by a zero length, which ends the journal on replay.
+            int needed = record.length + Integer.BYTES;
+            if (buffer.remaining() < needed) {
+                int position = buffer.position();
+                long capacity = Math.max(2L * buffer.capacity(), (long) position + needed);
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                buffer.position(position);
+            }
+
+            buffer.put(record);
+            buffer.putInt(buffer.position(), 0);
+        } catch (IOException e) {
+            log.warn(ExceptionUtils.getFullStackTrace(e));
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT);
+        buffer.putInt(CHECKPOINT_END_OFFSET, HEADER_BYTES);
+        buffer.putInt(HEADER_BYTES, 0);
+        buffer.position(HEADER_BYTES);
+        checkpointEnd = HEADER_BYTES;
+    }
+
+    /**
+     * Read the record at the position of a buffer and move past it.
+     *
+     * @param records buffer of records
+     * @return payload, or null at the end of the journal or at a torn record, leaving the position there
+     */
+    private static byte[] nextRecord(ByteBuffer records) {
+        int start = records.position();
+        if (records.remaining() < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int length = records.getInt();
+        int checksum = records.getInt();
+        if (length <= 0 || length > records.remaining()) {
+            records.position(start);
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        records.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            records.position(start);
+            return null;
+        }
+        return payload;
+    }
+
+    /**
+     * Encode a record with its header, in the buffers of the calling thread.
+     *
+     * @param type   type of the record
+     * @param writer writes the fields of the record
+     * @return record, or null if it could not be encoded
+     */
+    private static byte[] record(byte type, RecordWriter writer) {
+        Encoder encoder = ENCODERS.get();
+        try {
+            encoder.bytes.reset();
+            // room for the header, filled in once the payload is known.
+            encoder.out.writeLong(0);
+            encoder.out.writeByte(type);
+            writer.write(encoder.out);
+            encoder.out.flush();
+        } catch (IOException | RuntimeException e) {
+            log.warn(ExceptionUtils.getFullStackTrace(e));
+            return null;
+        }
+        return encoder.bytes.toRecord(encoder.crc);
+    }
+
+    private static void writeBer(DataOutputStream out, BerEncoder encoder) throws IOException {
+        if (encoder == null) {
+            out.writeInt(-1);
+            return;
+        }
+        // BER is encoded backwards from the end of the buffer.
+        BerByteArrayOutputStream os = ENCODERS.get().ber;
+        os.reset();
+        encoder.encode(os);
+        int offset = os.index + 1;
+        out.writeInt(os.buffer.length - offset);
+        out.write(os.buffer, offset, os.buffer.length - offset);
+    }
+
+    private static <T> T readBer(DataInputStream in, Supplier<T> factory, BerDecoder<T> decoder)
+            throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] ber = new byte[length];
+        in.readFully(ber);
+        T value = factory.get();
+        decoder.decode(value, new ByteArrayInputStream(ber));
+        return value;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn(ExceptionUtils.getFullStackTrace(e));
+        }
+    }
+
+    /**
+     * Writes the fields of a record.
+     */
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Buffers a thread encodes records in.
+     */
+    private static final class Encoder {
+        private final RecordBytes bytes = new RecordBytes();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final BerByteArrayOutputStream ber = new BerByteArrayOutputStream(BER_BUFFER_SIZE, true);
+        private final CRC32 crc = new CRC32();
+    }
+
+    /**
+     * Bytes of a record, starting with room for its header.
+     */
+    private static final class RecordBytes extends ByteArrayOutputStream {
+        private byte[] toRecord(CRC32 crc) {
+            int length = count - RECORD_HEADER_BYTES;
+            crc.reset();
+            crc.update(buf, RECORD_HEADER_BYTES, length);
+            ByteBuffer.wrap(buf).putInt(length).putInt((int) crc.getValue());
+            return toByteArray();
+        }
+    }
+
+    /**
+     * BER encoding of an ASN.1 value.
+     */
+    @FunctionalInterface
+    private interface BerEncoder {
+        int encode(BerByteArrayOutputStream os) throws IOException;
+    }
+
+    /**
+     * BER decoding into an ASN.1 value.
+     *
+     * @param <T> type of the value
+     */
+    @FunctionalInterface
+    private interface BerDecoder<T> {
+        int decode(T value, InputStream is) throws IOException;
+    }
+
+    /**
+     * R-NIB read back from a journal. Entities are in the order they were first recorded.
+     */
+    static final class State {
+        private final Map<ECGI, RnibCell> cells = Maps.newLinkedHashMap();
+        private final Map<Long, RnibUe> ues = Maps.newLinkedHashMap();
+        private final Map<LinkId, RnibLink.Type> links = Maps.newLinkedHashMap();
+        private final Map<EcgiCrntiPair, Long> crntis = Maps.newLinkedHashMap();
+
+        /**
+         * Get the CELLs.
+         *
+         * @return map of ECGI to CELL
+         */
+        Map<ECGI, RnibCell> getCells() {
+            return cells;
+        }
+
+        /**
+         * Get the UEs, without their CRNTIs.
+         *
+         * @return map of UE ID to UE
+         */
+        Map<Long, RnibUe> getUes() {
+            return ues;
+        }
+
+        /**
+         * Get the links. Links may refer to CELLs or UEs that were removed.
+         *
+         * @return map of link ID to link type
+         */
+        Map<LinkId, RnibLink.Type> getLinks() {
+            return links;
+        }
+
+        /**
+         * Get the bound ECGI, CRNTI pairs.
+         *
+         * @return map of pair to UE ID
+         */
+        Map<EcgiCrntiPair, Long> getCrntis() {
+            return crntis;
+        }
+
+        private void apply(DataInputStream in) throws IOException {
+            byte type = in.readByte();
+            switch (type) {
+                case PUT_CELL: {
+                    RnibCell cell = new RnibCell();
+                    cell.setEcgi(readBer(in, ECGI::new, ECGI::decode));
+                    CellConfigReport conf = readBer(in, CellConfigReport::new, CellConfigReport::decode);
+                    if (conf != null) {
+                        cell.setConf(conf);
+                    }
+                    cells.put(cell.getEcgi(), cell);
+                    break;
+                }
+                case REMOVE_CELL:
+                    cells.remove(readBer(in, ECGI::new, ECGI::decode));
+                    break;
+                case PUT_UE: {
+                    RnibUe ue = new RnibUe();
+                    ue.setId(in.readLong());
+                    ue.setState(RnibUe.State.valueOf(in.readUTF()));
+                    String imsi = in.readUTF();
+                    ENBUES1APID enbS1apId = readBer(in, ENBUES1APID::new, ENBUES1APID::decode);
+                    MMEUES1APID mmeS1apId = readBer(in, MMEUES1APID::new, MMEUES1APID::decode);
+                    ue.setContextIds(new RnibUe.ContextIds(imsi, enbS1apId, mmeS1apId));
+                    ues.put(ue.getId(), ue);
+                    break;
+                }
+                case REMOVE_UE:
+                    ues.remove(in.readLong());
+                    break;
+                case PUT_LINK: {
+                    ECGI ecgi = readBer(in, ECGI::new, ECGI::decode);
+                    long ueId = in.readLong();
+                    links.put(LinkId.valueOf(ecgi, ueId), RnibLink.Type.valueOf(in.readUTF()));
+                    break;
+                }
+                case REMOVE_LINK: {
+                    ECGI ecgi = readBer(in, ECGI::new, ECGI::decode);
+                    links.remove(LinkId.valueOf(ecgi, in.readLong()));
+                    break;
+                }
+                case BIND_CRNTI: {
+                    ECGI ecgi = readBer(in, ECGI::new, ECGI::decode);
+                    CRNTI crnti = readBer(in, CRNTI::new, CRNTI::decode);
+                    long ueId = in.readLong();
+                    // a UE has one pair, so binding it moves the UE from its previous pair.
+                    crntis.values().remove(ueId);
+                    crntis.put(EcgiCrntiPair.valueOf(ecgi, crnti), ueId);
+                    break;
+                }
+                case UNBIND_CRNTI: {
+                    ECGI ecgi = readBer(in, ECGI::new, ECGI::decode);
+                    crntis.remove(EcgiCrntiPair.valueOf(ecgi, readBer(in, CRNTI::new, CRNTI::decode)));
+                    break;
+                }
+                default:
+                    throw new IOException("unknown journal record " + type);
+            }
+        }
+    }
+}
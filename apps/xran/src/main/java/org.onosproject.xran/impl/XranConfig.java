@@ -17,7 +17,10 @@
 package org.onosproject.xran.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
 import org.onlab.packet.IpAddress;
+import org.onosproject.cluster.NodeId;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.net.config.Config;
 import org.onosproject.xran.asn1lib.api.ECGI;
@@ -31,9 +34,14 @@ import javax.xml.bind.DatatypeConverter;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * Xran config.
  */
@@ -67,6 +75,35 @@ public class XranConfig extends Config<ApplicationId> {
 
     private static final String NORTHBOUND_TIMEOUT = "nb_response_timeout_ms";
 
+    private static final String SCTP_STREAMS = "sctp_streams";
+
+    private static final String SCTP_STREAM_MAP = "sctp_stream_map";
+
+    private static final String DISPATCH_WORKERS = "xranc_dispatch_workers";
+
+    private static final String DISPATCH_QUEUE_SIZE = "xranc_dispatch_queue_size";
+
+    private static final String CELL_BALANCE_POLICY = "cell_balance_policy";
+
+    private static final String STORE_EVENT_INTERVAL = "store_event_interval_ms";
+
+    private static final String RESTORE_GRACE = "restore_grace_ms";
+
+    private static final int DEFAULT_SCTP_STREAMS = 4;
+
+    private static final int DEFAULT_DISPATCH_QUEUE_SIZE = 1024;
+
+    public static final int DEFAULT_STORE_EVENT_INTERVAL = 100;
+
+    private static final int DEFAULT_RESTORE_GRACE = 60000;
+
+    // control-plane responses get their own streams, everything else stays on stream 0.
+    private static final Map<String, Integer> DEFAULT_SCTP_STREAM_MAP = ImmutableMap.of(
+            "UEAdmissionResponse", 1,
+            "BearerAdmissionResponse", 2,
+            "HORequest", 3
+    );
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     /**
@@ -188,6 +225,92 @@ public class XranConfig extends Config<ApplicationId> {
         return object.get(NORTHBOUND_TIMEOUT).asInt();
     }
 
+    /**
+     * Get number of SCTP streams to negotiate with each CELL from configuration.
+     *
+     * @return number of inbound and outbound streams
+     */
+    public int getSctpStreams() {
+        JsonNode streams = object.get(SCTP_STREAMS);
+        return streams != null ? streams.asInt() : DEFAULT_SCTP_STREAMS;
+    }
+
+    /**
+     * Get SCTP stream of each outbound PDU from configuration.
+     * PDUs that are not listed are sent on stream 0.
+     *
+     * @return Map of PDU name to SCTP stream
+     */
+    public Map<String, Integer> getSctpStreamMap() {
+        JsonNode streamMapNode = object.get(SCTP_STREAM_MAP);
+        if (streamMapNode == null) {
+            return DEFAULT_SCTP_STREAM_MAP;
+        }
+
+        Map<String, Integer> streamMap = new ConcurrentHashMap<>();
+        streamMapNode.fields().forEachRemaining(entry ->
+                streamMap.put(entry.getKey(), entry.getValue().asInt()));
+        return streamMap;
+    }
+
+    /**
+     * Get number of workers that handle received PDUs from configuration.
+     *
+     * @return number of workers, by default the number of available processors
+     */
+    public int getDispatchWorkers() {
+        JsonNode workers = object.get(DISPATCH_WORKERS);
+        return workers != null ? workers.asInt() : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Get maximum number of received PDUs waiting on each worker from configuration.
+     *
+     * @return queue size
+     */
+    public int getDispatchQueueSize() {
+        JsonNode queueSize = object.get(DISPATCH_QUEUE_SIZE);
+        return queueSize != null ? queueSize.asInt() : DEFAULT_DISPATCH_QUEUE_SIZE;
+    }
+
+    /**
+     * Get interval at which R-NIB changes are delivered to store listeners from configuration.
+     *
+     * @return interval in milliseconds
+     */
+    public int getStoreEventInterval() {
+        JsonNode interval = object.get(STORE_EVENT_INTERVAL);
+        return interval != null ? interval.asInt() : DEFAULT_STORE_EVENT_INTERVAL;
+    }
+
+    /**
+     * Get grace time for CELLs restored from the journal to reconnect from configuration.
+     *
+     * @return time in milliseconds
+     */
+    public int getRestoreGrace() {
+        JsonNode grace = object.get(RESTORE_GRACE);
+        return grace != null ? grace.asInt() : DEFAULT_RESTORE_GRACE;
+    }
+
+    /**
+     * Get policy that decides which controller instance accepts the association of each CELL from configuration.
+     *
+     * @return policy, by default {@link CellBalancePolicy#FIRST}
+     */
+    public CellBalancePolicy getCellBalancePolicy() {
+        JsonNode policy = object.get(CELL_BALANCE_POLICY);
+        if (policy == null) {
+            return CellBalancePolicy.FIRST;
+        }
+        try {
+            return CellBalancePolicy.valueOf(policy.asText().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("unknown cell balance policy {}; using {}", policy.asText(), CellBalancePolicy.FIRST);
+            return CellBalancePolicy.FIRST;
+        }
+    }
+
     /**
      * Get ECGI from HEX representation of PLMN_ID and ECI.
      *
@@ -215,4 +338,36 @@ public class XranConfig extends Config<ApplicationId> {
 
         return ecgi;
     }
+
+    /**
+     * Policy that decides which controller instance accepts the association of each CELL.
+     */
+    public enum CellBalancePolicy {
+        /**
+         * The first instance the CELL connects to owns it until the association is lost.
+         */
+        FIRST,
+        /**
+         * Each CELL is only accepted by the active instance chosen for it by rendezvous hashing.
+         */
+        HASH;
+
+        /**
+         * Get the instance that should terminate the association of a CELL under this policy.
+         *
+         * @param cell        CELL URI
+         * @param activeNodes active instances of the cluster
+         * @return node ID, or empty if any instance may
+         */
+        public Optional<NodeId> preferredNode(String cell, Collection<NodeId> activeNodes) {
+            if (this != HASH) {
+                return Optional.empty();
+            }
+            // rendezvous hashing: adding or removing an instance only moves the cells it gains or loses.
+            return activeNodes.stream()
+                    .max(Comparator.comparingInt((NodeId id) ->
+                            Hashing.murmur3_32().hashString(cell + id.id(), UTF_8).asInt())
+                            .thenComparing(NodeId::id));
+        }
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.onosproject.xran.asn1lib.pdu.XrancPdu;
+import org.onosproject.xran.asn1lib.pdu.XrancPduBody;
+import org.onosproject.xran.asn1lib.pdu.XrancPduHdr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PDU whose header is decoded and whose body is kept encoded until it is first accessed.
+ * The encoded body holds a reference to the received buffer, so {@link #release()} has to be called once the PDU
+ * has been handled.
+ */
+public class LazyXrancPdu extends XrancPdu {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(LazyXrancPdu.class);
+
+    private transient ByteBuf encodedBody;
+
+    /**
+     * Create a PDU from its decoded header and its encoded body.
+     *
+     * @param hdr         decoded header
+     * @param encodedBody BER encoded body, including the tag of the CHOICE alternative
+     */
+    LazyXrancPdu(XrancPduHdr hdr, ByteBuf encodedBody) {
+        setHdr(hdr);
+        this.encodedBody = encodedBody;
+    }
+
+    /**
+     * Get the body, decoding it on first access.
+     *
+     * @return decoded body, or null if it could not be decoded
+     */
+    @Override
+    public synchronized XrancPduBody getBody() {
+        if (encodedBody != null) {
+            XrancPduBody body = new XrancPduBody();
+            try (InputStream inputStream = new ByteBufInputStream(encodedBody)) {
+                body.decode(inputStream, null);
+                setBody(body);
+            } catch (IOException e) {
+                log.warn(ExceptionUtils.getFullStackTrace(e));
+            } finally {
+                release();
+            }
+        }
+        return super.getBody();
+    }
+
+    /**
+     * Release the encoded body if it was never decoded.
+     */
+    public synchronized void release() {
+        if (encodedBody != null) {
+            encodedBody.release();
+            encodedBody = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        getBody();
+        return super.toString();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import com.sun.nio.sctp.Association;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.sctp.SctpChannel;
+import io.netty.channel.sctp.SctpMessage;
+
+/**
+ * Moves outbound messages to stream 0 when the CELL negotiated fewer streams than the stream map uses.
+ */
+@Sharable
+class SctpStreamLimiter extends ChannelOutboundHandlerAdapter {
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof SctpMessage) {
+            SctpMessage message = (SctpMessage) msg;
+            Association association = ((SctpChannel) ctx.channel()).association();
+            if (association != null && message.streamIdentifier() >= association.maxOutboundStreams()) {
+                msg = new SctpMessage(message.protocolIdentifier(), 0, message.isUnordered(), message.content());
+            }
+        }
+        ctx.write(msg, promise);
+    }
+}
@@ -16,24 +16,34 @@
 
 package org.onosproject.xran.impl.controller;
 
+import com.google.common.collect.Maps;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.sctp.SctpMessage;
+import io.netty.util.ReferenceCountUtil;
 import org.apache.commons.lang.exception.ExceptionUtils;
+import org.onosproject.xran.XranPduType;
 import org.onosproject.xran.asn1lib.ber.BerByteArrayOutputStream;
+import org.onosproject.xran.asn1lib.ber.BerLength;
+import org.onosproject.xran.asn1lib.ber.BerTag;
 import org.onosproject.xran.asn1lib.pdu.XrancPdu;
+import org.onosproject.xran.asn1lib.pdu.XrancPduHdr;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Xran channel handler.
@@ -44,6 +54,18 @@ public class XranChannelHandler extends ChannelInboundHandlerAdapter {
     private static final Logger log =
             LoggerFactory.getLogger(XranChannelHandler.class);
 
+    private static final int ENCODE_BUFFER_SIZE = 4096;
+
+    // largest scratch buffer a thread keeps after an encode; a larger one is dropped for a new default sized one.
+    private static final int MAX_ENCODE_BUFFER_SIZE = 64 * 1024;
+
+    // scratch stream for BER encoding, grown on demand and reused by each thread.
+    private static final ThreadLocal<BerByteArrayOutputStream> ENCODE_STREAM =
+            ThreadLocal.withInitial(() -> new BerByteArrayOutputStream(ENCODE_BUFFER_SIZE, true));
+
+    // SCTP stream of each outbound PDU, indexed by API ID.
+    private static volatile int[] streamMap = new int[XranPduType.values().length];
+
     private final XranServer xranServer;
 
     XranChannelHandler(XranServer xranServer) {
@@ -54,24 +76,110 @@ public class XranChannelHandler extends ChannelInboundHandlerAdapter {
      * Given PDU construct an SCTP message.
      *
      * @param pdu PDU packet
-     * @return SCTP message
-     * @throws IOException IO exception
+     * @return SCTP message, or empty if the PDU could not be encoded and must not be sent
      */
-    public static SctpMessage getSctpMessage(XrancPdu pdu)  {
-        BerByteArrayOutputStream os = new BerByteArrayOutputStream(4096);
-
+    public static Optional<SctpMessage> getSctpMessage(XrancPdu pdu) {
+        ByteBuf buf;
         try {
-            pdu.encode(os);
+            buf = encodePdu(pdu, PooledByteBufAllocator.DEFAULT);
         } catch (IOException e) {
-          log.warn(ExceptionUtils.getFullStackTrace(e));
+            log.warn(ExceptionUtils.getFullStackTrace(e));
+            return Optional.empty();
         }
 
         log.debug("Sending message: {}", pdu);
-        final ByteBuf buf = Unpooled.buffer(os.getArray().length);
-        for (int i = 0; i < buf.capacity(); i++) {
-            buf.writeByte(os.getArray()[i]);
+        return Optional.of(new SctpMessage(0, streamOf(pdu), buf));
+    }
+
+    /**
+     * Set the SCTP stream that each outbound PDU is sent on.
+     *
+     * @param streams    number of streams negotiated with the CELLs
+     * @param pduStreams Map of PDU name to SCTP stream
+     */
+    static void setStreamMap(int streams, Map<String, Integer> pduStreams) {
+        int[] map = new int[XranPduType.values().length];
+        pduStreams.forEach((name, stream) -> {
+            Optional<XranPduType> type = XranPduType.fromPduName(name);
+            if (!type.isPresent()) {
+                log.warn("Unknown PDU {} in SCTP stream map", name);
+            } else if (stream < 0 || stream >= streams) {
+                log.warn("SCTP stream {} of {} is out of range, sending on stream 0", stream, name);
+            } else {
+                map[type.get().apiId()] = stream;
+            }
+        });
+        streamMap = map;
+    }
+
+    /**
+     * Get the SCTP stream of a PDU based on its API ID.
+     *
+     * @param pdu PDU packet
+     * @return SCTP stream identifier
+     */
+    static int streamOf(XrancPdu pdu) {
+        int apiId = pdu.getHdr().getApiId().intValue();
+        int[] map = streamMap;
+        return apiId >= 0 && apiId < map.length ? map[apiId] : 0;
+    }
+
+    /**
+     * Encode a PDU into a direct buffer of exactly the encoded size.
+     *
+     * @param pdu   PDU packet
+     * @param alloc allocator for the returned buffer
+     * @return buffer holding the BER encoded PDU
+     * @throws IOException if the PDU could not be encoded
+     */
+    public static ByteBuf encodePdu(XrancPdu pdu, ByteBufAllocator alloc) throws IOException {
+        BerByteArrayOutputStream os = ENCODE_STREAM.get();
+        os.reset();
+
+        try {
+            int length = pdu.encode(os);
+
+            ByteBuf buf = alloc.directBuffer(length, length);
+            buf.writeBytes(os.getByteBuffer());
+            return buf;
+        } finally {
+            if (os.buffer.length > MAX_ENCODE_BUFFER_SIZE) {
+                ENCODE_STREAM.remove();
+            }
+        }
+    }
+
+    /**
+     * Encode a PDU once and send it to all the given channels.
+     *
+     * @param pdu     PDU packet
+     * @param targets channels to send the PDU to, keyed by target
+     * @param <K>     type of the target key
+     * @return write future for each target
+     */
+    public static <K> Map<K, ChannelFuture> multicast(XrancPdu pdu, Map<K, ChannelHandlerContext> targets) {
+        Map<K, ChannelFuture> futures = Maps.newLinkedHashMap();
+        if (targets.isEmpty()) {
+            return futures;
         }
-        return new SctpMessage(0, 0, buf);
+
+        ByteBuf buf;
+        try {
+            buf = encodePdu(pdu, PooledByteBufAllocator.DEFAULT);
+        } catch (IOException e) {
+            log.warn(ExceptionUtils.getFullStackTrace(e));
+            return futures;
+        }
+
+        log.debug("Sending message to {} targets: {}", targets.size(), pdu);
+        int stream = streamOf(pdu);
+        try {
+            targets.forEach((target, ctx) -> futures.put(target,
+                    ctx.writeAndFlush(new SctpMessage(0, stream, buf.retainedDuplicate()))));
+        } finally {
+            buf.release();
+        }
+        return futures;
     }
 
     @Override
@@ -92,21 +200,61 @@ public class XranChannelHandler extends ChannelInboundHandlerAdapter {
         xranServer.deviceAgent.addConnectedCell(host, ctx);
     }
 
-    @Override
-    public void channelRead(ChannelHandlerContext ctx, Object msg) throws IOException, InterruptedException {
-        SctpMessage sctpMessage = (SctpMessage) msg;
-        ByteBuf byteBuf = sctpMessage.content();
+    /**
+     * Decode the header of a PDU and keep its body encoded.
+     * The body is a retained slice of the received buffer, released once it is decoded or dropped.
+     *
+     * @param buf buffer holding the BER encoded PDU; its reader index is advanced past the PDU
+     * @return PDU with a decoded header
+     * @throws IOException if the buffer does not hold a valid PDU
+     */
+    public static LazyXrancPdu decodeHeader(ByteBuf buf) throws IOException {
+        XrancPduHdr hdr = new XrancPduHdr();
+        BerLength length = new BerLength();
+        try (InputStream inputStream = new ByteBufInputStream(buf)) {
+            BerTag berTag = new BerTag();
+            XrancPdu.tag.decodeAndCheck(inputStream);
+            length.decode(inputStream);
+
+            berTag.decode(inputStream);
+            if (!berTag.equals(BerTag.CONTEXT_CLASS, BerTag.CONSTRUCTED, 0)) {
+                throw new IOException("Tag does not match the mandatory sequence element tag.");
+            }
+            hdr.decode(inputStream, false);
 
-        byte[] bytes = new byte[byteBuf.readableBytes()];
-        byteBuf.readBytes(bytes);
+            berTag.decode(inputStream);
+            if (!berTag.equals(BerTag.CONTEXT_CLASS, BerTag.CONSTRUCTED, 1)) {
+                throw new IOException("Tag does not match the mandatory sequence element tag.");
+            }
+            length.decode(inputStream);
+        }
 
-        XrancPdu recvPdu = new XrancPdu();
+        // indefinite length is only possible as the last element, so the body is the rest of the buffer.
+        int bodyLength = length.val < 0 ? buf.readableBytes() : length.val;
+        if (bodyLength > buf.readableBytes()) {
+            throw new IOException("Body length " + bodyLength + " exceeds the received " +
+                    buf.readableBytes() + " bytes");
+        }
+        return new LazyXrancPdu(hdr, buf.readRetainedSlice(bodyLength));
+    }
 
-        InputStream inputStream = new ByteArrayInputStream(bytes);
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws IOException {
+        SctpMessage sctpMessage = (SctpMessage) msg;
+        try {
+            LazyXrancPdu recvPdu = decodeHeader(sctpMessage.content());
 
-        recvPdu.decode(inputStream);
+            // the body is only decoded if a handler asks for it, and never if nobody handles this API ID.
+            if (!xranServer.packetAgent.isHandled(recvPdu.getHdr().getApiId().intValue())) {
+                recvPdu.release();
+                return;
+            }
 
-        xranServer.packetAgent.handlePacket(recvPdu, ctx);
+            // handle on the worker of this CELL so a slow handler does not stall the event loop.
+            xranServer.dispatcher.dispatch(recvPdu, ctx, xranServer.packetAgent);
+        } finally {
+            ReferenceCountUtil.release(sctpMessage);
+        }
     }
 
     @Override
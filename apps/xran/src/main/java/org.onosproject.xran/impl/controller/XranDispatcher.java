@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import com.google.common.collect.Sets;
+import io.netty.channel.ChannelHandlerContext;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.onosproject.xran.XranPacketProcessor;
+import org.onosproject.xran.XranPduType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Runs packet handlers on a pool of workers instead of the Netty I/O threads.
+ * Each CELL association is pinned to one single-threaded worker, so the PDUs of a CELL, and therefore of each of
+ * its UEs, are handled in the order they were received while different CELLs are handled in parallel.
+ * A full worker drops what it receives, except the PDUs that complete a handover, for which it holds the channel
+ * back instead.
+ */
+public class XranDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(XranDispatcher.class);
+
+    // PDUs that complete a handover, which leaves the UE between two CELLs if lost.
+    private static final Set<XranPduType> CRITICAL =
+            Sets.immutableEnumSet(XranPduType.HO_COMPLETE, XranPduType.UE_CONTEXT_UPDATE);
+
+    private final ThreadPoolExecutor[] workers;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Create a dispatcher.
+     *
+     * @param workers   number of workers
+     * @param queueSize maximum number of PDUs waiting on each worker
+     */
+    public XranDispatcher(int workers, int queueSize) {
+        checkArgument(workers > 0, "number of workers must be positive");
+        checkArgument(queueSize > 0, "queue size must be positive");
+
+        this.workers = new ThreadPoolExecutor[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueSize),
+                    groupedThreads("onos/xran", "dispatch-" + i, log));
+        }
+    }
+
+    /**
+     * Hand a received PDU to the worker of the channel it was received on.
+     * The PDU is dropped if that worker's queue is full, unless it completes a handover: then the channel stops
+     * reading and the caller waits for room on the worker, which resumes reading once the PDU is handled.
+     * Either way the PDU is released once it is done with.
+     *
+     * @param pdu       received PDU
+     * @param ctx       channel the PDU was received on
+     * @param processor packet processor to run on the worker
+     * @return true if the PDU was queued
+     */
+    public boolean dispatch(LazyXrancPdu pdu, ChannelHandlerContext ctx, XranPacketProcessor processor) {
+        ThreadPoolExecutor worker = workers[Math.floorMod(ctx.channel().hashCode(), workers.length)];
+        try {
+            worker.execute(handler(pdu, ctx, processor, false));
+            return true;
+        } catch (RejectedExecutionException e) {
+            boolean critical = XranPduType.fromApiId(pdu.getHdr().getApiId().intValue())
+                    .map(CRITICAL::contains).orElse(false);
+            if (critical && !worker.isShutdown()) {
+                return enqueue(worker, pdu, ctx, processor);
+            }
+            drop(pdu, ctx);
+            return false;
+        }
+    }
+
+    // waits for room on a full worker while the channel is not read from. The worker is running, so it takes the
+    // PDU from its queue like any other.
+    private boolean enqueue(ThreadPoolExecutor worker, LazyXrancPdu pdu, ChannelHandlerContext ctx,
+                            XranPacketProcessor processor) {
+        ctx.channel().config().setAutoRead(false);
+        try {
+            worker.getQueue().put(handler(pdu, ctx, processor, true));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ctx.channel().config().setAutoRead(true);
+            drop(pdu, ctx);
+            return false;
+        }
+    }
+
+    private Runnable handler(LazyXrancPdu pdu, ChannelHandlerContext ctx, XranPacketProcessor processor,
+                             boolean resumeRead) {
+        return () -> {
+            try {
+                processor.handlePacket(pdu, ctx);
+            } catch (InterruptedException e) {
+                log.warn(ExceptionUtils.getFullStackTrace(e));
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn(ExceptionUtils.getFullStackTrace(e));
+            } finally {
+                pdu.release();
+                if (resumeRead) {
+                    ctx.channel().config().setAutoRead(true);
+                }
+            }
+        };
+    }
+
+    private void drop(LazyXrancPdu pdu, ChannelHandlerContext ctx) {
+        pdu.release();
+        long count = dropped.incrementAndGet();
+        log.warn("Dropped PDU with API ID {} from {}, worker queue is full ({} dropped so far)",
+                pdu.getHdr().getApiId(), ctx.channel().remoteAddress(), count);
+    }
+
+    /**
+     * Get the number of PDUs waiting on all workers.
+     *
+     * @return queued PDUs
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor worker : workers) {
+            depth += worker.getQueue().size();
+        }
+        return depth;
+    }
+
+    /**
+     * Get the number of PDUs dropped because a worker queue was full.
+     *
+     * @return dropped PDUs
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stop all workers after the queued PDUs have been handled.
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
@@ -16,9 +16,13 @@
 
 package org.onosproject.xran.impl.controller;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.sctp.SctpMessage;
+import io.netty.util.HashedWheelTimer;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -27,6 +31,9 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
 import org.onlab.packet.IpAddress;
+import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.cluster.NodeId;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
 import org.onosproject.net.config.Config;
@@ -47,13 +54,14 @@ import org.onosproject.xran.XranDeviceListener;
 import org.onosproject.xran.XranHostAgent;
 import org.onosproject.xran.XranHostListener;
 import org.onosproject.xran.XranPacketProcessor;
+import org.onosproject.xran.XranPduHandler;
+import org.onosproject.xran.XranPduType;
 import org.onosproject.xran.XranService;
 import org.onosproject.xran.XranStore;
+import org.onosproject.xran.XranStoreListener;
 import org.onosproject.xran.asn1lib.api.CRNTI;
 import org.onosproject.xran.asn1lib.api.ECGI;
-import org.onosproject.xran.asn1lib.api.ERABID;
 import org.onosproject.xran.asn1lib.api.ERABParams;
-import org.onosproject.xran.asn1lib.api.ERABParamsItem;
 import org.onosproject.xran.asn1lib.api.Hysteresis;
 import org.onosproject.xran.asn1lib.api.MeasID;
 import org.onosproject.xran.asn1lib.api.MeasObject;
@@ -70,7 +78,6 @@ import org.onosproject.xran.asn1lib.ber.types.BerEnum;
 import org.onosproject.xran.asn1lib.ber.types.BerInteger;
 import org.onosproject.xran.asn1lib.pdu.BearerAdmissionRequest;
 import org.onosproject.xran.asn1lib.pdu.BearerAdmissionResponse;
-import org.onosproject.xran.asn1lib.pdu.BearerAdmissionStatus;
 import org.onosproject.xran.asn1lib.pdu.BearerReleaseInd;
 import org.onosproject.xran.asn1lib.pdu.CellConfigReport;
 import org.onosproject.xran.asn1lib.pdu.CellConfigRequest;
@@ -101,6 +108,7 @@ import org.onosproject.xran.asn1lib.pdu.UEReconfigInd;
 import org.onosproject.xran.asn1lib.pdu.UEReleaseInd;
 import org.onosproject.xran.asn1lib.pdu.XrancPdu;
 import org.onosproject.xran.impl.XranConfig;
+import org.onosproject.xran.impl.entities.QciValues;
 import org.onosproject.xran.impl.entities.RnibCell;
 import org.onosproject.xran.impl.entities.RnibLink;
 import org.onosproject.xran.impl.entities.RnibUe;
@@ -111,23 +119,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.net.DeviceId.deviceId;
 import static org.onosproject.xran.impl.controller.XranChannelHandler.getSctpMessage;
+import static org.onosproject.xran.impl.controller.XranChannelHandler.multicast;
 import static org.onosproject.xran.impl.entities.RnibCell.decodeDeviceId;
 import static org.onosproject.xran.impl.entities.RnibCell.uri;
 import static org.onosproject.xran.impl.entities.RnibUe.hostIdtoUEId;
@@ -153,6 +162,8 @@ public class XranManager implements XranService {
     protected XranConfig xranConfig;
     protected ApplicationId appId;
     protected int northboundTimeout;
+    protected XranConfig.CellBalancePolicy cellBalancePolicy = XranConfig.CellBalancePolicy.FIRST;
+    protected volatile int storeEventInterval = XranConfig.DEFAULT_STORE_EVENT_INTERVAL;
 
     /* Services */
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
@@ -173,6 +184,9 @@ public class XranManager implements XranService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected XranStore xranStore;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ClusterService clusterService;
+
     protected ConfigFactory<ApplicationId, XranConfig> xranConfigFactory =
             new ConfigFactory<ApplicationId, XranConfig>(
                     SubjectFactories.APP_SUBJECT_FACTORY, CONFIG_CLASS, "xran") {
@@ -190,19 +204,31 @@ public class XranManager implements XranService {
     // Map used to keep messages in pairs (HO Complete - CTX Update, Adm Status - CTX Update)
     protected ConcurrentMap<EcgiCrntiPair, ContextUpdateHandler> contextUpdateMap = new ConcurrentHashMap<>();
 
-    /* QUEUE */
-    protected BlockingQueue<Long> ueIdQueue = new LinkedBlockingQueue<>();
+    /* RECONCILIATION */
+    protected XranReconciler reconciler;
+
+    /* TIMER */
+    // single timer for idle UE removal and stale link expiry; arming or cancelling a timeout is O(1).
+    protected HashedWheelTimer timer;
+
+    // UE ID of the ongoing handover from each source ECGI, resolved when the handover completes or fails.
+    protected ConcurrentMap<ECGI, Long> pendingHandovers = new ConcurrentHashMap<>();
 
     /* AGENTS */
     protected InternalXranDeviceAgent deviceAgent = new InternalXranDeviceAgent();
     protected InternalXranHostAgent hostAgent = new InternalXranHostAgent();
     protected InternalXranPacketAgent packetAgent = new InternalXranPacketAgent();
 
+    /* HANDLERS */
+    protected final XranPduHandlerRegistry pduHandlers = new XranPduHandlerRegistry();
+
     /* LISTENERS */
     protected Set<XranDeviceListener> xranDeviceListeners = new CopyOnWriteArraySet<>();
     protected Set<XranHostListener> xranHostListeners = new CopyOnWriteArraySet<>();
     protected InternalDeviceListener deviceListener = new InternalDeviceListener();
     protected InternalHostListener hostListener = new InternalHostListener();
+    protected final XranStoreEventBatcher storeEvents = new XranStoreEventBatcher();
+    protected ScheduledExecutorService storeEventExecutor;
 
     @Activate
     public void activate() {
@@ -213,7 +239,14 @@ public class XranManager implements XranService {
         deviceService.addListener(deviceListener);
         hostService.addListener(hostListener);
 
+        timer = new HashedWheelTimer(groupedThreads("onos/xran", "timer", log), 10, TimeUnit.MILLISECONDS);
         xranStore.setController(this);
+        xranStore.setDelegate(storeEvents);
+        storeEventExecutor = Executors.newSingleThreadScheduledExecutor(
+                groupedThreads("onos/xran", "store-events", log));
+        scheduleStoreEvents();
+        reconciler = new XranReconciler(xranStore);
+        packetAgent.registerHandlers(pduHandlers);
 
         log.info("XRAN XranServer v5 Started");
     }
@@ -224,8 +257,12 @@ public class XranManager implements XranService {
         hostService.removeListener(hostListener);
         configService.removeListener(configListener);
         registry.unregisterConfigFactory(xranConfigFactory);
+        xranStore.unsetDelegate(storeEvents);
+        storeEventExecutor.shutdownNow();
 
         cleanup();
+        // stopped once the server is, so that no handler arms a timeout on a stopped timer.
+        timer.stop();
 
         log.info("XRAN XranServer v5 Stopped");
     }
@@ -239,16 +276,20 @@ public class XranManager implements XranService {
         xranStore.getCellNodes().forEach(cell -> xranDeviceListeners
                 .forEach(l -> l.deviceRemoved(deviceId(uri(cell.getEcgi())))));
 
+        // keep the R-NIB for the next start, before closing the associations removes their CELLs from it.
+        xranStore.closeJournal();
         xranServer.stop();
+        reconciler.stop();
 
         legitCells.clear();
         hoMap.clear();
         rrmCellMap.clear();
         scellAddMap.clear();
         contextUpdateMap.clear();
-        ueIdQueue.clear();
+        pendingHandovers.clear();
         xranDeviceListeners.clear();
         xranHostListeners.clear();
+        pduHandlers.clear();
     }
 
     @Override
@@ -256,9 +297,6 @@ public class XranManager implements XranService {
         ECGI ecgiT = linkT.getLinkId().getEcgi(),
                 ecgiS = linkS.getLinkId().getEcgi();
 
-        Optional<ChannelHandlerContext> ctxT = xranStore.getCtx(ecgiT),
-                ctxS = xranStore.getCtx(ecgiS);
-
         return xranStore.getCrnti(linkT.getLinkId().getUeId()).map(crnti -> {
             SynchronousQueue<String> queue = new SynchronousQueue<>();
 
@@ -266,21 +304,32 @@ public class XranManager implements XranService {
 
             // temporary map that has ECGI source of a handoff to a queue waiting for REST response.
             hoMap.put(ecgiS, queue);
+            pendingHandovers.put(ecgiS, linkT.getLinkId().getUeId());
 
-            ctxT.ifPresent(ctx -> ctx.writeAndFlush(getSctpMessage(xrancPdu)));
-            ctxS.ifPresent(ctx -> ctx.writeAndFlush(getSctpMessage(xrancPdu)));
-
-            // FIXME: only works for one HO at a time.
-            try {
-                ueIdQueue.put(linkT.getLinkId().getUeId());
-            } catch (InterruptedException e) {
-                log.error(ExceptionUtils.getFullStackTrace(e));
-            }
+            sendToCells(xrancPdu, Lists.newArrayList(ecgiT, ecgiS)).forEach((ecgi, future) ->
+                    future.addListener(f -> {
+                        if (!f.isSuccess()) {
+                            log.warn("Could not send HORequest to {}: {}", ecgi, f.cause());
+                        }
+                    }));
 
             return Optional.of(queue);
         }).orElse(Optional.empty());
     }
 
+    /**
+     * Send the same PDU to several cells, encoding it only once.
+     *
+     * @param pdu   PDU packet
+     * @param ecgis ECGIs of the target cells
+     * @return write future for each cell with an active channel
+     */
+    protected Map<ECGI, ChannelFuture> sendToCells(XrancPdu pdu, Collection<ECGI> ecgis) {
+        Map<ECGI, ChannelHandlerContext> targets = Maps.newLinkedHashMap();
+        ecgis.forEach(ecgi -> xranStore.getCtx(ecgi).ifPresent(ctx -> targets.put(ecgi, ctx)));
+        return multicast(pdu, targets);
+    }
+
     @Override
     public void addListener(XranDeviceListener listener) {
         xranDeviceListeners.add(listener);
@@ -291,6 +340,16 @@ public class XranManager implements XranService {
         xranHostListeners.add(listener);
     }
 
+    @Override
+    public void addListener(XranStoreListener listener) {
+        storeEvents.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(XranStoreListener listener) {
+        storeEvents.removeListener(listener);
+    }
+
     @Override
     public void removeListener(XranDeviceListener listener) {
         xranDeviceListeners.remove(listener);
@@ -301,6 +360,56 @@ public class XranManager implements XranService {
         xranHostListeners.remove(listener);
     }
 
+    @Override
+    public void addPduHandler(XranPduType type, XranPduHandler handler) {
+        pduHandlers.addHandler(type, handler);
+    }
+
+    @Override
+    public void removePduHandler(XranPduType type, XranPduHandler handler) {
+        pduHandlers.removeHandler(type, handler);
+    }
+
+    @Override
+    public long getUnhandledPdus() {
+        return pduHandlers.getUnhandled();
+    }
+
+    @Override
+    public long getPduInvocations(XranPduType type) {
+        return pduHandlers.getInvocations(type);
+    }
+
+    @Override
+    public long getPduHandlingNanos(XranPduType type) {
+        return pduHandlers.getNanos(type);
+    }
+
+    @Override
+    public long getPduFailures(XranPduType type) {
+        return pduHandlers.getFailures(type);
+    }
+
+    @Override
+    public boolean relinquishCell(ECGI ecgi, NodeId master) {
+        // a CELL that is not balanced to the new master could reconnect here or nowhere, so it is kept.
+        if (master == null || master.equals(clusterService.getLocalNode().id()) ||
+                !deviceAgent.preferredNode(ecgi).map(master::equals).orElse(false)) {
+            return false;
+        }
+        return xranStore.getCtx(ecgi).map(ctx -> {
+            log.info("Cell {} is balanced to its new master {}; closing its association", ecgi, master);
+            // the association is cleaned up by removeConnectedCell once the channel is inactive.
+            ctx.close();
+            return true;
+        }).orElse(false);
+    }
+
+    @Override
+    public int getReconciliationQueueDepth() {
+        return reconciler.getQueueDepth();
+    }
+
     @Override
     public int getNorthboundTimeout() {
         return northboundTimeout;
@@ -315,7 +424,7 @@ public class XranManager implements XranService {
         return optionalCtx.flatMap(ctx -> {
             XrancPdu pdu;
             pdu = RRMConfig.constructPacket(rrmConfig);
-            ctx.writeAndFlush(getSctpMessage(pdu));
+            getSctpMessage(pdu).ifPresent(ctx::writeAndFlush);
             SynchronousQueue<String> queue = new SynchronousQueue<>();
             rrmCellMap.put(ecgi, queue);
             return Optional.of(queue);
@@ -345,7 +454,7 @@ public class XranManager implements XranService {
                                             XrancPdu pdu = ScellAdd
                                                     .constructPacket(primaryEcgi, crnti, propScell);
 
-                                            ctx.writeAndFlush(getSctpMessage(pdu));
+                                            getSctpMessage(pdu).ifPresent(ctx::writeAndFlush);
                                             queue = new SynchronousQueue<>();
                                             scellAddMap.put(crnti, queue);
 
@@ -375,8 +484,8 @@ public class XranManager implements XranService {
                         // check if crnti for UE exists
                         return xranStore.getCrnti(link.getLinkId().getUeId()).map(crnti -> {
                             XrancPdu pdu = ScellDelete.constructPacket(primaryEcgi, crnti, pciarfcn);
-                            ctx.writeAndFlush(getSctpMessage(pdu));
-                            link.setType(RnibLink.Type.NON_SERVING);
+                            getSctpMessage(pdu).ifPresent(ctx::writeAndFlush);
+                            xranStore.modifyLinkType(link, RnibLink.Type.NON_SERVING);
                             return true;
                         }).orElse(false);
                     }).orElse(false)
@@ -390,10 +499,8 @@ public class XranManager implements XranService {
      * @param ue UE entity
      */
     private void restartTimer(RnibUe ue) {
-        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-        ue.setExecutor(executor);
-        executor.schedule(
-                () -> {
+        ue.setTimer(timer.newTimeout(
+                timeout -> {
                     if (ue.getState().equals(RnibUe.State.IDLE)) {
                         hostAgent.removeConnectedHost(ue);
                         log.info("UE is removed after {} ms of IDLE", xranConfig.getIdleUeRemoval());
@@ -403,7 +510,71 @@ public class XranManager implements XranService {
                 },
                 xranConfig.getIdleUeRemoval(),
                 TimeUnit.MILLISECONDS
-        );
+        ));
+    }
+
+    /**
+     * Arm the timers of the CELLs, UEs and links restored from the journal, once timers can be armed.
+     * IDLE UEs and non serving links expire like any other; CELLs, ACTIVE UEs and serving links are removed after
+     * a grace time unless their CELL reconnected to this instance by then.
+     */
+    private void expireRestored() {
+        int grace = xranConfig.getRestoreGrace();
+        xranStore.getUeNodes().forEach(ue -> {
+            if (ue.getState().equals(RnibUe.State.IDLE)) {
+                restartTimer(ue);
+                return;
+            }
+            ue.setTimer(timer.newTimeout(
+                    timeout -> {
+                        if (!xranStore.getPrimaryCell(ue).flatMap(cell -> xranStore.getCtx(cell.getEcgi()))
+                                .isPresent()) {
+                            hostAgent.removeConnectedHost(ue);
+                            log.info("Restored UE is removed after its CELL did not reconnect for {} ms", grace);
+                        }
+                    },
+                    grace,
+                    TimeUnit.MILLISECONDS
+            ));
+        });
+        xranStore.getLinks().forEach(link -> {
+            if (link.getType().equals(RnibLink.Type.NON_SERVING)) {
+                restartTimer(link);
+                return;
+            }
+            link.setTimer(timer.newTimeout(
+                    timeout -> {
+                        if (!xranStore.getCtx(link.getLinkId().getEcgi()).isPresent()) {
+                            xranStore.removeLink(link.getLinkId());
+                            log.info("Restored link is removed after its CELL did not reconnect for {} ms", grace);
+                        }
+                    },
+                    grace,
+                    TimeUnit.MILLISECONDS
+            ));
+        });
+        xranStore.getCellNodes().forEach(cell -> timer.newTimeout(
+                timeout -> {
+                    ECGI ecgi = cell.getEcgi();
+                    if (!xranStore.getCtx(ecgi).isPresent() && xranStore.getCell(ecgi).orElse(null) == cell) {
+                        xranStore.removeCell(ecgi);
+                        xranStore.releaseCell(ecgi);
+                        log.info("Restored CELL {} is removed after it did not reconnect for {} ms", ecgi, grace);
+                    }
+                },
+                grace,
+                TimeUnit.MILLISECONDS
+        ));
+    }
+
+    /**
+     * Deliver the pending R-NIB changes after the configured interval, and again after every delivery.
+     */
+    private void scheduleStoreEvents() {
+        storeEventExecutor.schedule(() -> {
+            storeEvents.flush();
+            scheduleStoreEvents();
+        }, storeEventInterval, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -412,10 +583,8 @@ public class XranManager implements XranService {
      * @param link LINK entity
      */
     private void restartTimer(RnibLink link) {
-        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-        link.setExecutor(executor);
-        executor.schedule(
-                () -> {
+        link.setTimer(timer.newTimeout(
+                timeout -> {
                     LinkId linkId = link.getLinkId();
                     xranStore.removeLink(linkId);
                     log.info("Link is removed after not receiving Meas Reports for {} ms",
@@ -423,7 +592,7 @@ public class XranManager implements XranService {
                 },
                 xranConfig.getNoMeasLinkRemoval(),
                 TimeUnit.MILLISECONDS
-        );
+        ));
     }
 
     /**
@@ -492,13 +661,60 @@ public class XranManager implements XranService {
                     measIds,
                     xranConfig.getRxSignalInterval()
             );
-            ue.setMeasConfig(xrancPdu.getBody().getRRCMeasConfig());
-            ctx.writeAndFlush(getSctpMessage(xrancPdu));
+            xranStore.modifyUe(ue, u -> u.setMeasConfig(xrancPdu.getBody().getRRCMeasConfig()));
+            getSctpMessage(xrancPdu).ifPresent(ctx::writeAndFlush);
         });
     }
 
-    public void panic(XrancPdu recvPdu) {
-        throw new IllegalArgumentException("Received illegal packet: " + recvPdu.toString());
+    /**
+     * Request the configuration of a CELL until it is reported, then configure its measurements.
+     *
+     * @param cell   CELL entity
+     * @param outbox PDUs to send in this round
+     * @return true once the CELL is configured or gone
+     */
+    private boolean reconcileCell(RnibCell cell, Multimap<ECGI, XrancPdu> outbox) {
+        ECGI ecgi = cell.getEcgi();
+        if (!xranStore.getCell(ecgi).isPresent()) {
+            return true;
+        }
+
+        // populate config if it does not exist
+        if (!cell.getOptConf().isPresent()) {
+            outbox.put(ecgi, CellConfigRequest.constructPacket(ecgi));
+            return false;
+        }
+
+        // iterate through all UEs
+        xranStore.getUeNodes().forEach(ue -> xranStore.getPrimaryCell(ue)
+                .ifPresent(primaryCell -> populateMeasConfig(primaryCell, ue)));
+
+        // send l2 meas interval
+        XrancPdu xrancPdu = L2MeasConfig.constructPacket(ecgi, xranConfig.getL2MeasInterval());
+        xranStore.modifyCell(cell, c -> c.getMeasConfig().setL2MeasConfig(xrancPdu.getBody().getL2MeasConfig()));
+        outbox.put(ecgi, xrancPdu);
+        return true;
+    }
+
+    /**
+     * Request the capabilities of a UE from its primary CELL until they are reported.
+     *
+     * @param ue     UE entity
+     * @param outbox PDUs to send in this round
+     * @return true once the capabilities are known, cannot be requested or the UE is gone
+     */
+    private boolean reconcileUe(RnibUe ue, Multimap<ECGI, XrancPdu> outbox) {
+        if (!xranStore.getUe(ue.getId()).isPresent()) {
+            return true;
+        }
+
+        return xranStore.getPrimaryCell(ue).map(cell -> {
+            if (cell.getVersion() < 3 || ue.getCapability() != null) {
+                return true;
+            }
+            outbox.put(cell.getEcgi(), UECapabilityEnquiry.constructPacket(cell.getEcgi(), ue.getCrnti()));
+            return false;
+        }).orElse(true);
     }
 
     /**
@@ -513,41 +729,9 @@ public class XranManager implements XranService {
                 case DEVICE_ADDED: {
                     try {
                         ECGI ecgi = decodeDeviceId(event.subject().id());
-                        // move this to a routine service
-                        xranStore.getCell(ecgi).ifPresent(cell -> {
-                            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-                            executor.scheduleAtFixedRate(
-                                    () -> {
-                                        // populate config if it does not exist
-                                        if (!cell.getOptConf().isPresent()) {
-                                            // if channel context is present then send the config request
-                                            xranStore.getCtx(ecgi).ifPresent(ctx -> {
-                                                XrancPdu xrancPdu = CellConfigRequest.constructPacket(ecgi);
-                                                ctx.writeAndFlush(getSctpMessage(xrancPdu));
-                                            });
-                                        } else {
-                                            // iterate through all UEs
-                                            xranStore.getUeNodes().forEach(ue -> xranStore.getPrimaryCell(ue)
-                                                    .ifPresent(primaryCell -> populateMeasConfig(primaryCell, ue)));
-
-                                            // send l2 meas interval
-                                            xranStore.getCtx(ecgi).ifPresent(ctx -> {
-                                                XrancPdu xrancPdu = L2MeasConfig
-                                                        .constructPacket(ecgi, xranConfig.getL2MeasInterval());
-                                                cell.getMeasConfig().setL2MeasConfig(xrancPdu.getBody()
-                                                        .getL2MeasConfig());
-                                                SctpMessage sctpMessage = getSctpMessage(xrancPdu);
-                                                ctx.writeAndFlush(sctpMessage);
-
-                                                executor.shutdown();
-                                            });
-                                        }
-                                    },
-                                    0,
-                                    xranConfig.getConfigRequestInterval(),
-                                    TimeUnit.SECONDS
-                            );
-                        });
+                        xranStore.getCell(ecgi).ifPresent(cell -> reconciler.submit(ecgi,
+                                outbox -> reconcileCell(cell, outbox),
+                                TimeUnit.SECONDS.toMillis(xranConfig.getConfigRequestInterval())));
                     } catch (IOException e) {
                         log.error(ExceptionUtils.getFullStackTrace(e));
                     }
@@ -573,32 +757,11 @@ public class XranManager implements XranService {
                 case HOST_MOVED: {
                     xranStore.getUe(hostIdtoUEId(event.subject().id())).ifPresent(ue -> xranStore.getPrimaryCell(ue)
                             .ifPresent(cell -> {
-                                ue.setMeasConfig(null);
-
-                                // move this to a routine service
-                                ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-                                executor.scheduleAtFixedRate(
-                                        () -> {
-                                            if (cell.getVersion() >= 3) {
-                                                if (!Optional.ofNullable(ue.getCapability()).isPresent()) {
-                                                    xranStore.getCtx(cell.getEcgi()).ifPresent(ctx -> {
-                                                        XrancPdu xrancPdu = UECapabilityEnquiry.constructPacket(
-                                                                cell.getEcgi(),
-                                                                ue.getCrnti());
-                                                        ctx.writeAndFlush(getSctpMessage(xrancPdu));
-                                                    });
-                                                } else {
-                                                    executor.shutdown();
-                                                }
-                                            } else {
-                                                executor.shutdown();
-                                            }
-
-                                        },
-                                        0,
-                                        xranConfig.getConfigRequestInterval(),
-                                        TimeUnit.MILLISECONDS
-                                );
+                                xranStore.modifyUe(ue, u -> u.setMeasConfig(null));
+
+                                reconciler.submit(ue.getId(),
+                                        outbox -> reconcileUe(ue, outbox),
+                                        TimeUnit.SECONDS.toMillis(xranConfig.getConfigRequestInterval()));
                                 if (ue.getMeasConfig() == null) {
                                     populateMeasConfig(cell, ue);
                                 }
@@ -625,10 +788,29 @@ public class XranManager implements XranService {
             // check configuration if the cell is inside the accepted list
             return Optional.ofNullable(legitCells.get(IpAddress.valueOf(host))).map(ecgi -> {
                 log.info("Device exists in configuration; registering...");
-                // check if cell is not already registered
-                if (!xranStore.getCell(ecgi).isPresent()) {
-                    RnibCell storeCell = new RnibCell();
-                    storeCell.setEcgi(ecgi);
+                // check if cell is not already registered; a CELL restored from the journal has no association yet
+                Optional<RnibCell> restored = xranStore.getCell(ecgi);
+                if (!restored.isPresent() || !xranStore.getCtx(ecgi).isPresent()) {
+                    // XRAN has no redirect, so the association is refused and the CELL has to connect elsewhere.
+                    NodeId localNodeId = clusterService.getLocalNode().id();
+                    Optional<NodeId> preferred = preferredNode(ecgi);
+                    if (preferred.isPresent() && !preferred.get().equals(localNodeId)) {
+                        log.warn("Cell {} is balanced to {}; refusing association", ecgi, preferred.get());
+                        ctx.close();
+                        return false;
+                    }
+                    if (!xranStore.claimCell(ecgi)) {
+                        log.warn("Cell {} is owned by {}; refusing association", ecgi,
+                                xranStore.getCellOwner(ecgi).orElse(null));
+                        ctx.close();
+                        return false;
+                    }
+                    // a restored CELL keeps its R-NIB, which the cell config request on device added reconciles.
+                    RnibCell storeCell = restored.orElseGet(() -> {
+                        RnibCell cell = new RnibCell();
+                        cell.setEcgi(ecgi);
+                        return cell;
+                    });
                     xranStore.storeCtx(storeCell, ctx);
                     xranDeviceListeners.forEach(l -> l.deviceAdded(storeCell));
                     return true;
@@ -642,17 +824,35 @@ public class XranManager implements XranService {
             );
         }
 
+        /**
+         * Get the instance that should terminate the association of a CELL under the balance policy.
+         *
+         * @param ecgi CELL ECGI
+         * @return node ID, or empty if any instance may
+         */
+        private Optional<NodeId> preferredNode(ECGI ecgi) {
+            return cellBalancePolicy.preferredNode(uri(ecgi).toString(), clusterService.getNodes().stream()
+                    .map(ControllerNode::id)
+                    .filter(id -> clusterService.getState(id).isActive())
+                    .collect(Collectors.toList()));
+        }
+
         @Override
         public boolean removeConnectedCell(String host) {
             log.info("removeConnectedCell: {}", host);
             ECGI ecgi = legitCells.get(IpAddress.valueOf(host));
+            if (ecgi != null) {
+                reconciler.cancel(ecgi);
+            }
 
             xranStore.getLinks(ecgi).forEach(rnibLink -> {
-                rnibLink.getLinkId().getUe().setState(RnibUe.State.IDLE);
+                xranStore.modifyUe(rnibLink.getLinkId().getUe(), ue -> ue.setState(RnibUe.State.IDLE));
                 restartTimer(rnibLink.getLinkId().getUe());
+                rnibLink.setTimer(null);
                 xranStore.removeLink(rnibLink.getLinkId());
             });
 
+            xranStore.releaseCell(ecgi);
             if (xranStore.removeCell(ecgi)) {
                 xranDeviceListeners.forEach(l -> l.deviceRemoved(deviceId(uri(ecgi))));
                 return true;
@@ -697,7 +897,12 @@ public class XranManager implements XranService {
         @Override
         public boolean removeConnectedHost(RnibUe ue) {
             log.info("removeConnectedHost: {}", ue);
-            xranStore.getLinks(ue.getId()).forEach(rnibLink -> xranStore.removeLink(rnibLink.getLinkId()));
+            ue.setTimer(null);
+            reconciler.cancel(ue.getId());
+            xranStore.getLinks(ue.getId()).forEach(rnibLink -> {
+                rnibLink.setTimer(null);
+                xranStore.removeLink(rnibLink.getLinkId());
+            });
             if (xranStore.removeUe(ue.getId())) {
                 xranHostListeners.forEach(l -> l.hostRemoved(ue.getHostId()));
                 return true;
@@ -710,188 +915,65 @@ public class XranManager implements XranService {
         @Override
         public void handlePacket(XrancPdu recvPdu, ChannelHandlerContext ctx)
                 throws IOException, InterruptedException {
-            int apiID = recvPdu.getHdr().getApiId().intValue();
             log.debug("Received message: {}", recvPdu);
-            switch (apiID) {
-                // Cell Config Report
-                case 1: {
-                    CellConfigReport report = recvPdu.getBody().getCellConfigReport();
-                    handleCellconfigreport(report, recvPdu.getHdr().getVer().toString());
-                    break;
-                }
-                // UE Admission Request
-                case 2: {
-                    UEAdmissionRequest ueAdmissionRequest = recvPdu.getBody().getUEAdmissionRequest();
-                    handleUeadmissionRequest(ueAdmissionRequest, ctx);
-                    break;
-                }
-                // UE Admission Status
-                case 4: {
-                    UEAdmissionStatus ueAdmissionStatus = recvPdu.getBody().getUEAdmissionStatus();
-                    handleAdmissionStatus(ueAdmissionStatus, ctx);
-                    break;
-                }
-                // UE Context Update
-                case 5: {
-                    UEContextUpdate ueContextUpdate = recvPdu.getBody().getUEContextUpdate();
-                    handleUeContextUpdate(ueContextUpdate, ctx);
-                    break;
-                }
-                // UE Reconfig Ind
-                case 6: {
-                    UEReconfigInd ueReconfigInd = recvPdu.getBody().getUEReconfigInd();
-                    handleUeReconfigInd(ueReconfigInd);
-                    break;
-                }
-                // UE Release Ind
-                case 7: {
-                    // If xRANc wants to deactivate UE, we pass UEReleaseInd from xRANc to eNB.
-                    UEReleaseInd ueReleaseInd = recvPdu.getBody().getUEReleaseInd();
-                    handleUeReleaseInd(ueReleaseInd);
-                    break;
-                }
-                // Bearer Admission Request
-                case 8: {
-                    BearerAdmissionRequest bearerAdmissionRequest = recvPdu.getBody().getBearerAdmissionRequest();
-                    handleBearerAdmissionRequest(bearerAdmissionRequest, ctx);
-                    break;
-                }
-                // Bearer Admission Status
-                case 10: {
-                    BearerAdmissionStatus bearerAdmissionStatus = recvPdu.getBody().getBearerAdmissionStatus();
-                    // TODO: implement
-                    break;
-                }
-                // Bearer Release Ind
-                case 11: {
-                    BearerReleaseInd bearerReleaseInd = recvPdu.getBody().getBearerReleaseInd();
-                    handleBearerReleaseInd(bearerReleaseInd);
-                    break;
-                }
-                // HO Failure
-                case 13: {
-                    HOFailure hoFailure = recvPdu.getBody().getHOFailure();
-                    handleHoFailure(hoFailure);
-                    break;
-                }
-                // HO Complete
-                case 14: {
-                    HOComplete hoComplete = recvPdu.getBody().getHOComplete();
-                    handleHoComplete(hoComplete, ctx);
-                    break;
-                }
-                // RX Sig Meas Report
-                case 15: {
-                    RXSigMeasReport rxSigMeasReport = recvPdu.getBody().getRXSigMeasReport();
-                    handleRxSigMeasReport(rxSigMeasReport);
-                    break;
-                }
-                // Radio Meas Report per UE
-                case 17: {
-                    RadioMeasReportPerUE radioMeasReportPerUE = recvPdu.getBody().getRadioMeasReportPerUE();
-                    handleRadioMeasReportPerUe(radioMeasReportPerUE);
-                    break;
-                }
-                // Radio Meas Report per Cell
-                case 18: {
-                    RadioMeasReportPerCell radioMeasReportPerCell = recvPdu.getBody().getRadioMeasReportPerCell();
-                    handleRadioMeasReportPerCell(radioMeasReportPerCell);
-                    break;
-                }
-                // Sched Meas Report per UE
-                case 19: {
-                    SchedMeasReportPerUE schedMeasReportPerUE = recvPdu.getBody().getSchedMeasReportPerUE();
-                    handleSchedMeasReportPerUe(schedMeasReportPerUE);
-                    break;
-                }
-                // Sched Meas Report per Cell
-                case 20: {
-                    SchedMeasReportPerCell schedMeasReportPerCell = recvPdu.getBody().getSchedMeasReportPerCell();
-                    handleSchedMeasReportPerCell(schedMeasReportPerCell);
-                    break;
-                }
-                // PDCP Meas Report per UE
-                case 21: {
-                    PDCPMeasReportPerUe pdcpMeasReportPerUe = recvPdu.getBody().getPDCPMeasReportPerUe();
-                    handlePdcpMeasReportPerUe(pdcpMeasReportPerUe);
-                    break;
-                }
-                // UE Capability Enquiry
-                case 22: {
-                    UECapabilityEnquiry ueCapabilityEnquiry = recvPdu.getBody().getUECapabilityEnquiry();
-                    handleUecapabilityenquiry(ueCapabilityEnquiry, ctx);
-                    break;
-                }
-                // UE Capability Info
-                case 23: {
-                    UECapabilityInfo capabilityInfo = recvPdu.getBody().getUECapabilityInfo();
-                    handleCapabilityInfo(capabilityInfo);
-                    break;
-                }
-                // Scell Add Status
-                case 25: {
-                    ScellAddStatus scellAddStatus = recvPdu.getBody().getScellAddStatus();
-                    handleScellAddStatus(scellAddStatus);
-                    break;
-                }
-                // RRM Config Status
-                case 28: {
-                    // Decode RRMConfig Status
-                    RRMConfigStatus rrmConfigStatus = recvPdu.getBody().getRRMConfigStatus();
-                    handleRrmConfigStatus(rrmConfigStatus);
-                    break;
-                }
-                // SeNB Add
-                case 29: {
-                    // TODO: implement
-                    break;
-                }
-                // SeNB Add Status
-                case 30: {
-                    // TODO: implement
-                    break;
-                }
-                // SeNB Delete
-                case 31: {
-                    // TODO: implement
-                    break;
-                }
-                // Traffic Split Config
-                case 32: {
-                    TrafficSplitConfig trafficSplitConfig = recvPdu.getBody().getTrafficSplitConfig();
-                    handleTrafficSplitConfig(trafficSplitConfig);
-                    break;
-                }
-                // HO Cause
-                case 33: {
-                    // TODO: implement
-                    break;
-                }
-                case 34: {
-                    // TODO: implement
-                    break;
-                }
-                // Cell Config Request
-                case 0:
-                    // UE Admission Response
-                case 3:
-                    // Bearer Admission Response
-                case 9:
-                    // HO Request
-                case 12:
-                    // L2 Meas Config
-                case 16:
-                    // Scell Add
-                case 24:
-                    // Scell Delete
-                case 26:
-                    // RRM Config
-                case 27:
-                default: {
-                    panic(recvPdu);
-                }
-            }
+            pduHandlers.handle(recvPdu, ctx);
+        }
 
+        @Override
+        public boolean isHandled(int apiId) {
+            return pduHandlers.accept(apiId);
+        }
+
+        /**
+         * Register the handlers of the PDUs sent by the eNodeBs.
+         * PDUs without a handler (downlink-only PDUs, SeNB*, HOCause, etc.) are counted and dropped.
+         *
+         * @param registry handler registry
+         */
+        private void registerHandlers(XranPduHandlerRegistry registry) {
+            registry.addHandler(XranPduType.CELL_CONFIG_REPORT, (pdu, ctx) ->
+                    handleCellconfigreport(pdu.getBody().getCellConfigReport(), pdu.getHdr().getVer().toString()));
+            registry.addHandler(XranPduType.UE_ADMISSION_REQUEST, (pdu, ctx) ->
+                    handleUeadmissionRequest(pdu.getBody().getUEAdmissionRequest(), ctx));
+            registry.addHandler(XranPduType.UE_ADMISSION_STATUS, (pdu, ctx) ->
+                    handleAdmissionStatus(pdu.getBody().getUEAdmissionStatus(), ctx));
+            registry.addHandler(XranPduType.UE_CONTEXT_UPDATE, (pdu, ctx) ->
+                    handleUeContextUpdate(pdu.getBody().getUEContextUpdate(), ctx));
+            registry.addHandler(XranPduType.UE_RECONFIG_IND, (pdu, ctx) ->
+                    handleUeReconfigInd(pdu.getBody().getUEReconfigInd()));
+            // If xRANc wants to deactivate UE, we pass UEReleaseInd from xRANc to eNB.
+            registry.addHandler(XranPduType.UE_RELEASE_IND, (pdu, ctx) ->
+                    handleUeReleaseInd(pdu.getBody().getUEReleaseInd()));
+            registry.addHandler(XranPduType.BEARER_ADMISSION_REQUEST, (pdu, ctx) ->
+                    handleBearerAdmissionRequest(pdu.getBody().getBearerAdmissionRequest(), ctx));
+            registry.addHandler(XranPduType.BEARER_RELEASE_IND, (pdu, ctx) ->
+                    handleBearerReleaseInd(pdu.getBody().getBearerReleaseInd()));
+            registry.addHandler(XranPduType.HO_FAILURE, (pdu, ctx) ->
+                    handleHoFailure(pdu.getBody().getHOFailure()));
+            registry.addHandler(XranPduType.HO_COMPLETE, (pdu, ctx) ->
+                    handleHoComplete(pdu.getBody().getHOComplete(), ctx));
+            registry.addHandler(XranPduType.RX_SIG_MEAS_REPORT, (pdu, ctx) ->
+                    handleRxSigMeasReport(pdu.getBody().getRXSigMeasReport()));
+            registry.addHandler(XranPduType.RADIO_MEAS_REPORT_PER_UE, (pdu, ctx) ->
+                    handleRadioMeasReportPerUe(pdu.getBody().getRadioMeasReportPerUE()));
+            registry.addHandler(XranPduType.RADIO_MEAS_REPORT_PER_CELL, (pdu, ctx) ->
+                    handleRadioMeasReportPerCell(pdu.getBody().getRadioMeasReportPerCell()));
+            registry.addHandler(XranPduType.SCHED_MEAS_REPORT_PER_UE, (pdu, ctx) ->
+                    handleSchedMeasReportPerUe(pdu.getBody().getSchedMeasReportPerUE()));
+            registry.addHandler(XranPduType.SCHED_MEAS_REPORT_PER_CELL, (pdu, ctx) ->
+                    handleSchedMeasReportPerCell(pdu.getBody().getSchedMeasReportPerCell()));
+            registry.addHandler(XranPduType.PDCP_MEAS_REPORT_PER_UE, (pdu, ctx) ->
+                    handlePdcpMeasReportPerUe(pdu.getBody().getPDCPMeasReportPerUe()));
+            registry.addHandler(XranPduType.UE_CAPABILITY_ENQUIRY, (pdu, ctx) ->
+                    handleUecapabilityenquiry(pdu.getBody().getUECapabilityEnquiry(), ctx));
+            registry.addHandler(XranPduType.UE_CAPABILITY_INFO, (pdu, ctx) ->
+                    handleCapabilityInfo(pdu.getBody().getUECapabilityInfo()));
+            registry.addHandler(XranPduType.SCELL_ADD_STATUS, (pdu, ctx) ->
+                    handleScellAddStatus(pdu.getBody().getScellAddStatus()));
+            registry.addHandler(XranPduType.RRM_CONFIG_STATUS, (pdu, ctx) ->
+                    handleRrmConfigStatus(pdu.getBody().getRRMConfigStatus()));
+            registry.addHandler(XranPduType.TRAFFIC_SPLIT_CONFIG, (pdu, ctx) ->
+                    handleTrafficSplitConfig(pdu.getBody().getTrafficSplitConfig()));
         }
 
         /**
@@ -904,8 +986,10 @@ public class XranManager implements XranService {
             ECGI ecgi = report.getEcgi();
 
             xranStore.getCell(ecgi).ifPresent(cell -> {
-                cell.setVersion(version);
-                cell.setConf(report);
+                xranStore.modifyCell(cell, c -> {
+                    c.setVersion(version);
+                    c.setConf(report);
+                });
                 xranStore.storePciArfcn(cell);
             });
         }
@@ -924,7 +1008,7 @@ public class XranManager implements XranService {
             xranStore.getCell(ecgi).map(c -> {
                 CRNTI crnti = ueAdmissionRequest.getCrnti();
                 XrancPdu sendPdu = UEAdmissionResponse.constructPacket(ecgi, crnti, xranConfig.admissionFlag());
-                ctx.writeAndFlush(getSctpMessage(sendPdu));
+                getSctpMessage(sendPdu).ifPresent(ctx::writeAndFlush);
                 return 1;
             }).orElseGet(() -> {
                 log.warn("Could not find ECGI in registered cells: {}", ecgi);
@@ -941,9 +1025,9 @@ public class XranManager implements XranService {
         private void handleAdmissionStatus(UEAdmissionStatus ueAdmissionStatus, ChannelHandlerContext ctx) {
             xranStore.getUe(ueAdmissionStatus.getEcgi(), ueAdmissionStatus.getCrnti()).ifPresent(ue -> {
                 if (ueAdmissionStatus.getAdmEstStatus().value.intValue() == 0) {
-                    ue.setState(RnibUe.State.ACTIVE);
+                    xranStore.modifyUe(ue, u -> u.setState(RnibUe.State.ACTIVE));
                 } else {
-                    ue.setState(RnibUe.State.IDLE);
+                    xranStore.modifyUe(ue, u -> u.setState(RnibUe.State.IDLE));
                 }
             });
 
@@ -955,7 +1039,7 @@ public class XranManager implements XranService {
                         v = new ContextUpdateHandler();
                     }
                     if (v.setAdmissionStatus(ueAdmissionStatus)) {
-                        handlePairedPackets(v.getContextUpdate(), ctx, false);
+                        handlePairedPackets(v.getContextUpdate(), ctx, null);
                         v.reset();
                     }
                     return v;
@@ -979,15 +1063,9 @@ public class XranManager implements XranService {
                 }
                 if (v.setContextUpdate(ueContextUpdate)) {
                     HOComplete hoComplete = v.getHoComplete();
-                    handlePairedPackets(ueContextUpdate, ctx, hoComplete != null);
+                    handlePairedPackets(ueContextUpdate, ctx, hoComplete);
                     if (hoComplete != null) {
-                        try {
-                            hoMap.get(hoComplete.getEcgiS()).put("Hand Over Completed");
-                        } catch (InterruptedException e) {
-                            log.error(ExceptionUtils.getFullStackTrace(e));
-                        } finally {
-                            hoMap.remove(hoComplete.getEcgiS());
-                        }
+                        completeHandover(hoComplete.getEcgiS(), "Hand Over Completed");
                     }
                     v.reset();
                 }
@@ -1004,10 +1082,8 @@ public class XranManager implements XranService {
             Optional<RnibUe> ue = xranStore.getUe(ueReconfigInd.getEcgi(), ueReconfigInd.getCrntiOld());
             Optional<RnibCell> cell = xranStore.getCell(ueReconfigInd.getEcgi());
 
-            if (ue.isPresent() && cell.isPresent()) {
-                ue.get().setCrnti(ueReconfigInd.getCrntiNew());
-                xranStore.storeCrnti(cell.get(), ue.get());
-            } else {
+            if (!ue.isPresent() || !cell.isPresent() || !xranStore.rebindCrnti(ue.get(), ueReconfigInd.getEcgi(),
+                    ueReconfigInd.getCrntiOld(), ueReconfigInd.getCrntiNew())) {
                 log.warn("Could not find UE with this CRNTI: {}", ueReconfigInd.getCrntiOld());
             }
         }
@@ -1022,16 +1098,14 @@ public class XranManager implements XranService {
             CRNTI crnti = ueReleaseInd.getCrnti();
 
             // Check if there is an ongoing handoff and only remove if ue is not part of the handoff.
-            Long peek = ueIdQueue.peek();
-            if (peek != null) {
-                EcgiCrntiPair ecgiCrntiPair = xranStore.getCrnti().inverse().get(peek);
-                if (ecgiCrntiPair != null && ecgiCrntiPair.equals(EcgiCrntiPair.valueOf(ecgi, crnti))) {
-                    return;
-                }
+            EcgiCrntiPair released = EcgiCrntiPair.valueOf(ecgi, crnti);
+            if (pendingHandovers.values().stream()
+                    .anyMatch(ueId -> released.equals(xranStore.getCrnti().getKey(ueId)))) {
+                return;
             }
 
             xranStore.getUe(ecgi, crnti).ifPresent(ue -> {
-                ue.setState(RnibUe.State.IDLE);
+                xranStore.modifyUe(ue, u -> u.setState(RnibUe.State.IDLE));
                 restartTimer(ue);
             });
         }
@@ -1047,13 +1121,14 @@ public class XranManager implements XranService {
             ECGI ecgi = bearerAdmissionRequest.getEcgi();
             CRNTI crnti = bearerAdmissionRequest.getCrnti();
             ERABParams erabParams = bearerAdmissionRequest.getErabParams();
-            xranStore.getLink(ecgi, crnti).ifPresent(link -> link.setBearerParameters(erabParams));
+            xranStore.getLink(ecgi, crnti).ifPresent(link -> xranStore.modifyLink(link,
+                    l -> l.setBearerParameters(erabParams)));
 
             BerInteger numErabs = bearerAdmissionRequest.getNumErabs();
             // Encode and send Bearer Admission Response
             XrancPdu sendPdu = BearerAdmissionResponse
                     .constructPacket(ecgi, crnti, erabParams, numErabs, xranConfig.bearerFlag());
-            ctx.writeAndFlush(getSctpMessage(sendPdu));
+            getSctpMessage(sendPdu).ifPresent(ctx::writeAndFlush);
         }
 
         /**
@@ -1065,37 +1140,31 @@ public class XranManager implements XranService {
             ECGI ecgi = bearerReleaseInd.getEcgi();
             CRNTI crnti = bearerReleaseInd.getCrnti();
 
-            xranStore.getLink(ecgi, crnti).ifPresent(link -> {
-                List<ERABID> erabidsRelease = bearerReleaseInd.getErabIds().getERABID();
-                List<ERABParamsItem> erabParamsItem = link.getBearerParameters().getERABParamsItem();
-
-                List<ERABParamsItem> unreleased = erabParamsItem
-                        .stream()
-                        .filter(item -> {
-                            Optional<ERABID> any = erabidsRelease.stream()
-                                    .filter(id -> id.equals(item.getId())).findAny();
-                            return !any.isPresent();
-                        }).collect(Collectors.toList());
-                link.getBearerParameters().getERABParamsItem().clear();
-                link.getBearerParameters().getERABParamsItem().addAll(new ArrayList<>(unreleased));
-            });
+            xranStore.getLink(ecgi, crnti).ifPresent(link -> xranStore.modifyLink(link,
+                    l -> l.releaseBearers(bearerReleaseInd.getErabIds().getERABID())));
         }
 
         /**
          * Handle HOFailure.
          *
          * @param hoFailure HOFailure
-         * @throws InterruptedException ueIdQueue interruption
          */
-        private void handleHoFailure(HOFailure hoFailure) throws InterruptedException {
-            try {
-                hoMap.get(hoFailure.getEcgi())
-                        .put("Hand Over Failed with cause: " + hoFailure.getCause());
-            } catch (InterruptedException e) {
-                log.error(ExceptionUtils.getFullStackTrace(e));
-            } finally {
-                hoMap.remove(hoFailure.getEcgi());
-                ueIdQueue.take();
+        private void handleHoFailure(HOFailure hoFailure) {
+            pendingHandovers.remove(hoFailure.getEcgi());
+            completeHandover(hoFailure.getEcgi(), "Hand Over Failed with cause: " + hoFailure.getCause());
+        }
+
+        /**
+         * Hand the result of a handover to the REST request waiting for it. Does not wait, so a request that
+         * already timed out does not hold the dispatcher worker.
+         *
+         * @param ecgiS  source ECGI of the handover
+         * @param result result to report
+         */
+        private void completeHandover(ECGI ecgiS, String result) {
+            SynchronousQueue<String> queue = hoMap.remove(ecgiS);
+            if (queue == null || !queue.offer(result)) {
+                log.warn("No request is waiting for the handover from {}: {}", ecgiS, result);
             }
         }
 
@@ -1113,15 +1182,8 @@ public class XranManager implements XranService {
                     v = new ContextUpdateHandler();
                 }
                 if (v.setHoComplete(hoComplete)) {
-                    handlePairedPackets(v.getContextUpdate(), ctx, true);
-
-                    try {
-                        hoMap.get(hoComplete.getEcgiS()).put("Hand Over Completed");
-                    } catch (InterruptedException e) {
-                        log.error(ExceptionUtils.getFullStackTrace(e));
-                    } finally {
-                        hoMap.remove(hoComplete.getEcgiS());
-                    }
+                    handlePairedPackets(v.getContextUpdate(), ctx, hoComplete);
+                    completeHandover(hoComplete.getEcgiS(), "Hand Over Completed");
                     v.reset();
                 }
                 return v;
@@ -1187,29 +1249,35 @@ public class XranManager implements XranService {
                         .ifPresent(cell -> xranStore.getLink(cell.getEcgi(), ueId)
                                 .ifPresent(link -> {
                                             RadioRepPerServCell.CqiHist cqiHist = servCell.getCqiHist();
-                                            final double[] values = {0, 0, 0};
+                                            // the i-th bin counts the reports of CQI i, from 1. values holds
+                                            // the mode, its count, the CQI weighted sum and the total count.
+                                            final double[] values = {0, 0, 0, 0};
                                             final int[] i = {1};
                                             cqiHist.getBerInteger().forEach(value -> {
-                                                        values[0] = Math.max(values[0], value.intValue());
-                                                        values[1] += i[0] * value.intValue();
-                                                        values[2] += value.intValue();
+                                                        if (value.intValue() > values[1]) {
+                                                            values[0] = i[0];
+                                                            values[1] = value.intValue();
+                                                        }
+                                                        values[2] += i[0] * value.intValue();
+                                                        values[3] += value.intValue();
                                                         i[0]++;
                                                     }
                                             );
 
-                                            link.getMeasurements().setRadioReport(
+                                            xranStore.modifyLinkMeasurements(link, m -> m.setRadioReport(
                                                     new RnibLink.Measurements.RadioReport(
                                                             new RnibLink.Measurements.RadioReport.Cqi(
                                                                     cqiHist,
                                                                     values[0],
-                                                                    values[1] / values[0]
+                                                                    values[3] == 0 ? Double.NaN :
+                                                                            values[2] / values[3]
                                                             ),
                                                             servCell.getRiHist(),
                                                             servCell.getPucchSinrHist(),
                                                             servCell.getPuschSinrHist()
 
                                                     )
-                                            );
+                                            ));
                                         }
                                 )
                         )
@@ -1224,12 +1292,12 @@ public class XranManager implements XranService {
          */
         private void handleRadioMeasReportPerCell(RadioMeasReportPerCell radioMeasReportPerCell) {
             xranStore.getCell(radioMeasReportPerCell.getEcgi()).ifPresent(
-                    cell -> cell.getMeasurements().setUlInterferenceMeasurement(
+                    cell -> xranStore.modifyCellMeasurements(cell, m -> m.setUlInterferenceMeasurement(
                             new RnibCell.Measurements.ULInterferenceMeasurement(
                                     radioMeasReportPerCell.getPuschIntfPowerHist(),
                                     radioMeasReportPerCell.getPucchIntfPowerHist()
                             )
-                    )
+                    ))
             );
         }
 
@@ -1247,27 +1315,29 @@ public class XranManager implements XranService {
 
                 servCells.forEach(servCell -> xranStore.getCell(servCell.getEcgi())
                         .ifPresent(cell -> xranStore.getLink(cell.getEcgi(), ueId)
-                                .ifPresent(link -> link.getMeasurements().setSchedMeasReport(
+                                .ifPresent(link -> xranStore.modifyLinkMeasurements(link, m -> m.setSchedMeasReport(
                                         new RnibLink.Measurements.SchedMeasReport(
-                                                servCell.getQciVals(),
+                                                QciValues.of(servCell.getQciVals().getQCI()),
                                                 new RnibLink.Measurements.SchedMeasReport.ResourceUsage(
-                                                        servCell.getPrbUsage().getPrbUsageDl(),
-                                                        servCell.getPrbUsage().getPrbUsageUl()
+                                                        QciValues.of(servCell.getPrbUsage().getPrbUsageDl()
+                                                                .getBerInteger()),
+                                                        QciValues.of(servCell.getPrbUsage().getPrbUsageUl()
+                                                                .getBerInteger())
                                                 ),
                                                 new RnibLink.Measurements.SchedMeasReport.Mcs(
-                                                        servCell.getMcsDl(),
-                                                        servCell.getMcsUl()
+                                                        QciValues.of(servCell.getMcsDl().getBerInteger()),
+                                                        QciValues.of(servCell.getMcsUl().getBerInteger())
                                                 ),
                                                 new RnibLink.Measurements.SchedMeasReport.NumSchedTtis(
-                                                        servCell.getNumSchedTtisDl(),
-                                                        servCell.getNumSchedTtisUl()
+                                                        QciValues.of(servCell.getNumSchedTtisDl().getBerInteger()),
+                                                        QciValues.of(servCell.getNumSchedTtisUl().getBerInteger())
                                                 ),
                                                 new RnibLink.Measurements.SchedMeasReport.DlRankStats(
-                                                        servCell.getRankDl1(),
-                                                        servCell.getRankDl2()
+                                                        QciValues.of(servCell.getRankDl1().getBerInteger()),
+                                                        QciValues.of(servCell.getRankDl2().getBerInteger())
                                                 )
                                         )
-                                )
+                                ))
                                 )
                         )
                 );
@@ -1280,13 +1350,14 @@ public class XranManager implements XranService {
          * @param schedMeasReportPerCell SchedMeasReportPerCell
          */
         private void handleSchedMeasReportPerCell(SchedMeasReportPerCell schedMeasReportPerCell) {
-            xranStore.getCell(schedMeasReportPerCell.getEcgi()).ifPresent(cell -> cell.getMeasurements().setPrbUsage(
-                    new RnibCell.Measurements.PrbUsage(
-                            schedMeasReportPerCell.getQciVals(),
-                            schedMeasReportPerCell.getPrbUsagePcell(),
-                            schedMeasReportPerCell.getPrbUsageScell()
-                    )
-            ));
+            xranStore.getCell(schedMeasReportPerCell.getEcgi()).ifPresent(cell -> xranStore.modifyCellMeasurements(
+                    cell, m -> m.setPrbUsage(
+                            new RnibCell.Measurements.PrbUsage(
+                                    schedMeasReportPerCell.getQciVals(),
+                                    schedMeasReportPerCell.getPrbUsagePcell(),
+                                    schedMeasReportPerCell.getPrbUsageScell()
+                            )
+                    )));
         }
 
         /**
@@ -1298,25 +1369,25 @@ public class XranManager implements XranService {
             xranStore.getUe(pdcpMeasReportPerUe.getEcgi(), pdcpMeasReportPerUe.getCrnti()).ifPresent(ue -> {
                 Long ueId = ue.getId();
                 xranStore.getLink(pdcpMeasReportPerUe.getEcgi(), ueId).ifPresent(link ->
-                        link.getMeasurements().setPdcpMeasReport(
+                        xranStore.modifyLinkMeasurements(link, m -> m.setPdcpMeasReport(
                                 new RnibLink.Measurements.PdcpMeasReport(
-                                        pdcpMeasReportPerUe.getQciVals(),
+                                        QciValues.of(pdcpMeasReportPerUe.getQciVals().getQCI()),
                                         new RnibLink.Measurements.PdcpMeasReport.PdcpThroughput(
-                                                pdcpMeasReportPerUe.getThroughputDl(),
-                                                pdcpMeasReportPerUe.getThroughputUl()
+                                                QciValues.of(pdcpMeasReportPerUe.getThroughputDl().getBerInteger()),
+                                                QciValues.of(pdcpMeasReportPerUe.getThroughputUl().getBerInteger())
                                         ),
                                         new RnibLink.Measurements.PdcpMeasReport.DataVol(
-                                                pdcpMeasReportPerUe.getDataVolDl(),
-                                                pdcpMeasReportPerUe.getDataVolUl()
+                                                QciValues.of(pdcpMeasReportPerUe.getDataVolDl().getBerInteger()),
+                                                QciValues.of(pdcpMeasReportPerUe.getDataVolUl().getBerInteger())
                                         ),
-                                        pdcpMeasReportPerUe.getPktDelayDl(),
-                                        pdcpMeasReportPerUe.getPktDiscardRateDl(),
+                                        QciValues.of(pdcpMeasReportPerUe.getPktDelayDl().getBerInteger()),
+                                        QciValues.of(pdcpMeasReportPerUe.getPktDiscardRateDl().getBerInteger()),
                                         new RnibLink.Measurements.PdcpMeasReport.PktLossRate(
-                                                pdcpMeasReportPerUe.getPktLossRateDl(),
-                                                pdcpMeasReportPerUe.getPktLossRateUl()
+                                                QciValues.of(pdcpMeasReportPerUe.getPktLossRateDl().getBerInteger()),
+                                                QciValues.of(pdcpMeasReportPerUe.getPktLossRateUl().getBerInteger())
                                         )
                                 )
-                        )
+                        ))
                 );
             });
         }
@@ -1329,7 +1400,7 @@ public class XranManager implements XranService {
         private void handleCapabilityInfo(UECapabilityInfo capabilityInfo) {
             xranStore.getUe(capabilityInfo.getEcgi(), capabilityInfo.getCrnti())
                     .ifPresent(
-                            ue -> ue.setCapability(capabilityInfo)
+                            ue -> xranStore.modifyUe(ue, u -> u.setCapability(capabilityInfo))
                     );
         }
 
@@ -1342,7 +1413,7 @@ public class XranManager implements XranService {
         private void handleUecapabilityenquiry(UECapabilityEnquiry ueCapabilityEnquiry, ChannelHandlerContext ctx) {
             XrancPdu xrancPdu = UECapabilityEnquiry.constructPacket(ueCapabilityEnquiry.getEcgi(),
                     ueCapabilityEnquiry.getCrnti());
-            ctx.writeAndFlush(getSctpMessage(xrancPdu));
+            getSctpMessage(xrancPdu).ifPresent(ctx::writeAndFlush);
         }
 
         /**
@@ -1362,7 +1433,8 @@ public class XranManager implements XranService {
                                 if (scellAddStatus.getStatus().getBerEnum().get(i[0]).value.intValue() == 0) {
                                     xranStore.getCell(pciarfcn)
                                             .ifPresent(cell -> xranStore.getLink(cell.getEcgi(), ueId)
-                                                    .ifPresent(link -> link.setType(RnibLink.Type.SERVING_SECONDARY_CA))
+                                                    .ifPresent(link -> xranStore.modifyLinkType(link,
+                                                            RnibLink.Type.SERVING_SECONDARY_CA))
                                             );
                                 }
                                 i[0]++;
@@ -1406,7 +1478,8 @@ public class XranManager implements XranService {
 
                 splitPercentages.forEach(trafficSplitPercentage -> xranStore.getCell(trafficSplitPercentage.getEcgi())
                         .ifPresent(cell -> xranStore.getLink(cell.getEcgi(), ueId)
-                                .ifPresent(link -> link.setTrafficPercent(trafficSplitPercentage))));
+                                .ifPresent(link -> xranStore.modifyLink(link,
+                                        l -> l.setTrafficPercent(trafficSplitPercentage)))));
             });
         }
 
@@ -1415,26 +1488,29 @@ public class XranManager implements XranService {
          *
          * @param contextUpdate context update packet
          * @param ctx           channel context for the CELL
-         * @param handoff       true if we handle a Hand Off
+         * @param hoComplete    HOComplete paired with the update if we handle a Hand Off, null otherwise
          */
-        private void handlePairedPackets(UEContextUpdate contextUpdate, ChannelHandlerContext ctx, boolean handoff) {
+        private void handlePairedPackets(UEContextUpdate contextUpdate, ChannelHandlerContext ctx,
+                                         HOComplete hoComplete) {
             xranStore.getCell(contextUpdate.getEcgi()).ifPresent(cell -> {
                         Optional<RnibUe> optionalUe;
-                        if (handoff) {
-                            try {
-                                optionalUe = xranStore.getUe(ueIdQueue.take());
-                            } catch (InterruptedException e) {
-                                log.error(ExceptionUtils.getFullStackTrace(e));
-                                optionalUe = Optional.of(new RnibUe());
+                        if (hoComplete != null) {
+                            Long ueId = pendingHandovers.remove(hoComplete.getEcgiS());
+                            if (ueId == null) {
+                                log.warn("No handover from {} is pending; dropping context update",
+                                        hoComplete.getEcgiS());
                             }
+                            optionalUe = ueId == null ? Optional.empty() : xranStore.getUe(ueId);
                         } else {
                             optionalUe = Optional.of(new RnibUe());
                         }
 
                         optionalUe.ifPresent(ue -> {
-                            ue.getContextIds().setMmeS1apId(contextUpdate.getMMEUES1APID());
-                            ue.getContextIds().setEnbS1apId(contextUpdate.getENBUES1APID());
-                            ue.setCrnti(contextUpdate.getCrnti());
+                            xranStore.modifyUe(ue, u -> {
+                                u.getContextIds().setMmeS1apId(contextUpdate.getMMEUES1APID());
+                                u.getContextIds().setEnbS1apId(contextUpdate.getENBUES1APID());
+                                u.setCrnti(contextUpdate.getCrnti());
+                            });
                             hostAgent.addConnectedHost(ue, cell, ctx);
                         });
                     }
@@ -1474,11 +1550,16 @@ public class XranManager implements XranService {
          */
         private void handleConfigEvent(Optional<Config> configOptional) {
             configOptional.ifPresent(config -> {
+                boolean first = xranConfig == null;
                 xranConfig = (XranConfig) config;
+                if (first) {
+                    expireRestored();
+                }
                 northboundTimeout = xranConfig.getNorthBoundTimeout();
+                cellBalancePolicy = xranConfig.getCellBalancePolicy();
+                storeEventInterval = xranConfig.getStoreEventInterval();
                 legitCells.putAll(xranConfig.activeCellSet());
-                xranServer.start(deviceAgent, hostAgent, packetAgent,
-                        xranConfig.getXrancIp(), xranConfig.getXrancPort());
+                xranServer.start(deviceAgent, hostAgent, packetAgent, xranConfig);
             });
         }
     }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.onosproject.xran.XranPduHandler;
+import org.onosproject.xran.XranPduType;
+import org.onosproject.xran.asn1lib.pdu.XrancPdu;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Handlers of received PDUs, looked up by the API ID in the PDU header.
+ * Keeps the number of handler invocations, failures and the time spent in handlers per PDU type, and the number of
+ * PDUs nobody handled. Counters are kept for the lifetime of the registry, whatever handlers come and go.
+ */
+public class XranPduHandlerRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(XranPduHandlerRegistry.class);
+
+    private static final XranPduHandler[] NONE = new XranPduHandler[0];
+
+    // registered handlers indexed by API ID, replaced as a whole on every change.
+    private final AtomicReferenceArray<XranPduHandler[]> handlers =
+            new AtomicReferenceArray<>(XranPduType.values().length);
+
+    // counters indexed by API ID.
+    private final LongAdder[] invocations = new LongAdder[XranPduType.values().length];
+    private final LongAdder[] nanos = new LongAdder[XranPduType.values().length];
+    private final LongAdder[] failures = new LongAdder[XranPduType.values().length];
+    private final LongAdder unhandled = new LongAdder();
+
+    /**
+     * Create a registry without handlers, with all counters at zero.
+     */
+    public XranPduHandlerRegistry() {
+        for (int i = 0; i < handlers.length(); i++) {
+            handlers.set(i, NONE);
+            invocations[i] = new LongAdder();
+            nanos[i] = new LongAdder();
+            failures[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Add a handler for PDUs of the given type.
+     *
+     * @param type    PDU type
+     * @param handler handler
+     */
+    public synchronized void addHandler(XranPduType type, XranPduHandler handler) {
+        XranPduHandler[] current = handlers.get(type.apiId());
+        XranPduHandler[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = handler;
+        handlers.set(type.apiId(), updated);
+    }
+
+    /**
+     * Remove a handler of PDUs of the given type.
+     *
+     * @param type    PDU type
+     * @param handler handler
+     */
+    public synchronized void removeHandler(XranPduType type, XranPduHandler handler) {
+        XranPduHandler[] updated = Arrays.stream(handlers.get(type.apiId()))
+                .filter(registered -> registered != handler)
+                .toArray(XranPduHandler[]::new);
+        handlers.set(type.apiId(), updated.length == 0 ? NONE : updated);
+    }
+
+    /**
+     * Remove all handlers. Counters are kept.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < handlers.length(); i++) {
+            handlers.set(i, NONE);
+        }
+    }
+
+    /**
+     * Check whether any handler is registered for the API ID.
+     * If not, the PDU is counted as unhandled and is expected to be dropped by the caller.
+     *
+     * @param apiId API ID of a received PDU
+     * @return true if the PDU will be handled
+     */
+    public boolean accept(int apiId) {
+        if (apiId >= 0 && apiId < handlers.length() && handlers.get(apiId).length > 0) {
+            return true;
+        }
+        unhandled.increment();
+        return false;
+    }
+
+    /**
+     * Run all handlers registered for the API ID of the PDU.
+     * PDUs without a handler are counted and dropped.
+     *
+     * @param pdu received PDU
+     * @param ctx channel the PDU was received on
+     * @return true if at least one handler was run
+     */
+    public boolean handle(XrancPdu pdu, ChannelHandlerContext ctx) {
+        int apiId = pdu.getHdr().getApiId().intValue();
+        XranPduHandler[] registered = apiId >= 0 && apiId < handlers.length() ? handlers.get(apiId) : NONE;
+        if (registered.length == 0) {
+            unhandled.increment();
+            log.debug("No handler for API ID {}, dropping PDU", apiId);
+            return false;
+        }
+
+        for (XranPduHandler handler : registered) {
+            long start = System.nanoTime();
+            try {
+                handler.handle(pdu, ctx);
+            } catch (InterruptedException e) {
+                failures[apiId].increment();
+                log.warn(ExceptionUtils.getFullStackTrace(e));
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                failures[apiId].increment();
+                log.warn(ExceptionUtils.getFullStackTrace(e));
+            } finally {
+                invocations[apiId].increment();
+                nanos[apiId].add(System.nanoTime() - start);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of times the handlers of the given type were run.
+     *
+     * @param type PDU type
+     * @return number of invocations
+     */
+    public long getInvocations(XranPduType type) {
+        return invocations[type.apiId()].sum();
+    }
+
+    /**
+     * Get the time spent in the handlers of the given type.
+     *
+     * @param type PDU type
+     * @return time in nanoseconds
+     */
+    public long getNanos(XranPduType type) {
+        return nanos[type.apiId()].sum();
+    }
+
+    /**
+     * Get the number of handler invocations of the given type that threw an exception.
+     *
+     * @param type PDU type
+     * @return number of failures
+     */
+    public long getFailures(XranPduType type) {
+        return failures[type.apiId()].sum();
+    }
+
+    /**
+     * Get the number of PDUs that were dropped because no handler was registered.
+     *
+     * @return number of unhandled PDUs
+     */
+    public long getUnhandled() {
+        return unhandled.sum();
+    }
+}
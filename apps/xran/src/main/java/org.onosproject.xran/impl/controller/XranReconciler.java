@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.onosproject.xran.XranStore;
+import org.onosproject.xran.asn1lib.api.ECGI;
+import org.onosproject.xran.asn1lib.pdu.XrancPdu;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.onlab.util.Tools.groupedThreads;
+import static org.onosproject.xran.impl.controller.XranChannelHandler.getSctpMessage;
+
+/**
+ * Single loop that retries requests to the CELLs until their replies arrive.
+ * On each tick every due task is attempted once and the PDUs of all tasks are written to each CELL with a single
+ * flush. Tasks that are not complete are retried after an exponential, jittered backoff.
+ */
+public class XranReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(XranReconciler.class);
+
+    private static final long TICK_MS = 100;
+
+    // retry delays grow up to 16 times the base delay.
+    private static final int MAX_BACKOFF_SHIFT = 4;
+
+    private static final double JITTER = 0.2;
+
+    private final ConcurrentMap<Object, Pending> pending = new ConcurrentHashMap<>();
+
+    private final XranStore xranStore;
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(groupedThreads("onos/xran", "reconciler", log));
+
+    /**
+     * Create and start a reconciler.
+     *
+     * @param xranStore store used to find the channel of each CELL
+     */
+    public XranReconciler(XranStore xranStore) {
+        this(xranStore, true);
+    }
+
+    /**
+     * Create a reconciler, started or to be driven by calling {@link #tick(long)}.
+     *
+     * @param xranStore store used to find the channel of each CELL
+     * @param start     true to run the loop on its own thread
+     */
+    XranReconciler(XranStore xranStore, boolean start) {
+        this.xranStore = xranStore;
+        if (start) {
+            executor.scheduleWithFixedDelay(() -> tick(System.currentTimeMillis()), TICK_MS, TICK_MS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Work that is retried until it completes.
+     */
+    @FunctionalInterface
+    public interface Task {
+
+        /**
+         * Attempt the work once.
+         *
+         * @param outbox PDUs to send, keyed by the ECGI of the CELL to send them to
+         * @return true if the work is complete and should not be retried
+         */
+        boolean attempt(Multimap<ECGI, XrancPdu> outbox);
+    }
+
+    /**
+     * Add a task to be attempted on the next tick, replacing any pending task with the same key.
+     *
+     * @param key         key of the task, e.g. the ECGI of a CELL or the ID of a UE
+     * @param task        task
+     * @param baseDelayMs delay before the first retry
+     */
+    public void submit(Object key, Task task, long baseDelayMs) {
+        pending.put(key, new Pending(task, baseDelayMs));
+    }
+
+    /**
+     * Remove a pending task.
+     *
+     * @param key key of the task
+     */
+    public void cancel(Object key) {
+        pending.remove(key);
+    }
+
+    /**
+     * Get the number of tasks waiting to complete.
+     *
+     * @return number of pending tasks
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Get the time the pending task with the given key is next attempted.
+     *
+     * @param key key of the task
+     * @return time in milliseconds, 0 if not attempted yet, or empty if no task is pending
+     */
+    Optional<Long> getDue(Object key) {
+        return Optional.ofNullable(pending.get(key)).map(entry -> entry.due);
+    }
+
+    /**
+     * Stop the loop and drop all pending tasks.
+     */
+    public void stop() {
+        executor.shutdownNow();
+        pending.clear();
+    }
+
+    /**
+     * Attempt every task due at the given time once, and send the PDUs they produced.
+     *
+     * @param now current time in milliseconds
+     */
+    void tick(long now) {
+        Multimap<ECGI, XrancPdu> outbox = ArrayListMultimap.create();
+
+        pending.forEach((key, entry) -> {
+            if (entry.due > now) {
+                return;
+            }
+
+            boolean complete = false;
+            try {
+                complete = entry.task.attempt(outbox);
+            } catch (Exception e) {
+                log.warn(ExceptionUtils.getFullStackTrace(e));
+            }
+
+            if (complete) {
+                pending.remove(key, entry);
+            } else {
+                entry.backoff(now);
+            }
+        });
+
+        outbox.asMap().forEach((ecgi, pdus) -> xranStore.getCtx(ecgi).ifPresent(ctx -> {
+            pdus.forEach(pdu -> getSctpMessage(pdu).ifPresent(ctx::write));
+            ctx.flush();
+        }));
+    }
+
+    /**
+     * Task with its retry state. Only touched by the loop thread once submitted.
+     */
+    private static final class Pending {
+        private final Task task;
+        private final long baseDelayMs;
+        private int attempts;
+        private volatile long due;
+
+        private Pending(Task task, long baseDelayMs) {
+            this.task = task;
+            this.baseDelayMs = baseDelayMs;
+        }
+
+        private void backoff(long now) {
+            long delay = baseDelayMs << Math.min(attempts++, MAX_BACKOFF_SHIFT);
+            double jitter = ThreadLocalRandom.current().nextDouble(1 - JITTER, 1 + JITTER);
+            due = now + (long) (delay * jitter);
+        }
+    }
+}
@@ -16,19 +16,23 @@
 
 package org.onosproject.xran.impl.controller;
 
+import com.sun.nio.sctp.SctpStandardSocketOptions.InitMaxStreams;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.sctp.SctpChannel;
+import io.netty.channel.sctp.SctpChannelOption;
 import io.netty.channel.sctp.nio.NioSctpServerChannel;
+import io.netty.handler.codec.sctp.SctpMessageCompletionHandler;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import org.onlab.packet.IpAddress;
 import org.onosproject.xran.XranDeviceAgent;
 import org.onosproject.xran.XranHostAgent;
 import org.onosproject.xran.XranPacketProcessor;
+import org.onosproject.xran.impl.XranConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,14 +41,19 @@ import org.slf4j.LoggerFactory;
  */
 public class XranServer {
     protected static final Logger log = LoggerFactory.getLogger(XranServer.class);
+    private static final SctpStreamLimiter STREAM_LIMITER = new SctpStreamLimiter();
     protected XranDeviceAgent deviceAgent;
     protected XranHostAgent hostAgent;
     protected XranPacketProcessor packetAgent;
+    protected XranDispatcher dispatcher;
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
     private ChannelFuture channel;
     private int port = 8007;
     private IpAddress bindAddress = IpAddress.valueOf("0.0.0.0");
+    private int streams = 1;
+    private int workers = 1;
+    private int queueSize = 1;
     private boolean isRunning = false;
 
     /**
@@ -52,13 +61,18 @@ public class XranServer {
      */
     public void run() {
         final XranServer ctrl = this;
+        dispatcher = new XranDispatcher(workers, queueSize);
         try {
             ServerBootstrap b = createServerBootStrap();
             b.childHandler(new ChannelInitializer<SctpChannel>() {
                 @Override
                 public void initChannel(SctpChannel ch) throws Exception {
+                    // messages are reassembled and handled in order per channel, so each
+                    // stream keeps its ordering while streams do not block each other on the wire.
                     ch.pipeline().addLast(
                             //new LoggingHandler(LogLevel.INFO),
+                            new SctpMessageCompletionHandler(),
+                            STREAM_LIMITER,
                             new XranChannelHandler(ctrl)
                     );
                 }
@@ -82,34 +96,42 @@ public class XranServer {
         ServerBootstrap b = new ServerBootstrap();
         b.group(bossGroup, workerGroup)
                 .channel(NioSctpServerChannel.class)
+                .option(SctpChannelOption.SCTP_INIT_MAXSTREAMS, InitMaxStreams.create(streams, streams))
                 .handler(new LoggingHandler(LogLevel.INFO));
         return b;
     }
 
     /**
      * Initialize xranServer and start SCTP server.
-     *  @param deviceAgent device agent
+     * The server is restarted if it is already running with different settings.
+     *
+     * @param deviceAgent device agent
      * @param hostAgent   host agent
      * @param packetAgent packet agent
-     * @param xrancIp     xran bind IP
-     * @param port        port of server
+     * @param xranConfig  xran configuration
      */
     public void start(XranDeviceAgent deviceAgent, XranHostAgent hostAgent, XranPacketProcessor packetAgent,
-                      IpAddress xrancIp, int port) {
-        if (isRunning && (this.port != port || !this.bindAddress.equals(xrancIp))) {
+                      XranConfig xranConfig) {
+        IpAddress xrancIp = xranConfig.getXrancIp();
+        int port = xranConfig.getXrancPort();
+        int streams = xranConfig.getSctpStreams();
+        int workers = xranConfig.getDispatchWorkers();
+        int queueSize = xranConfig.getDispatchQueueSize();
+
+        XranChannelHandler.setStreamMap(streams, xranConfig.getSctpStreamMap());
+        if (isRunning && (this.port != port || !this.bindAddress.equals(xrancIp) || this.streams != streams ||
+                this.workers != workers || this.queueSize != queueSize)) {
             stop();
+        }
+        if (!isRunning) {
             this.deviceAgent = deviceAgent;
             this.hostAgent = hostAgent;
             this.packetAgent = packetAgent;
             this.port = port;
             this.bindAddress = xrancIp;
-            run();
-        } else if (!isRunning) {
-            this.deviceAgent = deviceAgent;
-            this.hostAgent = hostAgent;
-            this.packetAgent = packetAgent;
-            this.port = port;
-            this.bindAddress = xrancIp;
+            this.streams = streams;
+            this.workers = workers;
+            this.queueSize = queueSize;
             run();
             isRunning = true;
         }
@@ -123,6 +145,7 @@ public class XranServer {
             channel.channel().close();
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
+            dispatcher.shutdown();
             isRunning = false;
         }
     }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.onosproject.event.ListenerRegistry;
+import org.onosproject.xran.XranStoreDelegate;
+import org.onosproject.xran.XranStoreEvent;
+import org.onosproject.xran.XranStoreListener;
+import org.onosproject.xran.impl.entities.RnibCell;
+import org.onosproject.xran.impl.entities.RnibUe;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Store delegate that collects R-NIB changes and delivers them to listeners in batches.
+ * Changes of the same entity are coalesced until the next batch. An entity that listeners did not know before the
+ * batch is delivered as added with its last state, or not at all if it was removed again. An entity they knew is
+ * delivered as removed if that is its last change, as replaced if it was replaced or removed and added again, and
+ * otherwise with its last change. Measurement updates are coalesced apart from the other changes and follow them in
+ * the batch, so one never hides the other.
+ */
+public class XranStoreEventBatcher implements XranStoreDelegate {
+
+    private final ListenerRegistry<XranStoreEvent, XranStoreListener> listeners = new ListenerRegistry<>();
+
+    // pending changes keyed by entity, in the order the entities first changed.
+    private Map<Object, Pending> changes = Maps.newLinkedHashMap();
+    private Map<Object, XranStoreEvent> measurements = Maps.newLinkedHashMap();
+
+    @Override
+    public synchronized void notify(XranStoreEvent event) {
+        Object key = event.entityKey();
+        if (event.type().isMeasurement()) {
+            measurements.put(key, event);
+            return;
+        }
+
+        if (event.type().isRemoved()) {
+            measurements.remove(key);
+        }
+        Pending pending = changes.get(key);
+        // whether listeners knew the entity is decided by its first change in the batch.
+        boolean existed = pending != null ? pending.existed : !event.type().isAdded();
+        if (event.type().isRemoved()) {
+            if (existed) {
+                changes.put(key, new Pending(event, true));
+            } else {
+                changes.remove(key);
+            }
+        } else if (!existed) {
+            changes.put(key, new Pending(event.type().isAdded() ? event : addedOrReplaced(event, false), false));
+        } else if (event.type().isAdded() || (pending != null && pending.event.type().isReplaced())) {
+            changes.put(key, new Pending(addedOrReplaced(event, true), true));
+        } else {
+            changes.put(key, new Pending(event, true));
+        }
+    }
+
+    /**
+     * Deliver the pending changes to the listeners.
+     */
+    public void flush() {
+        List<XranStoreEvent> batch;
+        synchronized (this) {
+            if (changes.isEmpty() && measurements.isEmpty()) {
+                return;
+            }
+            batch = Lists.newArrayListWithCapacity(changes.size() + measurements.size());
+            changes.values().forEach(pending -> batch.add(pending.event));
+            batch.addAll(measurements.values());
+            changes = Maps.newLinkedHashMap();
+            measurements = Maps.newLinkedHashMap();
+        }
+        batch.forEach(listeners::process);
+    }
+
+    /**
+     * Get an event of the addition of the entity of an event, or of its replacement.
+     *
+     * @param event    event about the entity
+     * @param replaced true if listeners knew the entity
+     * @return event
+     */
+    private static XranStoreEvent addedOrReplaced(XranStoreEvent event, boolean replaced) {
+        if (event.subject() instanceof RnibCell) {
+            return event.withType(replaced ? XranStoreEvent.Type.CELL_REPLACED : XranStoreEvent.Type.CELL_ADDED);
+        }
+        if (event.subject() instanceof RnibUe) {
+            return event.withType(replaced ? XranStoreEvent.Type.UE_REPLACED : XranStoreEvent.Type.UE_ADDED);
+        }
+        return event.withType(replaced ? XranStoreEvent.Type.LINK_REPLACED : XranStoreEvent.Type.LINK_ADDED);
+    }
+
+    /**
+     * Add a listener.
+     *
+     * @param listener listener
+     */
+    public void addListener(XranStoreListener listener) {
+        listeners.addListener(listener);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener listener
+     */
+    public void removeListener(XranStoreListener listener) {
+        listeners.removeListener(listener);
+    }
+
+    // last change of an entity in the batch, and whether listeners knew the entity before the batch.
+    private static final class Pending {
+        private final XranStoreEvent event;
+        private final boolean existed;
+
+        private Pending(XranStoreEvent event, boolean existed) {
+            this.event = event;
+            this.existed = existed;
+        }
+    }
+}
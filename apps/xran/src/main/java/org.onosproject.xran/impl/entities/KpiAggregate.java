@@ -0,0 +1,236 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Running totals of the link metrics of a CELL, kept by {@link MeasurementTable}.
+ * Every new value of a link replaces its previous one in the totals, so they never have to be recomputed. The sums
+ * are compensated for rounding (Neumaier), so that replacing values over and over does not make them drift.
+ * Instances handed out by the table are copies and do not change.
+ */
+@JsonPropertyOrder({
+        "Links",
+        "ServedUEs",
+        "CQI-Mean",
+        "PDCPThroughput"
+})
+public final class KpiAggregate {
+
+    private int links;
+    private int servedUes;
+    private final double[] sums = new double[LinkMetric.values().length];
+    // low order part of each sum lost to rounding.
+    private final double[] compensations = new double[LinkMetric.values().length];
+    private final int[] counts = new int[LinkMetric.values().length];
+
+    KpiAggregate() {
+    }
+
+    private KpiAggregate(KpiAggregate other) {
+        links = other.links;
+        servedUes = other.servedUes;
+        System.arraycopy(other.sums, 0, sums, 0, sums.length);
+        System.arraycopy(other.compensations, 0, compensations, 0, compensations.length);
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+    }
+
+    /**
+     * Get the number of links of the CELL.
+     *
+     * @return number of links
+     */
+    @JsonProperty("Links")
+    public int getLinks() {
+        return links;
+    }
+
+    /**
+     * Get the number of UEs the CELL serves, i.e. of its serving links.
+     *
+     * @return number of served UEs
+     */
+    @JsonProperty("ServedUEs")
+    public int getServedUes() {
+        return servedUes;
+    }
+
+    /**
+     * Get the mean CQI of the links that reported it.
+     *
+     * @return mean CQI or null if no link reported it
+     */
+    @JsonProperty("CQI-Mean")
+    public Double getCqiMean() {
+        double mean = getMean(LinkMetric.CQI);
+        return Double.isNaN(mean) ? null : mean;
+    }
+
+    /**
+     * Get the total PDCP throughput of the links.
+     *
+     * @return PdcpThroughput
+     */
+    @JsonProperty("PDCPThroughput")
+    public PdcpThroughput getPdcpThroughput() {
+        return new PdcpThroughput(getSum(LinkMetric.PDCP_THROUGHPUT_DL), getSum(LinkMetric.PDCP_THROUGHPUT_UL));
+    }
+
+    /**
+     * Get the sum of a metric over the links that reported it.
+     *
+     * @param metric metric
+     * @return sum, 0 if no link reported it
+     */
+    @JsonIgnore
+    public double getSum(LinkMetric metric) {
+        return sums[metric.ordinal()] + compensations[metric.ordinal()];
+    }
+
+    /**
+     * Get the number of links that reported a metric.
+     *
+     * @param metric metric
+     * @return number of links
+     */
+    @JsonIgnore
+    public int getCount(LinkMetric metric) {
+        return counts[metric.ordinal()];
+    }
+
+    /**
+     * Get the mean of a metric over the links that reported it.
+     *
+     * @param metric metric
+     * @return mean or NaN if no link reported it
+     */
+    @JsonIgnore
+    public double getMean(LinkMetric metric) {
+        int count = counts[metric.ordinal()];
+        return count == 0 ? Double.NaN : getSum(metric) / count;
+    }
+
+    /**
+     * Get the value of a metric for the whole CELL: the sum if the metric is additive, the mean otherwise.
+     *
+     * @param metric metric
+     * @return value, or NaN if no link reported the metric
+     */
+    @JsonIgnore
+    public double getValue(LinkMetric metric) {
+        if (counts[metric.ordinal()] == 0) {
+            return Double.NaN;
+        }
+        return metric.isAdditive() ? getSum(metric) : getMean(metric);
+    }
+
+    KpiAggregate copy() {
+        return new KpiAggregate(this);
+    }
+
+    void addLink(boolean serving) {
+        links++;
+        if (serving) {
+            servedUes++;
+        }
+    }
+
+    void removeLink(boolean serving) {
+        links--;
+        if (serving) {
+            servedUes--;
+        }
+    }
+
+    void changeServing(boolean serving) {
+        servedUes += serving ? 1 : -1;
+    }
+
+    /**
+     * Replace the value of a link in the totals. NaN stands for a value that was not reported.
+     *
+     * @param metric   metric
+     * @param oldValue previous value of the link
+     * @param newValue new value of the link
+     */
+    void replace(LinkMetric metric, double oldValue, double newValue) {
+        int i = metric.ordinal();
+        if (!Double.isNaN(oldValue)) {
+            add(i, -oldValue);
+            counts[i]--;
+        }
+        if (!Double.isNaN(newValue)) {
+            add(i, newValue);
+            counts[i]++;
+        }
+        if (counts[i] == 0) {
+            sums[i] = 0;
+            compensations[i] = 0;
+        }
+    }
+
+    // Neumaier summation: the part of the value or of the sum that does not fit the new sum goes to the compensation.
+    private void add(int i, double value) {
+        double sum = sums[i] + value;
+        if (Math.abs(sums[i]) >= Math.abs(value)) {
+            compensations[i] += (sums[i] - sum) + value;
+        } else {
+            compensations[i] += (value - sum) + sums[i];
+        }
+        sums[i] = sum;
+    }
+
+    /**
+     * Downlink and uplink totals.
+     */
+    @JsonPropertyOrder({
+            "dl",
+            "ul"
+    })
+    public static final class PdcpThroughput {
+        @JsonProperty("dl")
+        private final double dl;
+        @JsonProperty("ul")
+        private final double ul;
+
+        private PdcpThroughput(double dl, double ul) {
+            this.dl = dl;
+            this.ul = ul;
+        }
+
+        /**
+         * Get the total downlink PDCP throughput.
+         *
+         * @return sum of the downlink throughput of the links, 0 if none reported it
+         */
+        public double getDl() {
+            return dl;
+        }
+
+        /**
+         * Get the total uplink PDCP throughput.
+         *
+         * @return sum of the uplink throughput of the links, 0 if none reported it
+         */
+        public double getUl() {
+            return ul;
+        }
+    }
+}
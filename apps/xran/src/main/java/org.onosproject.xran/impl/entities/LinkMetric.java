@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.entities;
+
+import java.util.Arrays;
+
+/**
+ * Scalar metric of a link, read from the last report of its kind.
+ * Values reported per QCI are reduced to one: rates, volumes and PRBs add up across QCIs, MCS and delay are
+ * averaged.
+ */
+public enum LinkMetric {
+    CQI("cqi", Report.RADIO, 0, false),
+    MCS_DL("mcs_dl", Report.SCHED, 0, false),
+    MCS_UL("mcs_ul", Report.SCHED, 1, false),
+    PRB_DL("prb_dl", Report.SCHED, 2, true),
+    PRB_UL("prb_ul", Report.SCHED, 3, true),
+    PDCP_THROUGHPUT_DL("pdcp_throughput_dl", Report.PDCP, 0, true),
+    PDCP_THROUGHPUT_UL("pdcp_throughput_ul", Report.PDCP, 1, true),
+    PKT_DELAY_DL("pkt_delay_dl", Report.PDCP, 2, false);
+
+    // metrics of each report, ordered by column.
+    private static final LinkMetric[][] BY_REPORT = new LinkMetric[Report.values().length][];
+
+    static {
+        for (Report report : Report.values()) {
+            BY_REPORT[report.ordinal()] = Arrays.stream(values()).filter(metric -> metric.report == report)
+                    .toArray(LinkMetric[]::new);
+        }
+    }
+
+    private final String name;
+    private final Report report;
+    private final int column;
+    private final boolean additive;
+
+    LinkMetric(String name, Report report, int column, boolean additive) {
+        this.name = name;
+        this.report = report;
+        this.column = column;
+        this.additive = additive;
+    }
+
+    /**
+     * Get the kind of report the metric is read from.
+     *
+     * @return Report
+     */
+    public Report getReport() {
+        return report;
+    }
+
+    /**
+     * Get the index of the metric among the metrics of its report.
+     *
+     * @return column
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Tell whether values of the metric add up, across QCIs as well as across the links of a cell.
+     *
+     * @return true for rates, volumes and PRBs, false for metrics that are averaged
+     */
+    public boolean isAdditive() {
+        return additive;
+    }
+
+    /**
+     * Read the metric from the measurements of a link.
+     *
+     * @param measurements measurements of a link
+     * @return value, or NaN if the report or the value is missing
+     */
+    public double read(RnibLink.Measurements measurements) {
+        RnibLink.Measurements.RadioReport radio = measurements.getRadioReport();
+        RnibLink.Measurements.SchedMeasReport sched = measurements.getSchedMeasReport();
+        RnibLink.Measurements.PdcpMeasReport pdcp = measurements.getPdcpMeasReport();
+        switch (this) {
+            case CQI:
+                return radio == null || radio.getCqi() == null ? Double.NaN : radio.getCqi().getMean();
+            case MCS_DL:
+                return mean(sched == null || sched.getMcs() == null ? null : sched.getMcs().getDl());
+            case MCS_UL:
+                return mean(sched == null || sched.getMcs() == null ? null : sched.getMcs().getUl());
+            case PRB_DL:
+                return sum(sched == null || sched.getResourceUsage() == null ? null :
+                        sched.getResourceUsage().getDl());
+            case PRB_UL:
+                return sum(sched == null || sched.getResourceUsage() == null ? null :
+                        sched.getResourceUsage().getUl());
+            case PDCP_THROUGHPUT_DL:
+                return sum(pdcp == null || pdcp.getPdcpThroughput() == null ? null :
+                        pdcp.getPdcpThroughput().getDl());
+            case PDCP_THROUGHPUT_UL:
+                return sum(pdcp == null || pdcp.getPdcpThroughput() == null ? null :
+                        pdcp.getPdcpThroughput().getUl());
+            case PKT_DELAY_DL:
+                return mean(pdcp == null ? null : pdcp.getPktDelayDl());
+            default:
+                return Double.NaN;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Get the metrics of a report without copying them.
+     *
+     * @param report kind of report
+     * @return metrics ordered by column, must not be modified
+     */
+    static LinkMetric[] metricsOf(Report report) {
+        return BY_REPORT[report.ordinal()];
+    }
+
+    private static double sum(QciValues values) {
+        return values == null ? Double.NaN : values.sum();
+    }
+
+    private static double mean(QciValues values) {
+        return values == null || values.size() == 0 ? Double.NaN : (double) values.sum() / values.size();
+    }
+
+    /**
+     * Kind of report a link metric is read from.
+     */
+    public enum Report {
+        RADIO,
+        SCHED,
+        PDCP;
+
+        /**
+         * Get the metrics read from this kind of report.
+         *
+         * @return metrics ordered by column
+         */
+        public LinkMetric[] getMetrics() {
+            return metricsOf(this).clone();
+        }
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.entities;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.onosproject.xran.asn1lib.api.ECGI;
+import org.onosproject.xran.impl.identifiers.PackedKeys;
+import org.onosproject.xran.impl.util.Rollup;
+
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Last value of every {@link LinkMetric} of every stored link, kept column by column.
+ * Each link holds a slot and every metric is a primitive array indexed by slot. Slots are dense: removing a link
+ * moves the last link into its slot, so aggregates are loops over the first {@link #size()} entries of a column.
+ * Values of reports a link has not sent yet are NaN and are left out of aggregates.
+ * The table also keeps a {@link KpiAggregate} per CELL, updated with every value it stores, and rolls the CELL
+ * values up over time like {@link RnibLinkHistory} does for links. Both are dropped once the CELL has no links.
+ */
+public final class MeasurementTable {
+
+    /**
+     * Tables with at least this many links are scanned in parallel on the common fork/join pool.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // cell key of links whose ECI cannot be packed; they are only part of aggregates over all cells.
+    private static final long NO_CELL = -1L;
+
+    // adding and removing links moves slots and takes the write lock. Updating the values of a slot and reading
+    // the table take the read lock, so they run in parallel.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private RnibLink[] links = new RnibLink[INITIAL_CAPACITY];
+    private long[] cells = new long[INITIAL_CAPACITY];
+    private boolean[] serving = new boolean[INITIAL_CAPACITY];
+    // aggregate of the cell of each slot. Values of a slot only change while its aggregate is locked, so updates
+    // of links of the same cell take turns.
+    private KpiAggregate[] aggregates = new KpiAggregate[INITIAL_CAPACITY];
+    // rollup of the cell of each slot, changed with the aggregate.
+    private Rollup[] rollups = new Rollup[INITIAL_CAPACITY];
+    private double[][] columns = new double[LinkMetric.values().length][INITIAL_CAPACITY];
+    private int size;
+
+    // aggregate of each cell with links, by cell key.
+    private final Map<Long, KpiAggregate> cellAggregates = Maps.newHashMap();
+    private final Map<Long, Rollup> cellRollups = Maps.newHashMap();
+
+    /**
+     * Give a link a slot. Its metrics are NaN until its reports are recorded.
+     *
+     * @param link stored link
+     */
+    public void add(RnibLink link) {
+        lock.writeLock().lock();
+        try {
+            if (link.slot >= 0) {
+                return;
+            }
+            if (size == links.length) {
+                int capacity = links.length * 2;
+                links = Arrays.copyOf(links, capacity);
+                cells = Arrays.copyOf(cells, capacity);
+                serving = Arrays.copyOf(serving, capacity);
+                aggregates = Arrays.copyOf(aggregates, capacity);
+                rollups = Arrays.copyOf(rollups, capacity);
+                for (int column = 0; column < columns.length; column++) {
+                    columns[column] = Arrays.copyOf(columns[column], capacity);
+                }
+            }
+            int slot = size++;
+            links[slot] = link;
+            cells[slot] = cellKey(link.getLinkId().getEcgi());
+            serving[slot] = isServing(link);
+            aggregates[slot] = cellAggregates.computeIfAbsent(cells[slot], cell -> new KpiAggregate());
+            aggregates[slot].addLink(serving[slot]);
+            rollups[slot] = cellRollups.computeIfAbsent(cells[slot], cell -> RnibLinkHistory.newCellRollup());
+            for (double[] column : columns) {
+                column[slot] = Double.NaN;
+            }
+            link.slot = slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Free the slot of a link, moving the last link into it.
+     *
+     * @param link removed link
+     */
+    public void remove(RnibLink link) {
+        lock.writeLock().lock();
+        try {
+            int slot = link.slot;
+            if (slot < 0 || links[slot] != link) {
+                return;
+            }
+            KpiAggregate aggregate = aggregates[slot];
+            aggregate.removeLink(serving[slot]);
+            for (LinkMetric metric : LinkMetric.values()) {
+                aggregate.replace(metric, columns[metric.ordinal()][slot], Double.NaN);
+            }
+            if (aggregate.getLinks() == 0) {
+                cellAggregates.remove(cells[slot]);
+                cellRollups.remove(cells[slot]);
+            }
+
+            int last = --size;
+            if (slot != last) {
+                links[slot] = links[last];
+                cells[slot] = cells[last];
+                serving[slot] = serving[last];
+                aggregates[slot] = aggregates[last];
+                rollups[slot] = rollups[last];
+                for (double[] column : columns) {
+                    column[slot] = column[last];
+                }
+                links[slot].slot = slot;
+            }
+            links[last] = null;
+            aggregates[last] = null;
+            rollups[last] = null;
+            link.slot = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copy the metrics of the last report of a kind into the slot of a link.
+     *
+     * @param link   stored link
+     * @param report kind of the new report
+     */
+    public void update(RnibLink link, LinkMetric.Report report) {
+        lock.readLock().lock();
+        try {
+            int slot = link.slot;
+            if (slot < 0 || links[slot] != link) {
+                return;
+            }
+            KpiAggregate aggregate = aggregates[slot];
+            double[] cellValues = new double[columns.length];
+            Arrays.fill(cellValues, Double.NaN);
+            synchronized (aggregate) {
+                for (LinkMetric metric : LinkMetric.metricsOf(report)) {
+                    double value = metric.read(link.getMeasurements());
+                    aggregate.replace(metric, columns[metric.ordinal()][slot], value);
+                    columns[metric.ordinal()][slot] = value;
+                    cellValues[metric.ordinal()] = aggregate.getValue(metric);
+                }
+                rollups[slot].add(RnibLinkHistory.now(), cellValues);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count a link among the served UEs of its cell or not, after its type changed.
+     *
+     * @param link stored link
+     */
+    public void updateType(RnibLink link) {
+        lock.readLock().lock();
+        try {
+            int slot = link.slot;
+            if (slot < 0 || links[slot] != link) {
+                return;
+            }
+            KpiAggregate aggregate = aggregates[slot];
+            synchronized (aggregate) {
+                boolean nowServing = isServing(link);
+                if (nowServing != serving[slot]) {
+                    serving[slot] = nowServing;
+                    aggregate.changeServing(nowServing);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every link.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (int slot = 0; slot < size; slot++) {
+                links[slot].slot = -1;
+                links[slot] = null;
+                aggregates[slot] = null;
+                rollups[slot] = null;
+            }
+            size = 0;
+            cellAggregates.clear();
+            cellRollups.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of links in the table.
+     *
+     * @return number of links
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the last value of a metric of a link.
+     *
+     * @param link   stored link
+     * @param metric metric
+     * @return value, or NaN if not reported or the link is not in the table
+     */
+    public double get(RnibLink link, LinkMetric metric) {
+        lock.readLock().lock();
+        try {
+            int slot = link.slot;
+            return slot < 0 || links[slot] != link ? Double.NaN : columns[metric.ordinal()][slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the running aggregates of the links of a cell.
+     *
+     * @param ecgi ECGI of the cell
+     * @return copy of the aggregates, empty if the cell has no links
+     */
+    public Optional<KpiAggregate> getAggregate(ECGI ecgi) {
+        long cell = cellKey(ecgi);
+        if (cell == NO_CELL) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            KpiAggregate aggregate = cellAggregates.get(cell);
+            if (aggregate == null) {
+                return Optional.empty();
+            }
+            synchronized (aggregate) {
+                return Optional.of(aggregate.copy());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the rollup buckets of the value of a metric for a cell, at the finest width that still covers the window.
+     * The value of a cell is the one of {@link KpiAggregate#getValue(LinkMetric)}, taken at every report of its
+     * links.
+     *
+     * @param ecgi   ECGI of the cell
+     * @param metric metric
+     * @param from   start of the window, on the {@link RnibLinkHistory#now()} clock
+     * @param to     end of the window, on the {@link RnibLinkHistory#now()} clock
+     * @return buckets oldest first, empty if the cell has no links
+     */
+    public Optional<Rollup.Series> getRollup(ECGI ecgi, LinkMetric metric, long from, long to) {
+        long cell = cellKey(ecgi);
+        if (cell == NO_CELL) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(cellRollups.get(cell))
+                    .map(rollup -> rollup.window(from, to, metric.ordinal()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the mean of a metric over all links that reported it.
+     *
+     * @param metric metric
+     * @return mean, or NaN if no link reported the metric
+     */
+    public double mean(LinkMetric metric) {
+        DoubleSummaryStatistics statistics = statistics(metric, NO_CELL);
+        return statistics.getCount() == 0 ? Double.NaN : statistics.getAverage();
+    }
+
+    /**
+     * Get the mean of a metric over the links of a cell that reported it.
+     *
+     * @param metric metric
+     * @param ecgi   ECGI of the cell
+     * @return mean, or NaN if no link of the cell reported the metric
+     */
+    public double mean(LinkMetric metric, ECGI ecgi) {
+        long cell = cellKey(ecgi);
+        if (cell == NO_CELL) {
+            return Double.NaN;
+        }
+        DoubleSummaryStatistics statistics = statistics(metric, cell);
+        return statistics.getCount() == 0 ? Double.NaN : statistics.getAverage();
+    }
+
+    /**
+     * Get the sum of a metric over the links of a cell that reported it.
+     *
+     * @param metric metric
+     * @param ecgi   ECGI of the cell
+     * @return sum, 0 if no link of the cell reported the metric
+     */
+    public double sum(LinkMetric metric, ECGI ecgi) {
+        long cell = cellKey(ecgi);
+        return cell == NO_CELL ? 0 : statistics(metric, cell).getSum();
+    }
+
+    /**
+     * Get the links with the highest values of a metric.
+     *
+     * @param metric metric
+     * @param n      maximum number of links
+     * @return links in decreasing order of the metric, leaving out links that did not report it
+     */
+    public List<RnibLink> top(LinkMetric metric, int n) {
+        checkArgument(n >= 0, "n cannot be negative");
+        lock.readLock().lock();
+        try {
+            double[] column = columns[metric.ordinal()];
+
+            // min-heap of the n best slots seen so far, ordered by value.
+            int[] heap = new int[Math.min(n, size)];
+            int count = 0;
+            for (int slot = 0; slot < size && heap.length > 0; slot++) {
+                double value = column[slot];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                if (count < heap.length) {
+                    heap[count] = slot;
+                    siftUp(heap, count++, column);
+                } else if (value > column[heap[0]]) {
+                    heap[0] = slot;
+                    siftDown(heap, count, column);
+                }
+            }
+
+            List<RnibLink> top = Lists.newArrayListWithCapacity(count);
+            while (count > 0) {
+                top.add(links[heap[0]]);
+                heap[0] = heap[--count];
+                siftDown(heap, count, column);
+            }
+            return Lists.reverse(top);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private DoubleSummaryStatistics statistics(LinkMetric metric, long cell) {
+        lock.readLock().lock();
+        try {
+            double[] column = columns[metric.ordinal()];
+            long[] cellColumn = cells;
+            if (size >= PARALLEL_THRESHOLD) {
+                return IntStream.range(0, size).parallel()
+                        .filter(slot -> (cell == NO_CELL || cellColumn[slot] == cell) && !Double.isNaN(column[slot]))
+                        .mapToDouble(slot -> column[slot])
+                        .summaryStatistics();
+            }
+            DoubleSummaryStatistics statistics = new DoubleSummaryStatistics();
+            for (int slot = 0; slot < size; slot++) {
+                if ((cell == NO_CELL || cellColumn[slot] == cell) && !Double.isNaN(column[slot])) {
+                    statistics.accept(column[slot]);
+                }
+            }
+            return statistics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void siftUp(int[] heap, int i, double[] column) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (column[heap[parent]] <= column[heap[i]]) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int count, double[] column) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < count && column[heap[left]] < column[heap[smallest]]) {
+                smallest = left;
+            }
+            if (right < count && column[heap[right]] < column[heap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(heap, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int slot = heap[i];
+        heap[i] = heap[j];
+        heap[j] = slot;
+    }
+
+    private static boolean isServing(RnibLink link) {
+        return link.getType() != null && link.getType() != RnibLink.Type.NON_SERVING;
+    }
+
+    private static long cellKey(ECGI ecgi) {
+        if (ecgi == null || ecgi.getEUTRANcellIdentifier() == null ||
+                !PackedKeys.isEci(ecgi.getEUTRANcellIdentifier().value)) {
+            return NO_CELL;
+        }
+        return PackedKeys.eci(ecgi.getEUTRANcellIdentifier()) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.onosproject.xran.asn1lib.ber.types.BerInteger;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Integers reported per QCI, packed into an int array, or a long array if any of them does not fit in an int.
+ * It serializes to JSON exactly like the list of BER integers it was packed from, i.e. an array of strings.
+ */
+@JsonSerialize(using = QciValues.Serializer.class)
+public final class QciValues {
+
+    /**
+     * Values of a report without QCIs.
+     */
+    public static final QciValues EMPTY = new QciValues(new int[0], null);
+
+    // exactly one of the two is set.
+    private final int[] ints;
+    private final long[] longs;
+
+    private QciValues(int[] ints, long[] longs) {
+        this.ints = ints;
+        this.longs = longs;
+    }
+
+    /**
+     * Pack BER integers.
+     *
+     * @param values integers decoded from a report
+     * @return packed values, or null if the integers are missing
+     */
+    public static QciValues of(List<? extends BerInteger> values) {
+        if (values == null) {
+            return null;
+        }
+        long[] packed = new long[values.size()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = values.get(i).value.longValue();
+        }
+        return valueOf(packed);
+    }
+
+    /**
+     * Pack integers.
+     *
+     * @param values integers, as read from JSON
+     * @return packed values
+     */
+    @JsonCreator
+    public static QciValues valueOf(long[] values) {
+        for (long value : values) {
+            if (value != (int) value) {
+                return new QciValues(null, values.clone());
+            }
+        }
+        int[] packed = new int[values.length];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = (int) values[i];
+        }
+        return new QciValues(packed, null);
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return number of QCI slots
+     */
+    public int size() {
+        return ints != null ? ints.length : longs.length;
+    }
+
+    /**
+     * Get a value.
+     *
+     * @param slot index of the QCI slot
+     * @return value
+     */
+    public long get(int slot) {
+        return ints != null ? ints[slot] : longs[slot];
+    }
+
+    /**
+     * Get the sum of the values.
+     *
+     * @return sum over all QCI slots
+     */
+    public long sum() {
+        long sum = 0;
+        for (int slot = 0; slot < size(); slot++) {
+            sum += get(slot);
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return ints != null ? Arrays.toString(ints) : Arrays.toString(longs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        QciValues that = (QciValues) o;
+        return Arrays.equals(ints, that.ints) && Arrays.equals(longs, that.longs);
+    }
+
+    @Override
+    public int hashCode() {
+        return ints != null ? Arrays.hashCode(ints) : Arrays.hashCode(longs);
+    }
+
+    /**
+     * Writes the values as strings, as BER integers are.
+     */
+    public static final class Serializer extends StdSerializer<QciValues> {
+
+        public Serializer() {
+            super(QciValues.class);
+        }
+
+        @Override
+        public void serialize(QciValues values, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartArray();
+            for (int slot = 0; slot < values.size(); slot++) {
+                generator.writeString(Long.toString(values.get(slot)));
+            }
+            generator.writeEndArray();
+        }
+    }
+}
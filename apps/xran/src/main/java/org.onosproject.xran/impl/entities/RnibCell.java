@@ -36,6 +36,7 @@ import org.onosproject.xran.asn1lib.pdu.RRCMeasConfig;
 import org.onosproject.xran.asn1lib.pdu.RRMConfig;
 import org.onosproject.xran.asn1lib.pdu.RadioMeasReportPerCell;
 import org.onosproject.xran.asn1lib.pdu.SchedMeasReportPerCell;
+import org.onosproject.xran.impl.util.Revision;
 
 import javax.xml.bind.DatatypeConverter;
 import java.io.ByteArrayInputStream;
@@ -81,6 +82,9 @@ public class RnibCell {
 
     @JsonIgnore
     private String version = "5";
+    // changed by the store around every in place modification, so that serialized copies can be reused.
+    @JsonIgnore
+    private final Revision revision = new Revision();
 
     /**
      * Encode ECGI and obtain its URI.
@@ -139,6 +143,16 @@ public class RnibCell {
         this.version = version;
     }
 
+    /**
+     * Get the revision the store keeps of in place modifications.
+     *
+     * @return Revision
+     */
+    @JsonIgnore
+    public Revision getRevision() {
+        return revision;
+    }
+
     /**
      * Get RRMConfig.
      *
@@ -23,19 +23,19 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.Lists;
+import io.netty.util.Timeout;
 import org.onosproject.store.service.WallClockTimestamp;
+import org.onosproject.xran.asn1lib.api.ERABID;
 import org.onosproject.xran.asn1lib.api.ERABParams;
-import org.onosproject.xran.asn1lib.api.PRBUsage;
 import org.onosproject.xran.asn1lib.api.RadioRepPerServCell;
-import org.onosproject.xran.asn1lib.api.SchedMeasRepPerServCell;
 import org.onosproject.xran.asn1lib.api.TrafficSplitPercentage;
 import org.onosproject.xran.asn1lib.api.XICICPA;
 import org.onosproject.xran.asn1lib.ber.types.BerBitString;
 import org.onosproject.xran.asn1lib.ber.types.BerInteger;
-import org.onosproject.xran.asn1lib.pdu.PDCPMeasReportPerUe;
 import org.onosproject.xran.asn1lib.pdu.RRMConfig;
 import org.onosproject.xran.asn1lib.pdu.RXSigMeasReport;
 import org.onosproject.xran.impl.identifiers.LinkId;
+import org.onosproject.xran.impl.util.Revision;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,8 +43,6 @@ import javax.xml.bind.DatatypeConverter;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * R-NIB Link and its properties.
@@ -75,7 +73,15 @@ public class RnibLink {
     @JsonProperty("Type")
     private Type type;
     @JsonIgnore
-    private ScheduledExecutorService executor;
+    private Timeout timer;
+    @JsonIgnore
+    private final RnibLinkHistory history = new RnibLinkHistory();
+    // changed by the store around every in place modification, so that serialized copies can be reused.
+    @JsonIgnore
+    private final Revision revision = new Revision();
+    // slot of the link in the measurement table, -1 if it has none; only changed by MeasurementTable.
+    @JsonIgnore
+    int slot = -1;
 
     public RnibLink(RnibCell cell, RnibUe ue) {
         trafficPercent = new TrafficSplitPercentage();
@@ -83,8 +89,6 @@ public class RnibLink {
         trafficPercent.setTrafficPercentDl(new BerInteger(100));
         trafficPercent.setTrafficPercentUl(new BerInteger(100));
 
-        executor = Executors.newSingleThreadScheduledExecutor();
-
         type = Type.NON_SERVING;
 
         linkId = LinkId.valueOf(cell, ue);
@@ -97,17 +101,24 @@ public class RnibLink {
     }
 
     /**
-     * Get executor.
+     * Get the pending removal timer.
      *
-     * @return Timer
+     * @return Timeout or null if no timer is armed
      */
-    public ScheduledExecutorService getExecutor() {
-        return executor;
+    public Timeout getTimer() {
+        return timer;
     }
 
-    public void setExecutor(ScheduledExecutorService executor) {
-        this.executor.shutdown();
-        this.executor = executor;
+    /**
+     * Set the pending removal timer, cancelling the previous one.
+     *
+     * @param timer new timer or null to only cancel the previous one
+     */
+    public synchronized void setTimer(Timeout timer) {
+        if (this.timer != null) {
+            this.timer.cancel();
+        }
+        this.timer = timer;
     }
 
     /**
@@ -201,6 +212,17 @@ public class RnibLink {
         this.bearerParameters = bearerParameters;
     }
 
+    /**
+     * Remove released bearers from the Bearer Parameters.
+     *
+     * @param erabIds IDs of the released bearers
+     */
+    public void releaseBearers(List<ERABID> erabIds) {
+        if (bearerParameters != null) {
+            bearerParameters.getERABParamsItem().removeIf(item -> erabIds.contains(item.getId()));
+        }
+    }
+
     /**
      * Get RRM Configuration.
      *
@@ -225,6 +247,26 @@ public class RnibLink {
         return measurements;
     }
 
+    /**
+     * Get the recent measurements of the link.
+     *
+     * @return RnibLinkHistory
+     */
+    @JsonIgnore
+    public RnibLinkHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Get the revision the store keeps of in place modifications.
+     *
+     * @return Revision
+     */
+    @JsonIgnore
+    public Revision getRevision() {
+        return revision;
+    }
+
     public void setMeasurements(Measurements measurements) {
         this.measurements = measurements;
     }
@@ -786,7 +828,7 @@ public class RnibLink {
         @JsonIgnoreProperties(ignoreUnknown = true)
         public static class SchedMeasReport {
             @JsonProperty("QCI")
-            SchedMeasRepPerServCell.QciVals qci;
+            QciValues qci;
             @JsonProperty("ResourceUsage")
             ResourceUsage resourceUsage = new ResourceUsage();
             @JsonProperty("MCS")
@@ -803,7 +845,7 @@ public class RnibLink {
 
             @JsonCreator
             public SchedMeasReport(
-                    @JsonProperty("QCI") SchedMeasRepPerServCell.QciVals qci,
+                    @JsonProperty("QCI") QciValues qci,
                     @JsonProperty("ResourceUsage") ResourceUsage resourceUsage,
                     @JsonProperty("MCS") Mcs mcs,
                     @JsonProperty("Num_Sched_TTIs") NumSchedTtis numSchedTtis,
@@ -816,11 +858,11 @@ public class RnibLink {
                 this.dlRankStats = dlRankStats;
             }
 
-            public SchedMeasRepPerServCell.QciVals getQci() {
+            public QciValues getQci() {
                 return qci;
             }
 
-            public void setQci(SchedMeasRepPerServCell.QciVals qci) {
+            public void setQci(QciValues qci) {
                 this.qci = qci;
             }
 
@@ -883,16 +925,16 @@ public class RnibLink {
             @JsonIgnoreProperties(ignoreUnknown = true)
             public static class ResourceUsage {
                 @JsonProperty("dl")
-                PRBUsage.PrbUsageDl dl;
+                QciValues dl;
                 @JsonProperty("ul")
-                PRBUsage.PrbUsageUl ul;
+                QciValues ul;
 
                 public ResourceUsage() {
                 }
 
                 @JsonCreator
-                public ResourceUsage(@JsonProperty("dl") PRBUsage.PrbUsageDl dl,
-                                     @JsonProperty("ul") PRBUsage.PrbUsageUl ul) {
+                public ResourceUsage(@JsonProperty("dl") QciValues dl,
+                                     @JsonProperty("ul") QciValues ul) {
                     this.dl = dl;
                     this.ul = ul;
                 }
@@ -902,7 +944,7 @@ public class RnibLink {
                  *
                  * @return Dl
                  */
-                public PRBUsage.PrbUsageDl getDl() {
+                public QciValues getDl() {
                     return dl;
                 }
 
@@ -911,7 +953,7 @@ public class RnibLink {
                  *
                  * @param dl DL
                  */
-                public void setDl(PRBUsage.PrbUsageDl dl) {
+                public void setDl(QciValues dl) {
                     this.dl = dl;
                 }
 
@@ -920,7 +962,7 @@ public class RnibLink {
                  *
                  * @return Ul
                  */
-                public PRBUsage.PrbUsageUl getUl() {
+                public QciValues getUl() {
                     return ul;
                 }
 
@@ -929,7 +971,7 @@ public class RnibLink {
                  *
                  * @param ul Ul
                  */
-                public void setUl(PRBUsage.PrbUsageUl ul) {
+                public void setUl(QciValues ul) {
                     this.ul = ul;
                 }
 
@@ -948,15 +990,15 @@ public class RnibLink {
             })
             @JsonIgnoreProperties(ignoreUnknown = true)
             public static class Mcs {
-                SchedMeasRepPerServCell.McsDl dl;
-                SchedMeasRepPerServCell.McsUl ul;
+                QciValues dl;
+                QciValues ul;
 
                 public Mcs() {
                 }
 
                 @JsonCreator
-                public Mcs(@JsonProperty("dl") SchedMeasRepPerServCell.McsDl dl,
-                           @JsonProperty("ul") SchedMeasRepPerServCell.McsUl ul) {
+                public Mcs(@JsonProperty("dl") QciValues dl,
+                           @JsonProperty("ul") QciValues ul) {
                     this.dl = dl;
                     this.ul = ul;
                 }
@@ -966,7 +1008,7 @@ public class RnibLink {
                  *
                  * @return Dl
                  */
-                public SchedMeasRepPerServCell.McsDl getDl() {
+                public QciValues getDl() {
                     return dl;
                 }
 
@@ -975,7 +1017,7 @@ public class RnibLink {
                  *
                  * @param dl DL
                  */
-                public void setDl(SchedMeasRepPerServCell.McsDl dl) {
+                public void setDl(QciValues dl) {
                     this.dl = dl;
                 }
 
@@ -984,7 +1026,7 @@ public class RnibLink {
                  *
                  * @return Ul
                  */
-                public SchedMeasRepPerServCell.McsUl getUl() {
+                public QciValues getUl() {
                     return ul;
                 }
 
@@ -993,7 +1035,7 @@ public class RnibLink {
                  *
                  * @param ul Ul
                  */
-                public void setUl(SchedMeasRepPerServCell.McsUl ul) {
+                public void setUl(QciValues ul) {
                     this.ul = ul;
                 }
 
@@ -1013,33 +1055,33 @@ public class RnibLink {
             @JsonIgnoreProperties(ignoreUnknown = true)
             public static class NumSchedTtis {
                 @JsonProperty("dl")
-                SchedMeasRepPerServCell.NumSchedTtisDl dl;
+                QciValues dl;
                 @JsonProperty("ul")
-                SchedMeasRepPerServCell.NumSchedTtisUl ul;
+                QciValues ul;
 
                 public NumSchedTtis() {
                 }
 
                 @JsonCreator
-                public NumSchedTtis(@JsonProperty("dl") SchedMeasRepPerServCell.NumSchedTtisDl dl,
-                                    @JsonProperty("ul") SchedMeasRepPerServCell.NumSchedTtisUl ul) {
+                public NumSchedTtis(@JsonProperty("dl") QciValues dl,
+                                    @JsonProperty("ul") QciValues ul) {
                     this.dl = dl;
                     this.ul = ul;
                 }
 
-                public SchedMeasRepPerServCell.NumSchedTtisDl getDl() {
+                public QciValues getDl() {
                     return dl;
                 }
 
-                public void setDl(SchedMeasRepPerServCell.NumSchedTtisDl dl) {
+                public void setDl(QciValues dl) {
                     this.dl = dl;
                 }
 
-                public SchedMeasRepPerServCell.NumSchedTtisUl getUl() {
+                public QciValues getUl() {
                     return ul;
                 }
 
-                public void setUl(SchedMeasRepPerServCell.NumSchedTtisUl ul) {
+                public void setUl(QciValues ul) {
                     this.ul = ul;
                 }
 
@@ -1059,33 +1101,33 @@ public class RnibLink {
             @JsonIgnoreProperties(ignoreUnknown = true)
             public static class DlRankStats {
                 @JsonProperty("Rank-1")
-                SchedMeasRepPerServCell.RankDl1 rankDl1;
+                QciValues rankDl1;
                 @JsonProperty("Rank-2")
-                SchedMeasRepPerServCell.RankDl2 rankDl2;
+                QciValues rankDl2;
 
                 public DlRankStats() {
                 }
 
                 @JsonCreator
-                public DlRankStats(@JsonProperty("Rank-1") SchedMeasRepPerServCell.RankDl1 rankDl1,
-                                   @JsonProperty("Rank-2") SchedMeasRepPerServCell.RankDl2 rankDl2) {
+                public DlRankStats(@JsonProperty("Rank-1") QciValues rankDl1,
+                                   @JsonProperty("Rank-2") QciValues rankDl2) {
                     this.rankDl1 = rankDl1;
                     this.rankDl2 = rankDl2;
                 }
 
-                public SchedMeasRepPerServCell.RankDl1 getRankDl1() {
+                public QciValues getRankDl1() {
                     return rankDl1;
                 }
 
-                public void setRankDl1(SchedMeasRepPerServCell.RankDl1 rankDl1) {
+                public void setRankDl1(QciValues rankDl1) {
                     this.rankDl1 = rankDl1;
                 }
 
-                public SchedMeasRepPerServCell.RankDl2 getRankDl2() {
+                public QciValues getRankDl2() {
                     return rankDl2;
                 }
 
-                public void setRankDl2(SchedMeasRepPerServCell.RankDl2 rankDl2) {
+                public void setRankDl2(QciValues rankDl2) {
                     this.rankDl2 = rankDl2;
                 }
 
@@ -1111,15 +1153,15 @@ public class RnibLink {
         @JsonIgnoreProperties(ignoreUnknown = true)
         public static class PdcpMeasReport {
             @JsonProperty("QCI")
-            PDCPMeasReportPerUe.QciVals qci = new PDCPMeasReportPerUe.QciVals();
+            QciValues qci = QciValues.EMPTY;
             @JsonProperty("PDCPThroughput")
             PdcpThroughput pdcpThroughput = new PdcpThroughput();
             @JsonProperty("Data_vol")
             DataVol dataVol = new DataVol();
             @JsonProperty("Pkt_delay_dl")
-            PDCPMeasReportPerUe.PktDelayDl pktDelayDl;
+            QciValues pktDelayDl;
             @JsonProperty("Pkt_discard_rate_dl")
-            PDCPMeasReportPerUe.PktDiscardRateDl pktDiscardRateDl;
+            QciValues pktDiscardRateDl;
             @JsonProperty("Pkt_loss_rate")
             PktLossRate pktLossRate = new PktLossRate();
             @JsonProperty("timestamp")
@@ -1130,11 +1172,11 @@ public class RnibLink {
 
             @JsonCreator
             public PdcpMeasReport(
-                    @JsonProperty("QCI") PDCPMeasReportPerUe.QciVals qci,
+                    @JsonProperty("QCI") QciValues qci,
                     @JsonProperty("PDCPThroughput") PdcpThroughput pdcpThroughput,
                     @JsonProperty("Data_vol") DataVol dataVol,
-                    @JsonProperty("Pkt_delay_dl") PDCPMeasReportPerUe.PktDelayDl pktDelayDl,
-                    @JsonProperty("Pkt_discard_rate_dl") PDCPMeasReportPerUe.PktDiscardRateDl pktDiscardRateDl,
+                    @JsonProperty("Pkt_delay_dl") QciValues pktDelayDl,
+                    @JsonProperty("Pkt_discard_rate_dl") QciValues pktDiscardRateDl,
                     @JsonProperty("Pkt_loss_rate") PktLossRate pktLossRate
             ) {
                 this.qci = qci;
@@ -1145,11 +1187,11 @@ public class RnibLink {
                 this.pktLossRate = pktLossRate;
             }
 
-            public PDCPMeasReportPerUe.QciVals getQci() {
+            public QciValues getQci() {
                 return qci;
             }
 
-            public void setQci(PDCPMeasReportPerUe.QciVals qci) {
+            public void setQci(QciValues qci) {
                 this.qci = qci;
             }
 
@@ -1169,19 +1211,19 @@ public class RnibLink {
                 this.dataVol = dataVol;
             }
 
-            public PDCPMeasReportPerUe.PktDelayDl getPktDelayDl() {
+            public QciValues getPktDelayDl() {
                 return pktDelayDl;
             }
 
-            public void setPktDelayDl(PDCPMeasReportPerUe.PktDelayDl pktDelayDl) {
+            public void setPktDelayDl(QciValues pktDelayDl) {
                 this.pktDelayDl = pktDelayDl;
             }
 
-            public PDCPMeasReportPerUe.PktDiscardRateDl getPktDiscardRateDl() {
+            public QciValues getPktDiscardRateDl() {
                 return pktDiscardRateDl;
             }
 
-            public void setPktDiscardRateDl(PDCPMeasReportPerUe.PktDiscardRateDl pktDiscardRateDl) {
+            public void setPktDiscardRateDl(QciValues pktDiscardRateDl) {
                 this.pktDiscardRateDl = pktDiscardRateDl;
             }
 
@@ -1221,16 +1263,16 @@ public class RnibLink {
             @JsonIgnoreProperties(ignoreUnknown = true)
             public static class PdcpThroughput {
                 @JsonProperty("dl")
-                private PDCPMeasReportPerUe.ThroughputDl dl;
+                private QciValues dl;
                 @JsonProperty("ul")
-                private PDCPMeasReportPerUe.ThroughputUl ul;
+                private QciValues ul;
 
                 public PdcpThroughput() {
                 }
 
                 @JsonCreator
-                public PdcpThroughput(@JsonProperty("dl") PDCPMeasReportPerUe.ThroughputDl dl,
-                                      @JsonProperty("ul") PDCPMeasReportPerUe.ThroughputUl ul) {
+                public PdcpThroughput(@JsonProperty("dl") QciValues dl,
+                                      @JsonProperty("ul") QciValues ul) {
                     this.dl = dl;
                     this.ul = ul;
                 }
@@ -1240,7 +1282,7 @@ public class RnibLink {
                  *
                  * @return Dl
                  */
-                public PDCPMeasReportPerUe.ThroughputDl getDl() {
+                public QciValues getDl() {
                     return dl;
                 }
 
@@ -1249,7 +1291,7 @@ public class RnibLink {
                  *
                  * @param dl DL
                  */
-                public void setDl(PDCPMeasReportPerUe.ThroughputDl dl) {
+                public void setDl(QciValues dl) {
                     this.dl = dl;
                 }
 
@@ -1258,7 +1300,7 @@ public class RnibLink {
                  *
                  * @return Ul
                  */
-                public PDCPMeasReportPerUe.ThroughputUl getUl() {
+                public QciValues getUl() {
                     return ul;
                 }
 
@@ -1267,7 +1309,7 @@ public class RnibLink {
                  *
                  * @param ul Ul
                  */
-                public void setUl(PDCPMeasReportPerUe.ThroughputUl ul) {
+                public void setUl(QciValues ul) {
                     this.ul = ul;
                 }
 
@@ -1288,16 +1330,16 @@ public class RnibLink {
             @JsonIgnoreProperties(ignoreUnknown = true)
             public static class DataVol {
                 @JsonProperty("dl")
-                private PDCPMeasReportPerUe.DataVolDl dl;
+                private QciValues dl;
                 @JsonProperty("ul")
-                private PDCPMeasReportPerUe.DataVolUl ul;
+                private QciValues ul;
 
                 public DataVol() {
                 }
 
                 @JsonCreator
-                public DataVol(@JsonProperty("dl") PDCPMeasReportPerUe.DataVolDl dl,
-                               @JsonProperty("ul") PDCPMeasReportPerUe.DataVolUl ul) {
+                public DataVol(@JsonProperty("dl") QciValues dl,
+                               @JsonProperty("ul") QciValues ul) {
                     this.dl = dl;
                     this.ul = ul;
                 }
@@ -1307,7 +1349,7 @@ public class RnibLink {
                  *
                  * @return Dl
                  */
-                public PDCPMeasReportPerUe.DataVolDl getDl() {
+                public QciValues getDl() {
                     return dl;
                 }
 
@@ -1316,7 +1358,7 @@ public class RnibLink {
                  *
                  * @param dl DL
                  */
-                public void setDl(PDCPMeasReportPerUe.DataVolDl dl) {
+                public void setDl(QciValues dl) {
                     this.dl = dl;
                 }
 
@@ -1325,7 +1367,7 @@ public class RnibLink {
                  *
                  * @return Ul
                  */
-                public PDCPMeasReportPerUe.DataVolUl getUl() {
+                public QciValues getUl() {
                     return ul;
                 }
 
@@ -1334,7 +1376,7 @@ public class RnibLink {
                  *
                  * @param ul Ul
                  */
-                public void setUl(PDCPMeasReportPerUe.DataVolUl ul) {
+                public void setUl(QciValues ul) {
                     this.ul = ul;
                 }
 
@@ -1355,16 +1397,16 @@ public class RnibLink {
             @JsonIgnoreProperties(ignoreUnknown = true)
             public static class PktLossRate {
                 @JsonProperty("dl")
-                PDCPMeasReportPerUe.PktLossRateDl dl;
+                QciValues dl;
                 @JsonProperty("ul")
-                PDCPMeasReportPerUe.PktLossRateUl ul;
+                QciValues ul;
 
                 public PktLossRate() {
                 }
 
                 @JsonCreator
-                public PktLossRate(@JsonProperty("dl") PDCPMeasReportPerUe.PktLossRateDl dl,
-                                   @JsonProperty("ul") PDCPMeasReportPerUe.PktLossRateUl ul) {
+                public PktLossRate(@JsonProperty("dl") QciValues dl,
+                                   @JsonProperty("ul") QciValues ul) {
                     this.dl = dl;
                     this.ul = ul;
                 }
@@ -1374,7 +1416,7 @@ public class RnibLink {
                  *
                  * @return Dl
                  */
-                public PDCPMeasReportPerUe.PktLossRateDl getDl() {
+                public QciValues getDl() {
                     return dl;
                 }
 
@@ -1383,7 +1425,7 @@ public class RnibLink {
                  *
                  * @param dl DL
                  */
-                public void setDl(PDCPMeasReportPerUe.PktLossRateDl dl) {
+                public void setDl(QciValues dl) {
                     this.dl = dl;
                 }
 
@@ -1392,7 +1434,7 @@ public class RnibLink {
                  *
                  * @return Ul
                  */
-                public PDCPMeasReportPerUe.PktLossRateUl getUl() {
+                public QciValues getUl() {
                     return ul;
                 }
 
@@ -1401,7 +1443,7 @@ public class RnibLink {
                  *
                  * @param ul Ul
                  */
-                public void setUl(PDCPMeasReportPerUe.PktLossRateUl ul) {
+                public void setUl(QciValues ul) {
                     this.ul = ul;
                 }
 
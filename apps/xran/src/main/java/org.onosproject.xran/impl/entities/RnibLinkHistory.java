@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.entities;
+
+import org.onosproject.xran.impl.util.Rollup;
+import org.onosproject.xran.impl.util.SampleRing;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Recent metrics of a link, kept as one sample per report received, and rolled up into 1 s, 10 s and 1 min buckets
+ * that reach further back than the samples. A link keeps fewer coarse buckets than a cell, see
+ * {@link #newCellRollup()}.
+ * Samples are stamped with {@link #now()}, a monotonic clock in milliseconds that is not wall clock time.
+ */
+public final class RnibLinkHistory {
+
+    /**
+     * Number of samples kept per report type.
+     */
+    public static final int CAPACITY = 128;
+
+    // widths of the rollup buckets in milliseconds, finest first.
+    private static final long[] ROLLUP_WIDTHS = {1000, 10000, 60000};
+
+    // buckets kept per width: a link reaches back 1 min, 5 min and 15 min, a cell 1 min, 10 min and 1 h.
+    private static final int[] LINK_ROLLUP_CAPACITIES = {61, 31, 16};
+    private static final int[] CELL_ROLLUP_CAPACITIES = {61, 61, 61};
+
+    /**
+     * Length in milliseconds of the longest window the rollup of a link covers.
+     */
+    public static final long LINK_ROLLUP_REACH = Rollup.reach(ROLLUP_WIDTHS, LINK_ROLLUP_CAPACITIES);
+
+    /**
+     * Length in milliseconds of the longest window the rollup of a cell covers.
+     */
+    public static final long CELL_ROLLUP_REACH = Rollup.reach(ROLLUP_WIDTHS, CELL_ROLLUP_CAPACITIES);
+
+    private static final long ORIGIN = System.nanoTime();
+
+    // one ring per kind of report, created when the first report of that kind is recorded.
+    private final AtomicReferenceArray<SampleRing> rings =
+            new AtomicReferenceArray<>(LinkMetric.Report.values().length);
+    // one column per metric, created with the first report.
+    private final AtomicReference<Rollup> rollup = new AtomicReference<>();
+
+    /**
+     * Get the time on the clock samples are stamped with.
+     *
+     * @return milliseconds since an arbitrary origin, never negative
+     */
+    public static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ORIGIN);
+    }
+
+    /**
+     * Create an empty rollup of all link metrics in 1 s, 10 s and 1 min buckets, as kept per cell, that covers
+     * windows up to {@link #CELL_ROLLUP_REACH}.
+     *
+     * @return rollup with one column per {@link LinkMetric}
+     */
+    public static Rollup newCellRollup() {
+        return new Rollup(LinkMetric.values().length, ROLLUP_WIDTHS, CELL_ROLLUP_CAPACITIES);
+    }
+
+    /**
+     * Record the metrics of the last report of a kind.
+     *
+     * @param measurements measurements of the link, holding the new report
+     * @param report       kind of the new report
+     */
+    public void record(RnibLink.Measurements measurements, LinkMetric.Report report) {
+        LinkMetric[] metrics = LinkMetric.metricsOf(report);
+        double[] sample = new double[metrics.length];
+        for (LinkMetric metric : metrics) {
+            sample[metric.getColumn()] = metric.read(measurements);
+        }
+
+        SampleRing ring = rings.get(report.ordinal());
+        if (ring == null) {
+            rings.compareAndSet(report.ordinal(), null, new SampleRing(CAPACITY, metrics.length));
+            ring = rings.get(report.ordinal());
+        }
+        long time = now();
+        ring.append(time, sample);
+
+        double[] row = new double[LinkMetric.values().length];
+        Arrays.fill(row, Double.NaN);
+        for (LinkMetric metric : metrics) {
+            row[metric.ordinal()] = sample[metric.getColumn()];
+        }
+        if (rollup.get() == null) {
+            rollup.compareAndSet(null, new Rollup(LinkMetric.values().length, ROLLUP_WIDTHS, LINK_ROLLUP_CAPACITIES));
+        }
+        rollup.get().add(time, row);
+    }
+
+    /**
+     * Get the samples of a metric taken at or after a time.
+     *
+     * @param metric metric
+     * @param since  earliest timestamp to return, on the {@link #now()} clock
+     * @return samples oldest first, empty if the report of the metric was never received
+     */
+    public SampleRing.Slice since(LinkMetric metric, long since) {
+        SampleRing ring = rings.get(metric.getReport().ordinal());
+        return ring == null ? SampleRing.Slice.EMPTY : ring.since(since, metric.getColumn());
+    }
+
+    /**
+     * Get the rollup buckets of a metric over a time window, at the finest width that still covers it. Windows longer
+     * than {@link #LINK_ROLLUP_REACH} are only covered in part.
+     *
+     * @param metric metric
+     * @param from   start of the window, on the {@link #now()} clock
+     * @param to     end of the window, on the {@link #now()} clock
+     * @return buckets oldest first, empty if no report was received
+     */
+    public Rollup.Series rollup(LinkMetric metric, long from, long to) {
+        Rollup current = rollup.get();
+        return current == null ? Rollup.Series.EMPTY : current.window(from, to, metric.ordinal());
+    }
+}
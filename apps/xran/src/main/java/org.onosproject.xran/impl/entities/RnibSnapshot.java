@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.entities;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+/**
+ * Serialized view of all CELLs, UEs and links of the R-NIB at one epoch.
+ * The JSON trees are shared by every reader of the same epoch, and by later snapshots for entities that did not
+ * change, so they must not be modified.
+ */
+public final class RnibSnapshot {
+    private final long epoch;
+    private final ArrayNode cells;
+    private final ArrayNode ues;
+    private final ArrayNode links;
+    private final ArrayNode nodes;
+
+    /**
+     * Create a snapshot.
+     *
+     * @param epoch number of changes of the R-NIB when the trees started to be serialized
+     * @param cells serialized CELLs
+     * @param ues   serialized UEs
+     * @param links serialized links
+     */
+    public RnibSnapshot(long epoch, ArrayNode cells, ArrayNode ues, ArrayNode links) {
+        this.epoch = epoch;
+        this.cells = cells;
+        this.ues = ues;
+        this.links = links;
+
+        nodes = cells.arrayNode();
+        nodes.addAll(cells);
+        nodes.addAll(ues);
+    }
+
+    /**
+     * Get the epoch of the R-NIB this snapshot shows.
+     *
+     * @return epoch
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Get the CELLs.
+     *
+     * @return JSON array of CELLs
+     */
+    public JsonNode getCells() {
+        return cells;
+    }
+
+    /**
+     * Get the UEs.
+     *
+     * @return JSON array of UEs
+     */
+    public JsonNode getUes() {
+        return ues;
+    }
+
+    /**
+     * Get the CELLs followed by the UEs.
+     *
+     * @return JSON array of nodes
+     */
+    public JsonNode getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the links.
+     *
+     * @return JSON array of links
+     */
+    public JsonNode getLinks() {
+        return links;
+    }
+}
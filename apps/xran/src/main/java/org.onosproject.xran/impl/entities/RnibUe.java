@@ -21,6 +21,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.netty.util.Timeout;
 import org.onlab.packet.MacAddress;
 import org.onosproject.net.HostId;
 import org.onosproject.xran.asn1lib.api.CRNTI;
@@ -28,12 +29,11 @@ import org.onosproject.xran.asn1lib.api.ENBUES1APID;
 import org.onosproject.xran.asn1lib.api.MMEUES1APID;
 import org.onosproject.xran.asn1lib.pdu.RRCMeasConfig;
 import org.onosproject.xran.asn1lib.pdu.UECapabilityInfo;
+import org.onosproject.xran.impl.util.Revision;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -69,7 +69,10 @@ public class RnibUe {
     @JsonProperty("MeasurementConfiguration")
     private RRCMeasConfig measConfig;
     @JsonIgnore
-    private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private Timeout timer;
+    // changed by the store around every in place modification, so that serialized copies can be reused.
+    @JsonIgnore
+    private final Revision revision = new Revision();
 
     /**
      * Convert Host ID to UE ID.
@@ -84,22 +87,34 @@ public class RnibUe {
     }
 
     /**
-     * Get timer.
+     * Get the pending removal timer.
+     *
+     * @return Timeout or null if no timer is armed
+     */
+    public Timeout getTimer() {
+        return timer;
+    }
+
+    /**
+     * Set the pending removal timer, cancelling the previous one.
      *
-     * @return Timer
+     * @param timer new timer or null to only cancel the previous one
      */
-    public ScheduledExecutorService getExecutor() {
-        return executor;
+    public synchronized void setTimer(Timeout timer) {
+        if (this.timer != null) {
+            this.timer.cancel();
+        }
+        this.timer = timer;
     }
 
     /**
-     * Set executor.
+     * Get the revision the store keeps of in place modifications.
      *
-     * @param executor executor
+     * @return Revision
      */
-    public void setExecutor(ScheduledExecutorService executor) {
-        this.executor.shutdown();
-        this.executor = executor;
+    @JsonIgnore
+    public Revision getRevision() {
+        return revision;
     }
 
     /**
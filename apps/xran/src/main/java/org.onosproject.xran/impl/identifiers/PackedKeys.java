@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.identifiers;
+
+import org.onosproject.xran.asn1lib.api.CRNTI;
+import org.onosproject.xran.asn1lib.api.ECGI;
+import org.onosproject.xran.asn1lib.api.EUTRANCellIdentifier;
+
+/**
+ * Primitive keys packed from ASN.1 identifiers.
+ * Two identifiers have the same key exactly when they are equal.
+ */
+public final class PackedKeys {
+
+    /**
+     * Key returned when identifiers cannot be packed, e.g. because they are missing or too long.
+     * No packed pair of identifiers is equal to it.
+     */
+    public static final long NONE = -1L;
+
+    private static final int ECI_BYTES = 4;
+
+    private static final int CRNTI_BYTES = 2;
+
+    private static final long MAX_UE_ID = Integer.MAX_VALUE;
+
+    private PackedKeys() {
+    }
+
+    /**
+     * Pack the 28-bit ECI, as held in its 4 bytes, into an int.
+     *
+     * @param eci ECI object
+     * @return packed ECI
+     * @throws IllegalArgumentException if the ECI is not held in 4 bytes
+     */
+    public static int eci(EUTRANCellIdentifier eci) {
+        return eci(eci.value);
+    }
+
+    /**
+     * Check whether the bytes can hold an ECI.
+     *
+     * @param value bytes of a bit string
+     * @return true if the bytes can be packed with {@link #eci(byte[])}
+     */
+    public static boolean isEci(byte[] value) {
+        return value != null && value.length == ECI_BYTES;
+    }
+
+    /**
+     * Pack the 4 bytes of an ECI into an int.
+     *
+     * @param value bytes of the ECI bit string
+     * @return packed ECI
+     * @throws IllegalArgumentException if the ECI is not held in 4 bytes
+     */
+    public static int eci(byte[] value) {
+        if (!isEci(value)) {
+            throw new IllegalArgumentException("ECI must be held in " + ECI_BYTES + " bytes");
+        }
+        return (value[0] & 0xFF) << 24 | (value[1] & 0xFF) << 16 | (value[2] & 0xFF) << 8 | (value[3] & 0xFF);
+    }
+
+    /**
+     * Pack the ECI of an ECGI and a 16-bit CRNTI into a long.
+     * ECGIs are equal when their ECIs are, so the PLMN ID is left out.
+     *
+     * @param ecgi  ECGI of the CELL
+     * @param crnti CRNTI of the UE at that CELL
+     * @return packed key, or {@link #NONE} if either cannot be packed
+     */
+    public static long ecgiCrnti(ECGI ecgi, CRNTI crnti) {
+        if (ecgi == null || ecgi.getEUTRANcellIdentifier() == null || !isEci(ecgi.getEUTRANcellIdentifier().value) ||
+                crnti == null || crnti.value == null || crnti.value.length != CRNTI_BYTES) {
+            return NONE;
+        }
+        long eci = eci(ecgi.getEUTRANcellIdentifier().value) & 0xFFFFFFFFL;
+        return eci << 16 | (crnti.value[0] & 0xFF) << 8 | (crnti.value[1] & 0xFF);
+    }
+
+    /**
+     * Pack the ECI of an ECGI and a UE ID into a long.
+     *
+     * @param ecgi ECGI of the CELL
+     * @param ueId UE ID
+     * @return packed key, or {@link #NONE} if the ECI cannot be packed or the UE ID does not fit in 31 bits
+     */
+    public static long link(ECGI ecgi, long ueId) {
+        if (ecgi == null || ecgi.getEUTRANcellIdentifier() == null || !isEci(ecgi.getEUTRANcellIdentifier().value) ||
+                ueId < 0 || ueId > MAX_UE_ID) {
+            return NONE;
+        }
+        return (long) eci(ecgi.getEUTRANcellIdentifier().value) << 32 | ueId;
+    }
+}
@@ -16,12 +16,15 @@
 
 package org.onosproject.xran.impl.providers;
 
+import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.onlab.packet.ChassisId;
+import org.onosproject.cluster.ClusterService;
+import org.onosproject.mastership.MastershipService;
 import org.onosproject.net.AnnotationKeys;
 import org.onosproject.net.DefaultAnnotations;
 import org.onosproject.net.Device;
@@ -38,10 +41,16 @@ import org.onosproject.net.provider.AbstractProvider;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.xran.XranService;
 import org.onosproject.xran.XranDeviceListener;
+import org.onosproject.xran.XranStore;
+import org.onosproject.xran.asn1lib.api.ECGI;
 import org.onosproject.xran.impl.entities.RnibCell;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.util.Optional;
+
 import static org.onosproject.net.DeviceId.deviceId;
+import static org.onosproject.xran.impl.entities.RnibCell.decodeDeviceId;
 import static org.onosproject.xran.impl.entities.RnibCell.uri;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -57,6 +66,12 @@ public class CellDeviceProvider extends AbstractProvider implements DeviceProvid
     protected DeviceProviderRegistry providerRegistry;
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected XranService controller;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected XranStore xranStore;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MastershipService mastershipService;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ClusterService clusterService;
     private DeviceProviderService providerService;
 
     public CellDeviceProvider() {
@@ -82,17 +97,47 @@ public class CellDeviceProvider extends AbstractProvider implements DeviceProvid
 
     @Override
     public void triggerProbe(DeviceId deviceId) {
-
+        // only the master reports the cell gone, so a standby never takes it down while the master still serves it.
+        if (providerService != null && mastershipService.isLocalMaster(deviceId) && !isReachable(deviceId)) {
+            providerService.deviceDisconnected(deviceId);
+        }
     }
 
     @Override
     public void roleChanged(DeviceId deviceId, MastershipRole newRole) {
+        if (providerService == null) {
+            return;
+        }
+
+        Optional<ECGI> ecgi = ecgiOf(deviceId);
+        boolean connected = ecgi.flatMap(xranStore::getCtx).isPresent();
+        if (newRole == MastershipRole.MASTER) {
+            // the instance holding the association masters the cell. A cell held by another instance is left to
+            // it, while a cell held by none is mastered here until it connects somewhere.
+            boolean heldElsewhere = !connected && ecgi.flatMap(xranStore::getCellOwner).isPresent();
+            providerService.receivedRoleReply(deviceId, newRole, heldElsewhere ? MastershipRole.STANDBY : newRole);
+            return;
+        }
 
+        if (connected) {
+            // mastership moved away, but the cell keeps being served here: its association is only closed if it
+            // can reconnect to the new master, which then claims the cell once it is released on disconnection.
+            controller.relinquishCell(ecgi.get(), mastershipService.getMasterFor(deviceId));
+        }
+        providerService.receivedRoleReply(deviceId, newRole, newRole);
     }
 
     @Override
     public boolean isReachable(DeviceId deviceId) {
-        return true;
+        Optional<ECGI> ecgi = ecgiOf(deviceId);
+        if (ecgi.flatMap(xranStore::getCtx).map(ctx -> ctx.channel().isActive()).orElse(false)) {
+            return true;
+        }
+        // a cell terminated by another instance is reachable as long as that instance is alive.
+        return ecgi.flatMap(xranStore::getCellOwner)
+                .filter(owner -> !owner.equals(clusterService.getLocalNode().id()))
+                .map(owner -> clusterService.getState(owner).isActive())
+                .orElse(false);
     }
 
     @Override
@@ -100,6 +145,21 @@ public class CellDeviceProvider extends AbstractProvider implements DeviceProvid
 
     }
 
+    /**
+     * Get the ECGI of a cell device.
+     *
+     * @param deviceId device ID
+     * @return ECGI if the device ID is the URI of one
+     */
+    private Optional<ECGI> ecgiOf(DeviceId deviceId) {
+        try {
+            return Optional.of(decodeDeviceId(deviceId));
+        } catch (IOException e) {
+            log.warn(ExceptionUtils.getFullStackTrace(e));
+            return Optional.empty();
+        }
+    }
+
     /**
      * Internal device listener.
      */
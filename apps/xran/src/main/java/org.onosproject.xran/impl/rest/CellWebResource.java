@@ -23,15 +23,20 @@ import org.apache.commons.lang.exception.ExceptionUtils;
 import org.onosproject.rest.AbstractWebResource;
 import org.onosproject.xran.XranService;
 import org.onosproject.xran.XranStore;
+import org.onosproject.xran.impl.entities.LinkMetric;
+import org.onosproject.xran.impl.entities.RnibLinkHistory;
+import org.onosproject.xran.impl.util.Rollup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.PATCH;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.InputStream;
@@ -73,7 +78,9 @@ public class CellWebResource extends AbstractWebResource {
     public Response getCell(@PathParam("cellid") String eciHex) {
         return xranStore.getCell(eciHex).map(cell -> {
             try {
-                JsonNode jsonNode = mapper().valueToTree(cell);
+                ObjectNode jsonNode = mapper().valueToTree(cell);
+                xranStore.getMeasurementTable().getAggregate(cell.getEcgi())
+                        .ifPresent(kpis -> jsonNode.set("KPIs", mapper().valueToTree(kpis)));
 
                 return ResponseHelper.getResponse(
                         mapper(),
@@ -101,6 +108,58 @@ public class CellWebResource extends AbstractWebResource {
         ));
     }
 
+    /**
+     * List the min, max, mean and last of the KPIs of the cell with {cellid} over a recent window, in buckets of
+     * 1 s, 10 s or 1 min, whichever is the finest that still reaches back to the start of the window.
+     *
+     * @param eciHex EutranCellIdentifier in binary
+     * @param window length of the window in milliseconds, ending now, at most 1 h
+     * @return Response
+     */
+    @GET
+    @Path("{cellid}/rollup")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "HTTP_OK"),
+            @ApiResponse(code = 400, message = "HTTP_BAD_REQUEST"),
+            @ApiResponse(code = 404, message = "HTTP_NOT_FOUND")
+    })
+    public Response getCellRollup(@PathParam("cellid") String eciHex,
+                                  @DefaultValue("60000") @QueryParam("window") long window) {
+        if (Math.abs(window) > RnibLinkHistory.CELL_ROLLUP_REACH) {
+            return ResponseHelper.getResponse(
+                    mapper(),
+                    HttpURLConnection.HTTP_BAD_REQUEST,
+                    "Bad Request",
+                    "The window cannot be longer than " + RnibLinkHistory.CELL_ROLLUP_REACH + " ms"
+            );
+        }
+
+        return xranStore.getCell(eciHex).map(cell -> {
+            long now = RnibLinkHistory.now();
+            long from = now - Math.abs(window);
+
+            ObjectNode rollup = mapper().createObjectNode();
+            rollup.put("now", now);
+            rollup.put("since", from);
+            for (LinkMetric metric : LinkMetric.values()) {
+                rollup.set(metric.toString(), ResponseHelper.getRollupNode(mapper(), xranStore.getMeasurementTable()
+                        .getRollup(cell.getEcgi(), metric, from, now).orElse(Rollup.Series.EMPTY)));
+            }
+
+            return ResponseHelper.getResponse(
+                    mapper(),
+                    HttpURLConnection.HTTP_OK,
+                    rollup
+            );
+        }).orElse(ResponseHelper.getResponse(
+                mapper(),
+                HttpURLConnection.HTTP_NOT_FOUND,
+                "Not Found",
+                "Cell with " + eciHex + " was not found"
+        ));
+    }
+
     /**
      * Modify the RRMConfig parameters of the cell.
      *
@@ -16,6 +16,7 @@
 package org.onosproject.xran.impl.rest;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.Lists;
 import io.swagger.annotations.ApiResponse;
@@ -25,9 +26,12 @@ import org.onosproject.rest.AbstractWebResource;
 import org.onosproject.xran.XranService;
 import org.onosproject.xran.XranStore;
 import org.onosproject.xran.asn1lib.ber.types.BerInteger;
+import org.onosproject.xran.impl.entities.LinkMetric;
 import org.onosproject.xran.impl.entities.RnibCell;
 import org.onosproject.xran.impl.entities.RnibLink;
+import org.onosproject.xran.impl.entities.RnibLinkHistory;
 import org.onosproject.xran.impl.entities.RnibUe;
+import org.onosproject.xran.impl.util.SampleRing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,6 +86,7 @@ public class LinkWebResource extends AbstractWebResource {
     public Response getLinksBetween(@DefaultValue("") @QueryParam("cell") String eciHex,
                                     @DefaultValue("-1") @QueryParam("ue") long ue) {
         List<RnibLink> list = Lists.newArrayList();
+        JsonNode allLinks = null;
         if (!eciHex.isEmpty() && ue != -1) {
             xranStore.getLink(eciHex, ue).ifPresent(list::add);
         } else if (!eciHex.isEmpty()) {
@@ -89,12 +94,13 @@ public class LinkWebResource extends AbstractWebResource {
         } else if (ue != -1) {
             list.addAll(xranStore.getLinks(ue));
         } else {
-            list.addAll(xranStore.getLinks());
+            // all links come serialized from the shared snapshot.
+            allLinks = xranStore.getSnapshot().getLinks();
         }
 
-        if (list.size() > 0) {
+        if (list.size() > 0 || allLinks != null && allLinks.size() > 0) {
             try {
-                JsonNode jsonNode = mapper().valueToTree(list);
+                JsonNode jsonNode = allLinks != null ? allLinks : mapper().valueToTree(list);
 
                 return ResponseHelper.getResponse(
                         mapper(),
@@ -123,6 +129,112 @@ public class LinkWebResource extends AbstractWebResource {
         );
     }
 
+    /**
+     * List the recent measurements of the link connecting cell and UE.
+     *
+     * @param src   CELL ECI in binary
+     * @param dst   UE ID
+     * @param since earliest sample time in milliseconds on the history clock, or if negative how far back from now
+     * @return Response
+     */
+    @GET
+    @Path("{src},{dst}/history")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "HTTP_OK"),
+            @ApiResponse(code = 404, message = "HTTP_NOT_FOUND")
+    })
+    public Response getLinkHistory(@PathParam("src") String src, @PathParam("dst") long dst,
+                                   @DefaultValue("0") @QueryParam("since") long since) {
+        return xranStore.getLink(src, dst).map(link -> {
+            long now = RnibLinkHistory.now();
+            long from = since < 0 ? now + since : since;
+
+            ObjectNode history = mapper().createObjectNode();
+            history.put("now", now);
+            history.put("since", from);
+            for (LinkMetric metric : LinkMetric.values()) {
+                SampleRing.Slice slice = link.getHistory().since(metric, from);
+                ObjectNode samples = history.putObject(metric.toString());
+                ArrayNode times = samples.putArray("timestamps");
+                ArrayNode values = samples.putArray("values");
+                for (int i = 0; i < slice.size(); i++) {
+                    times.add(slice.time(i));
+                    // metrics missing from a report are NaN, which JSON cannot hold.
+                    if (Double.isNaN(slice.value(i))) {
+                        values.addNull();
+                    } else {
+                        values.add(slice.value(i));
+                    }
+                }
+            }
+
+            return ResponseHelper.getResponse(
+                    mapper(),
+                    HttpURLConnection.HTTP_OK,
+                    history
+            );
+        }).orElse(ResponseHelper.getResponse(
+                mapper(),
+                HttpURLConnection.HTTP_NOT_FOUND,
+                "Not Found",
+                "Specified link not found"
+        ));
+    }
+
+    /**
+     * List the min, max, mean and last of the measurements of the link connecting cell and UE over a recent window,
+     * in buckets of 1 s, 10 s or 1 min, whichever is the finest that still reaches back to the start of the window.
+     *
+     * @param src    CELL ECI in binary
+     * @param dst    UE ID
+     * @param window length of the window in milliseconds, ending now, at most 15 min
+     * @return Response
+     */
+    @GET
+    @Path("{src},{dst}/rollup")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "HTTP_OK"),
+            @ApiResponse(code = 400, message = "HTTP_BAD_REQUEST"),
+            @ApiResponse(code = 404, message = "HTTP_NOT_FOUND")
+    })
+    public Response getLinkRollup(@PathParam("src") String src, @PathParam("dst") long dst,
+                                  @DefaultValue("60000") @QueryParam("window") long window) {
+        if (Math.abs(window) > RnibLinkHistory.LINK_ROLLUP_REACH) {
+            return ResponseHelper.getResponse(
+                    mapper(),
+                    HttpURLConnection.HTTP_BAD_REQUEST,
+                    "Bad Request",
+                    "The window cannot be longer than " + RnibLinkHistory.LINK_ROLLUP_REACH + " ms"
+            );
+        }
+
+        return xranStore.getLink(src, dst).map(link -> {
+            long now = RnibLinkHistory.now();
+            long from = now - Math.abs(window);
+
+            ObjectNode rollup = mapper().createObjectNode();
+            rollup.put("now", now);
+            rollup.put("since", from);
+            for (LinkMetric metric : LinkMetric.values()) {
+                rollup.set(metric.toString(), ResponseHelper.getRollupNode(mapper(),
+                        link.getHistory().rollup(metric, from, now)));
+            }
+
+            return ResponseHelper.getResponse(
+                    mapper(),
+                    HttpURLConnection.HTTP_OK,
+                    rollup
+            );
+        }).orElse(ResponseHelper.getResponse(
+                mapper(),
+                HttpURLConnection.HTTP_NOT_FOUND,
+                "Not Found",
+                "Specified link not found"
+        ));
+    }
+
     /**
      * Modify the link.
      *
@@ -348,7 +460,7 @@ public class LinkWebResource extends AbstractWebResource {
                             )
                             .orElseGet(
                                     () -> {
-                                        link.setType(RnibLink.Type.SERVING_PRIMARY);
+                                        xranStore.modifyLinkType(link, RnibLink.Type.SERVING_PRIMARY);
                                         return ResponseHelper.getResponse(
                                                 mapper(),
                                                 HttpURLConnection.HTTP_OK,
@@ -462,15 +574,17 @@ public class LinkWebResource extends AbstractWebResource {
      * @return Response
      */
     private Response handleTrafficChange(RnibLink link, JsonNode trafficpercent) {
-        JsonNode jsonNode = trafficpercent.path("traffic-percent-dl");
-        if (!jsonNode.isMissingNode()) {
-            link.getTrafficPercent().setTrafficPercentDl(new BerInteger(jsonNode.asInt()));
-        }
+        xranStore.modifyLink(link, l -> {
+            JsonNode jsonNode = trafficpercent.path("traffic-percent-dl");
+            if (!jsonNode.isMissingNode()) {
+                l.getTrafficPercent().setTrafficPercentDl(new BerInteger(jsonNode.asInt()));
+            }
 
-        jsonNode = trafficpercent.path("traffic-percent-ul");
-        if (!jsonNode.isMissingNode()) {
-            link.getTrafficPercent().setTrafficPercentUl(new BerInteger(jsonNode.asInt()));
-        }
+            jsonNode = trafficpercent.path("traffic-percent-ul");
+            if (!jsonNode.isMissingNode()) {
+                l.getTrafficPercent().setTrafficPercentUl(new BerInteger(jsonNode.asInt()));
+            }
+        });
 
         return ResponseHelper.getResponse(
                 mapper(),
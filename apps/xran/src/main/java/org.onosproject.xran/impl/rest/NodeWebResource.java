@@ -22,6 +22,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.onosproject.rest.AbstractWebResource;
 import org.onosproject.xran.XranStore;
+import org.onosproject.xran.impl.entities.RnibSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,14 +65,14 @@ public class NodeWebResource extends AbstractWebResource {
     public Response getNodes(@DefaultValue("") @QueryParam("type") String type) {
         JsonNode jsonNode;
         try {
-            List<? extends Object> nodes;
+            RnibSnapshot snapshot = get(XranStore.class).getSnapshot();
             // List cell type of nodes or UE type of nodes.
             if (StringUtils.isBlank(type)) {
-                nodes = get(XranStore.class).getNodes();
+                jsonNode = snapshot.getNodes();
             } else if (type.equals("cell")) {
-                nodes = get(XranStore.class).getCellNodes();
+                jsonNode = snapshot.getCells();
             } else if (type.equals("ue")) {
-                nodes = get(XranStore.class).getUeNodes();
+                jsonNode = snapshot.getUes();
             } else {
                 return ResponseHelper.getResponse(
                         mapper(),
@@ -81,7 +82,7 @@ public class NodeWebResource extends AbstractWebResource {
                 );
             }
 
-            if (nodes.size() == 0) {
+            if (jsonNode.size() == 0) {
                 return ResponseHelper.getResponse(
                         mapper(),
                         HttpURLConnection.HTTP_NOT_FOUND,
@@ -89,8 +90,6 @@ public class NodeWebResource extends AbstractWebResource {
                         "No nodes found"
                 );
             }
-
-            jsonNode = mapper().valueToTree(nodes);
         } catch (Exception e) {
             String fullStackTrace = ExceptionUtils.getFullStackTrace(e);
             log.error(fullStackTrace);
@@ -125,7 +124,7 @@ public class NodeWebResource extends AbstractWebResource {
             @ApiResponse(code = 404, message = "HTTP_NOT_FOUND")
     })
     public Response getNodeid(@PathParam("nodeid") String nodeid) {
-        Object node = get(XranStore.class).getNode(nodeid);
+        Object node = get(XranStore.class).getNode(nodeid).orElse(null);
 
         if (node != null) {
             try {
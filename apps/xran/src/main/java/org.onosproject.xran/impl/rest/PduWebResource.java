@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.xran.impl.rest;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.onosproject.rest.AbstractWebResource;
+import org.onosproject.xran.XranPduType;
+import org.onosproject.xran.XranService;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.HttpURLConnection;
+
+/**
+ * PDU handling web resource.
+ */
+@Path("pdus")
+public class PduWebResource extends AbstractWebResource {
+
+    private XranService xranService;
+
+    public PduWebResource() {
+        xranService = get(XranService.class);
+    }
+
+    /**
+     * List the handler invocations, failures and time spent in handlers for each type of received PDU, and the
+     * number of PDUs dropped because no handler was registered.
+     *
+     * @return Response
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "HTTP_OK")
+    })
+    public Response getPduStats() {
+        ObjectNode stats = mapper().createObjectNode();
+        stats.put("unhandled", xranService.getUnhandledPdus());
+        ObjectNode types = stats.putObject("handled");
+        for (XranPduType type : XranPduType.values()) {
+            long invocations = xranService.getPduInvocations(type);
+            if (invocations == 0) {
+                continue;
+            }
+            ObjectNode node = types.putObject(type.pduName());
+            node.put("invocations", invocations);
+            node.put("failures", xranService.getPduFailures(type));
+            node.put("nanos", xranService.getPduHandlingNanos(type));
+        }
+
+        return ResponseHelper.getResponse(
+                mapper(),
+                HttpURLConnection.HTTP_OK,
+                stats
+        );
+    }
+}
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.onosproject.xran.impl.util.Rollup;
 
 import javax.ws.rs.core.Response;
 
@@ -64,6 +65,32 @@ public final class ResponseHelper {
         }
     }
 
+    /**
+     * Write the buckets of a rollup as parallel arrays. Buckets without a value are left out of a series, so none of
+     * the values is NaN.
+     *
+     * @param mapper ObjectMapper
+     * @param series buckets of one metric
+     * @return object with the bucket width, start times and min/max/mean/last arrays
+     */
+    public static ObjectNode getRollupNode(ObjectMapper mapper, Rollup.Series series) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("width", series.getWidth());
+        ArrayNode times = node.putArray("timestamps");
+        ArrayNode mins = node.putArray("min");
+        ArrayNode maxs = node.putArray("max");
+        ArrayNode means = node.putArray("mean");
+        ArrayNode lasts = node.putArray("last");
+        for (int i = 0; i < series.size(); i++) {
+            times.add(series.time(i));
+            mins.add(series.min(i));
+            maxs.add(series.max(i));
+            means.add(series.mean(i));
+            lasts.add(series.last(i));
+        }
+        return node;
+    }
+
     public static Response getResponse(ObjectMapper mapper, int status, JsonNode node) {
         ObjectNode rootNode = mapper.createObjectNode();
 
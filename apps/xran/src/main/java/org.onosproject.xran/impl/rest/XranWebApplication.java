@@ -29,6 +29,7 @@ public class XranWebApplication extends AbstractWebApplication {
         return getClasses(
                 LinkWebResource.class,
                 NodeWebResource.class,
+                PduWebResource.class,
                 CellWebResource.class,
                 SliceWebResource.class);
     }
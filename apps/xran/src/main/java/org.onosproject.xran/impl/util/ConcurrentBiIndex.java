@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * One to one index between keys and values that can be used from many threads.
+ * Lookups in either direction do not lock. Writes lock the stripes of every key and value they change, so writes
+ * that touch different entries run in parallel. During a write a lookup in one direction may see the new entry
+ * before a lookup in the other direction does.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public class ConcurrentBiIndex<K, V> {
+
+    private static final int STRIPES = 64;
+
+    private final ConcurrentMap<K, V> forward = new ConcurrentHashMap<>();
+    private final ConcurrentMap<V, K> inverse = new ConcurrentHashMap<>();
+
+    // keys and values share the stripes; an entry is only changed while the stripes of its key and value are held.
+    private final Striped<Lock> stripes = Striped.lock(STRIPES);
+
+    private final BiConsumer<? super K, ? super V> listener;
+
+    /**
+     * Create an empty index.
+     */
+    public ConcurrentBiIndex() {
+        this((key, value) -> { });
+    }
+
+    /**
+     * Create an empty index that reports every change of the value bound to a key.
+     * The listener is called while the change is locked, so it sees the changes of each key in order and can keep
+     * a secondary index of the keys in step with this one. It must not call back into this index.
+     *
+     * @param listener called with a key and its new value, or null if the key was unbound
+     */
+    public ConcurrentBiIndex(BiConsumer<? super K, ? super V> listener) {
+        this.listener = checkNotNull(listener, "listener cannot be null");
+    }
+
+    /**
+     * Get the value bound to a key.
+     *
+     * @param key key
+     * @return value or null if the key is not bound
+     */
+    public V get(K key) {
+        return key == null ? null : forward.get(key);
+    }
+
+    /**
+     * Get the key bound to a value.
+     *
+     * @param value value
+     * @return key or null if the value is not bound
+     */
+    public K getKey(V value) {
+        return value == null ? null : inverse.get(value);
+    }
+
+    /**
+     * Bind a key to a value, unbinding the previous value of the key and the previous key of the value.
+     *
+     * @param key   key
+     * @param value value
+     */
+    public void put(K key, V value) {
+        checkNotNull(key, "key cannot be null");
+        checkNotNull(value, "value cannot be null");
+
+        while (true) {
+            V oldValue = forward.get(key);
+            K oldKey = inverse.get(value);
+            Iterable<Lock> locks = lock(key, value, oldValue, oldKey);
+            try {
+                if (Objects.equals(forward.get(key), oldValue) && Objects.equals(inverse.get(value), oldKey)) {
+                    if (oldValue != null) {
+                        inverse.remove(oldValue, key);
+                    }
+                    if (oldKey != null && forward.remove(oldKey, value)) {
+                        listener.accept(oldKey, null);
+                    }
+                    inverse.put(value, key);
+                    forward.put(key, value);
+                    listener.accept(key, value);
+                    return;
+                }
+            } finally {
+                unlock(locks);
+            }
+        }
+    }
+
+    /**
+     * Move a value from one key to another, if it is still bound to the first.
+     * A value previously bound to the new key is unbound.
+     *
+     * @param value  value
+     * @param oldKey key the value is expected to be bound to
+     * @param newKey key to bind the value to
+     * @return true if the value was moved, false if it was not bound to the old key
+     */
+    public boolean rebind(V value, K oldKey, K newKey) {
+        checkNotNull(value, "value cannot be null");
+        checkNotNull(oldKey, "old key cannot be null");
+        checkNotNull(newKey, "new key cannot be null");
+
+        while (true) {
+            V displaced = forward.get(newKey);
+            Iterable<Lock> locks = lock(value, oldKey, newKey, displaced);
+            try {
+                if (!oldKey.equals(inverse.get(value))) {
+                    return false;
+                }
+                if (Objects.equals(forward.get(newKey), displaced)) {
+                    if (forward.remove(oldKey, value)) {
+                        listener.accept(oldKey, null);
+                    }
+                    if (displaced != null) {
+                        inverse.remove(displaced, newKey);
+                    }
+                    inverse.put(value, newKey);
+                    forward.put(newKey, value);
+                    listener.accept(newKey, value);
+                    return true;
+                }
+            } finally {
+                unlock(locks);
+            }
+        }
+    }
+
+    /**
+     * Unbind a key from its value.
+     *
+     * @param key key
+     * @return value that was bound to the key or null
+     */
+    public V removeKey(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        while (true) {
+            V value = forward.get(key);
+            if (value == null) {
+                return null;
+            }
+            Iterable<Lock> locks = lock(key, value);
+            try {
+                if (forward.remove(key, value)) {
+                    inverse.remove(value, key);
+                    listener.accept(key, null);
+                    return value;
+                }
+            } finally {
+                unlock(locks);
+            }
+        }
+    }
+
+    /**
+     * Unbind a value from its key.
+     *
+     * @param value value
+     * @return key that was bound to the value or null
+     */
+    public K removeValue(V value) {
+        if (value == null) {
+            return null;
+        }
+
+        while (true) {
+            K key = inverse.get(value);
+            if (key == null) {
+                return null;
+            }
+            Iterable<Lock> locks = lock(key, value);
+            try {
+                if (inverse.remove(value, key)) {
+                    forward.remove(key, value);
+                    listener.accept(key, null);
+                    return key;
+                }
+            } finally {
+                unlock(locks);
+            }
+        }
+    }
+
+    /**
+     * Run an action on every key and value. Entries changed while iterating may or may not be seen.
+     *
+     * @param action action to run
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forward.forEach(action);
+    }
+
+    /**
+     * Get the number of bound keys.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return forward.size();
+    }
+
+    /**
+     * Unbind all keys. The listener is not called.
+     */
+    public void clear() {
+        List<Lock> locks = Lists.newArrayListWithCapacity(stripes.size());
+        for (int i = 0; i < stripes.size(); i++) {
+            locks.add(stripes.getAt(i));
+        }
+        locks.forEach(Lock::lock);
+        try {
+            forward.clear();
+            inverse.clear();
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    /**
+     * Lock the stripes of the given keys and values, in stripe order so that writers cannot deadlock.
+     *
+     * @param objects keys and values, nulls are skipped
+     * @return locks held
+     */
+    private Iterable<Lock> lock(Object... objects) {
+        List<Object> present = Lists.newArrayListWithCapacity(objects.length);
+        for (Object object : objects) {
+            if (object != null) {
+                present.add(object);
+            }
+        }
+        Iterable<Lock> locks = stripes.bulkGet(present);
+        locks.forEach(Lock::lock);
+        return locks;
+    }
+
+    private static void unlock(Iterable<Lock> locks) {
+        locks.forEach(Lock::unlock);
+    }
+}
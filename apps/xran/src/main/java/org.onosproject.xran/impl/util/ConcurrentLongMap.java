@@ -0,0 +1,286 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Map from primitive long keys to values, for lookups that must not allocate.
+ * Keys are spread over segments, each an open addressing table with linear probing that is written in place while
+ * the segment is locked. Lookups do not lock: a slot gets its key before its value is published, and keeps that key
+ * until the table is rebuilt, so a reader that sees a value also sees its key. Removed keys leave a tombstone that
+ * the same key can reuse; a segment is only rebuilt, and published as a whole, when it grows or its tombstones
+ * pile up, so writes cost O(1) amortized whatever the size of the map.
+ *
+ * @param <V> type of the values
+ */
+public class ConcurrentLongMap<V> {
+
+    private static final int SEGMENTS = 64;
+
+    private static final int MIN_CAPACITY = 4;
+
+    // value of a slot whose key was removed.
+    private static final Object TOMBSTONE = new Object();
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Create an empty map.
+     */
+    public ConcurrentLongMap() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key key
+     * @return value or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = mix(key);
+        Table table = segmentOf(hash).table;
+        int slot = table.find(key, hash);
+        if (slot < 0) {
+            return null;
+        }
+        Object value = table.values.get(slot);
+        return value == TOMBSTONE ? null : (V) value;
+    }
+
+    /**
+     * Put the value of a key.
+     *
+     * @param key   key
+     * @param value value
+     * @return previous value or null
+     */
+    public V put(long key, V value) {
+        checkNotNull(value, "value cannot be null");
+        return update(key, old -> value);
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key key
+     * @return removed value or null
+     */
+    public V remove(long key) {
+        return update(key, old -> null);
+    }
+
+    /**
+     * Remove a key if it has the given value.
+     *
+     * @param key   key
+     * @param value expected value
+     * @return true if the key was removed
+     */
+    public boolean remove(long key, V value) {
+        boolean[] removed = new boolean[1];
+        update(key, old -> {
+            removed[0] = old != null && old.equals(value);
+            return removed[0] ? null : old;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Replace the value of a key with the result of a function of its current value.
+     * The function runs while writes to the segment of the key are held off.
+     *
+     * @param key      key
+     * @param function takes the current value or null, and returns the new value or null to remove the key
+     * @return previous value or null
+     */
+    public V compute(long key, Function<? super V, ? extends V> function) {
+        checkNotNull(function, "function cannot be null");
+        return update(key, function);
+    }
+
+    /**
+     * Run an action on every value. Values written while iterating may or may not be seen.
+     *
+     * @param action action to run
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (Segment segment : segments) {
+            AtomicReferenceArray<Object> values = segment.table.values;
+            for (int i = 0; i < values.length(); i++) {
+                Object value = values.get(i);
+                if (value != null && value != TOMBSTONE) {
+                    action.accept((V) value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of keys.
+     *
+     * @return number of keys
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Remove all keys.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.table = new Table(MIN_CAPACITY);
+                segment.size = 0;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V update(long key, Function<? super V, ? extends V> function) {
+        long hash = mix(key);
+        Segment segment = segmentOf(hash);
+        synchronized (segment) {
+            Table table = segment.table;
+            int slot = table.find(key, hash);
+            Object current = slot < 0 ? null : table.values.get(slot);
+            V old = current == TOMBSTONE ? null : (V) current;
+            V value = function.apply(old);
+            if (value == old) {
+                return old;
+            }
+
+            if (value == null) {
+                table.values.set(slot, TOMBSTONE);
+                segment.size--;
+            } else if (slot >= 0) {
+                table.values.set(slot, value);
+                if (old == null) {
+                    segment.size++;
+                }
+            } else {
+                // a new key takes a free slot; rebuild first if that would leave the table over half used.
+                if ((table.used + 1) * 2 > table.capacity()) {
+                    table = table.rebuild(segment.size + 1);
+                    segment.table = table;
+                }
+                table.insert(key, hash, value);
+                segment.size++;
+            }
+            return old;
+        }
+    }
+
+    // number of slots of the table of the segment of a key, for tests.
+    int capacityOf(long key) {
+        return segmentOf(mix(key)).table.capacity();
+    }
+
+    private Segment segmentOf(long hash) {
+        return segments[(int) (hash >>> 58) & (SEGMENTS - 1)];
+    }
+
+    // spreads packed keys, whose low bits are often alike, over the segments and slots.
+    static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * Segment holding its current table. Only written while locked.
+     */
+    private static final class Segment {
+        private volatile Table table = new Table(MIN_CAPACITY);
+        private volatile int size;
+    }
+
+    /**
+     * Open addressing table with linear probing. A null value marks a slot that never held a key; a slot that did
+     * keeps its key, so probes run past tombstones.
+     */
+    private static final class Table {
+        private final long[] keys;
+        private final AtomicReferenceArray<Object> values;
+        // slots that hold a key, live or removed; only read and written while the segment is locked.
+        private int used;
+
+        private Table(int capacity) {
+            keys = new long[capacity];
+            values = new AtomicReferenceArray<>(capacity);
+        }
+
+        private int capacity() {
+            return keys.length;
+        }
+
+        // slot of a key, live or removed, or -1.
+        private int find(long key, long hash) {
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; values.get(i) != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // the key is written before the value is published, which makes it visible to readers of the value.
+        private void insert(long key, long hash, Object value) {
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            while (values.get(i) != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values.set(i, value);
+            used++;
+        }
+
+        /**
+         * Copy the live keys into a table with room for four times as many keys, so that at least as many writes
+         * as it took to fill it go by before the next rebuild.
+         */
+        private Table rebuild(int live) {
+            int capacity = MIN_CAPACITY;
+            while (capacity < live * 4) {
+                capacity <<= 1;
+            }
+            Table copy = new Table(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                Object value = values.get(i);
+                if (value != null && value != TOMBSTONE) {
+                    copy.insert(keys[i], mix(keys[i]), value);
+                }
+            }
+            return copy;
+        }
+    }
+}
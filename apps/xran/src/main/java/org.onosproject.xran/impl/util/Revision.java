@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Revision of an object that is modified in place.
+ * Writers bracket every modification with {@link #begin()} and {@link #end()}; readers copy the object with
+ * {@link #read(Supplier, int)}, which retries a copy that overlapped a modification. Writers do not wait for readers
+ * nor for each other.
+ */
+public final class Revision {
+
+    private final AtomicLong value = new AtomicLong();
+    private final AtomicInteger writers = new AtomicInteger();
+
+    /**
+     * Start a modification.
+     */
+    public void begin() {
+        writers.incrementAndGet();
+        value.incrementAndGet();
+    }
+
+    /**
+     * End a modification started with {@link #begin()}.
+     */
+    public void end() {
+        value.incrementAndGet();
+        writers.decrementAndGet();
+    }
+
+    /**
+     * Get the revision, which changes with every modification.
+     *
+     * @return revision
+     */
+    public long get() {
+        return value.get();
+    }
+
+    /**
+     * Copy the object while no modification is in progress.
+     *
+     * @param reader copies the object
+     * @param tries  number of copies to attempt
+     * @param <T>    type of the copy
+     * @return copy that did not overlap a modification, or null if every try did
+     */
+    public <T> T read(Supplier<T> reader, int tries) {
+        for (int i = 0; i < tries; i++) {
+            long before = value.get();
+            if (writers.get() == 0) {
+                T copy = reader.get();
+                if (value.get() == before) {
+                    return copy;
+                }
+            }
+            Thread.yield();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.util;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Min, max, mean and last of timestamped samples, folded into fixed width time buckets at several resolutions.
+ * Each resolution keeps a fixed number of buckets in a ring, so memory does not grow with the sample rate and the
+ * coarser resolutions reach further back. NaN values are left out of the buckets.
+ * Min, max and last are kept in single precision, and sums in double precision so that a mean over many samples
+ * stays exact to single precision.
+ */
+public class Rollup {
+
+    private final int columns;
+    // finest first.
+    private final Tier[] tiers;
+    private long lastTime = Long.MIN_VALUE;
+
+    /**
+     * Create an empty rollup.
+     *
+     * @param columns  number of values per sample
+     * @param capacity number of buckets kept per resolution
+     * @param widths   bucket widths, finest first
+     */
+    public Rollup(int columns, int capacity, long... widths) {
+        this(columns, widths, capacities(capacity, widths.length));
+    }
+
+    /**
+     * Create an empty rollup that keeps a different number of buckets per resolution.
+     *
+     * @param columns    number of values per sample
+     * @param widths     bucket widths, finest first
+     * @param capacities number of buckets kept for each width
+     */
+    public Rollup(int columns, long[] widths, int[] capacities) {
+        checkArgument(columns > 0, "columns must be positive");
+        checkArgument(widths.length > 0, "at least one width is needed");
+        checkArgument(capacities.length == widths.length, "one capacity is needed per width");
+        this.columns = columns;
+        tiers = new Tier[widths.length];
+        for (int i = 0; i < widths.length; i++) {
+            checkArgument(widths[i] > 0 && (i == 0 || widths[i] > widths[i - 1]),
+                    "widths must be positive and increasing");
+            checkArgument(capacities[i] > 1, "capacity must be at least 2");
+            tiers[i] = new Tier(widths[i], capacities[i], columns);
+        }
+    }
+
+    /**
+     * Get the length of the longest window that the coarsest resolution holds the start of, once it is full.
+     *
+     * @param widths     bucket widths, finest first
+     * @param capacities number of buckets kept for each width
+     * @return length of the window
+     */
+    public static long reach(long[] widths, int[] capacities) {
+        long reach = 0;
+        for (int i = 0; i < widths.length; i++) {
+            reach = Math.max(reach, (capacities[i] - 1) * widths[i]);
+        }
+        return reach;
+    }
+
+    private static int[] capacities(int capacity, int count) {
+        int[] capacities = new int[count];
+        Arrays.fill(capacities, capacity);
+        return capacities;
+    }
+
+    /**
+     * Fold a sample into the bucket of its time at every resolution.
+     * Times never decrease, so a sample older than the previous one is counted at the previous time.
+     *
+     * @param time   timestamp of the sample, not negative
+     * @param sample one value per column, NaN for a missing value
+     * @throws IllegalArgumentException if the sample does not have one value per column
+     */
+    public synchronized void add(long time, double... sample) {
+        checkArgument(sample.length == columns, "sample must have " + columns + " values");
+        checkArgument(time >= 0, "time must not be negative");
+        time = Math.max(time, lastTime);
+        lastTime = time;
+        for (Tier tier : tiers) {
+            tier.add(time, sample);
+        }
+    }
+
+    /**
+     * Get the buckets of one column that overlap a time window, at the finest resolution still holding the start
+     * of the window. If no resolution reaches back that far, the coarsest one is used.
+     *
+     * @param from   start of the window
+     * @param to     end of the window
+     * @param column column to read
+     * @return buckets with at least one value, oldest first
+     */
+    public synchronized Series window(long from, long to, int column) {
+        checkArgument(column >= 0 && column < columns, "no column " + column);
+        Tier tier = tiers[tiers.length - 1];
+        for (Tier candidate : tiers) {
+            if (candidate.oldest() <= Math.max(from, 0)) {
+                tier = candidate;
+                break;
+            }
+        }
+        return tier.window(from, to, column);
+    }
+
+    /**
+     * Get the bucket widths.
+     *
+     * @return widths, finest first
+     */
+    public long[] getWidths() {
+        return Arrays.stream(tiers).mapToLong(tier -> tier.width).toArray();
+    }
+
+    // buckets of one resolution. A slot is reused by every capacity-th bucket, and is reset when a sample of a new
+    // bucket lands in it; a slot whose start does not match the bucket looked up holds an expired bucket.
+    private static final class Tier {
+        private final long width;
+        private final long[] starts;
+        // column major.
+        private final int[][] counts;
+        private final float[][] mins;
+        private final float[][] maxs;
+        private final double[][] sums;
+        private final float[][] lasts;
+        private long newest = Long.MIN_VALUE;
+
+        private Tier(long width, int capacity, int columns) {
+            this.width = width;
+            starts = new long[capacity];
+            Arrays.fill(starts, Long.MIN_VALUE);
+            counts = new int[columns][capacity];
+            mins = new float[columns][capacity];
+            maxs = new float[columns][capacity];
+            sums = new double[columns][capacity];
+            lasts = new float[columns][capacity];
+        }
+
+        private void add(long time, double[] sample) {
+            long start = time - time % width;
+            int slot = slot(start);
+            if (starts[slot] != start) {
+                starts[slot] = start;
+                for (int column = 0; column < sample.length; column++) {
+                    counts[column][slot] = 0;
+                    sums[column][slot] = 0;
+                }
+            }
+            newest = start;
+            for (int column = 0; column < sample.length; column++) {
+                double value = sample[column];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                float single = (float) value;
+                if (counts[column][slot]++ == 0) {
+                    mins[column][slot] = single;
+                    maxs[column][slot] = single;
+                } else {
+                    mins[column][slot] = Math.min(mins[column][slot], single);
+                    maxs[column][slot] = Math.max(maxs[column][slot], single);
+                }
+                sums[column][slot] += value;
+                lasts[column][slot] = single;
+            }
+        }
+
+        // start of the oldest bucket still held, Long.MAX_VALUE if no sample was added.
+        private long oldest() {
+            return newest == Long.MIN_VALUE ? Long.MAX_VALUE : newest - (starts.length - 1) * width;
+        }
+
+        private Series window(long from, long to, int column) {
+            if (newest == Long.MIN_VALUE || to < from) {
+                return new Series(width, 0);
+            }
+            long first = Math.max(Math.max(from, 0) / width * width, oldest());
+            long last = Math.min(to, newest);
+
+            Series series = new Series(width, (int) Math.max(0, (last - first) / width + 1));
+            for (long start = first; start <= last; start += width) {
+                int slot = slot(start);
+                if (starts[slot] == start && counts[column][slot] > 0) {
+                    series.append(start, mins[column][slot], maxs[column][slot],
+                            sums[column][slot] / counts[column][slot], lasts[column][slot]);
+                }
+            }
+            return series.trim();
+        }
+
+        private int slot(long start) {
+            return (int) ((start / width) % starts.length);
+        }
+    }
+
+    /**
+     * Buckets of one column copied out of a rollup.
+     */
+    public static final class Series {
+        /**
+         * Series without buckets.
+         */
+        public static final Series EMPTY = new Series(0, 0);
+
+        private final long width;
+        private int size;
+        private long[] times;
+        private double[] mins;
+        private double[] maxs;
+        private double[] means;
+        private double[] lasts;
+
+        private Series(long width, int capacity) {
+            this.width = width;
+            times = new long[capacity];
+            mins = new double[capacity];
+            maxs = new double[capacity];
+            means = new double[capacity];
+            lasts = new double[capacity];
+        }
+
+        private void append(long time, double min, double max, double mean, double last) {
+            times[size] = time;
+            mins[size] = min;
+            maxs[size] = max;
+            means[size] = mean;
+            lasts[size] = last;
+            size++;
+        }
+
+        private Series trim() {
+            if (size < times.length) {
+                times = Arrays.copyOf(times, size);
+                mins = Arrays.copyOf(mins, size);
+                maxs = Arrays.copyOf(maxs, size);
+                means = Arrays.copyOf(means, size);
+                lasts = Arrays.copyOf(lasts, size);
+            }
+            return this;
+        }
+
+        /**
+         * Get the width of the buckets.
+         *
+         * @return width of the resolution the buckets were read from
+         */
+        public long getWidth() {
+            return width;
+        }
+
+        /**
+         * Get the number of buckets.
+         *
+         * @return number of buckets
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Get the start time of a bucket.
+         *
+         * @param i index of the bucket, oldest first
+         * @return start time
+         */
+        public long time(int i) {
+            return times[i];
+        }
+
+        /**
+         * Get the smallest value of a bucket.
+         *
+         * @param i index of the bucket, oldest first
+         * @return min
+         */
+        public double min(int i) {
+            return mins[i];
+        }
+
+        /**
+         * Get the largest value of a bucket.
+         *
+         * @param i index of the bucket, oldest first
+         * @return max
+         */
+        public double max(int i) {
+            return maxs[i];
+        }
+
+        /**
+         * Get the mean value of a bucket.
+         *
+         * @param i index of the bucket, oldest first
+         * @return mean
+         */
+        public double mean(int i) {
+            return means[i];
+        }
+
+        /**
+         * Get the last value of a bucket.
+         *
+         * @param i index of the bucket, oldest first
+         * @return last
+         */
+        public double last(int i) {
+            return lasts[i];
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.util;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed capacity ring of timestamped samples kept in primitive arrays.
+ * Each sample has a timestamp and one value per column. Once the ring is full every new sample overwrites the
+ * oldest one. Timestamps never decrease, so a sample older than the previous one is stamped with the previous time.
+ * Values are kept in single precision and widened when copied out.
+ */
+public class SampleRing {
+
+    private final long[] times;
+    // column major, so that a slice of one column is a single copy.
+    private final float[][] values;
+
+    // index the next sample is written at.
+    private int next;
+    private int size;
+
+    /**
+     * Create an empty ring.
+     *
+     * @param capacity number of samples kept
+     * @param columns  number of values per sample
+     */
+    public SampleRing(int capacity, int columns) {
+        checkArgument(capacity > 0, "capacity must be positive");
+        checkArgument(columns > 0, "columns must be positive");
+        times = new long[capacity];
+        values = new float[columns][capacity];
+    }
+
+    /**
+     * Append a sample, overwriting the oldest one if the ring is full.
+     *
+     * @param time   timestamp of the sample
+     * @param sample one value per column
+     * @throws IllegalArgumentException if the sample does not have one value per column
+     */
+    public synchronized void append(long time, double... sample) {
+        checkArgument(sample.length == values.length, "sample must have " + values.length + " values");
+        if (size > 0) {
+            time = Math.max(time, times[index(size - 1)]);
+        }
+        times[next] = time;
+        for (int column = 0; column < values.length; column++) {
+            values[column][next] = (float) sample[column];
+        }
+        next = (next + 1) % times.length;
+        size = Math.min(size + 1, times.length);
+    }
+
+    /**
+     * Copy the samples of one column taken at or after a time, oldest first.
+     *
+     * @param since  earliest timestamp to return
+     * @param column column to copy
+     * @return slice of the ring
+     */
+    public synchronized Slice since(long since, int column) {
+        checkArgument(column >= 0 && column < values.length, "no column " + column);
+
+        // timestamps are sorted in ring order, so the first sample to return is found by bisection.
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[index(mid)] < since) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int count = size - low;
+        long[] sliceTimes = new long[count];
+        double[] sliceValues = new double[count];
+        int start = index(low);
+        int head = Math.min(count, times.length - start);
+        System.arraycopy(times, start, sliceTimes, 0, head);
+        for (int i = 0; i < head; i++) {
+            sliceValues[i] = values[column][start + i];
+        }
+        System.arraycopy(times, 0, sliceTimes, head, count - head);
+        for (int i = head; i < count; i++) {
+            sliceValues[i] = values[column][i - head];
+        }
+        return new Slice(sliceTimes, sliceValues);
+    }
+
+    /**
+     * Get the number of samples held.
+     *
+     * @return number of samples, at most the capacity
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the capacity of the ring.
+     *
+     * @return number of samples kept
+     */
+    public int capacity() {
+        return times.length;
+    }
+
+    // physical index of the i-th oldest sample.
+    private int index(int i) {
+        int oldest = size < times.length ? 0 : next;
+        return (oldest + i) % times.length;
+    }
+
+    /**
+     * Samples of one column copied out of a ring.
+     */
+    public static final class Slice {
+        /**
+         * Slice without samples.
+         */
+        public static final Slice EMPTY = new Slice(new long[0], new double[0]);
+
+        private final long[] times;
+        private final double[] values;
+
+        private Slice(long[] times, double[] values) {
+            this.times = times;
+            this.values = values;
+        }
+
+        /**
+         * Get the number of samples.
+         *
+         * @return number of samples
+         */
+        public int size() {
+            return times.length;
+        }
+
+        /**
+         * Get the timestamp of a sample.
+         *
+         * @param i index of the sample, oldest first
+         * @return timestamp
+         */
+        public long time(int i) {
+            return times[i];
+        }
+
+        /**
+         * Get the value of a sample.
+         *
+         * @param i index of the sample, oldest first
+         * @return value
+         */
+        public double value(int i) {
+            return values[i];
+        }
+
+        /**
+         * Get a copy of the timestamps.
+         *
+         * @return timestamps, oldest first
+         */
+        public long[] getTimes() {
+            return Arrays.copyOf(times, times.length);
+        }
+
+        /**
+         * Get a copy of the values.
+         *
+         * @return values, oldest first
+         */
+        public double[] getValues() {
+            return Arrays.copyOf(values, values.length);
+        }
+    }
+}
@@ -16,20 +16,49 @@
 
 package org.onosproject.xran.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onosproject.cluster.ClusterServiceAdapter;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.store.service.ConsistentMapAdapter;
+import org.onosproject.store.service.Versioned;
+import org.onosproject.xran.XranStoreDelegate;
+import org.onosproject.xran.XranStoreEvent;
+import org.onosproject.xran.XranStoreTransaction;
 import org.onosproject.xran.asn1lib.api.CRNTI;
 import org.onosproject.xran.asn1lib.api.ECGI;
+import org.onosproject.xran.asn1lib.api.ERABID;
+import org.onosproject.xran.asn1lib.api.ERABParams;
+import org.onosproject.xran.asn1lib.api.ERABParamsItem;
 import org.onosproject.xran.asn1lib.api.EUTRANCellIdentifier;
 import org.onosproject.xran.asn1lib.api.PLMNIdentity;
 import org.onosproject.xran.asn1lib.util.HexConverter;
+import org.onosproject.xran.impl.controller.XranStoreEventBatcher;
+import org.onosproject.xran.impl.entities.KpiAggregate;
+import org.onosproject.xran.impl.entities.LinkMetric;
+import org.onosproject.xran.impl.entities.MeasurementTable;
+import org.onosproject.xran.impl.entities.QciValues;
 import org.onosproject.xran.impl.entities.RnibCell;
 import org.onosproject.xran.impl.entities.RnibLink;
+import org.onosproject.xran.impl.entities.RnibLinkHistory;
+import org.onosproject.xran.impl.entities.RnibSnapshot;
 import org.onosproject.xran.impl.entities.RnibUe;
+import org.onosproject.xran.impl.util.Rollup;
+import org.onosproject.xran.impl.util.SampleRing;
 
 import javax.xml.bind.DatatypeConverter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 import static org.junit.Assert.assertEquals;
@@ -48,6 +77,9 @@ public class DefaultXranStoreTest {
     private static final long UEID0 = 0L;
     private static final long UEID1 = 1L;
 
+    private static final NodeId NODE_A = new NodeId("a");
+    private static final NodeId NODE_B = new NodeId("b");
+
     private static DefaultXranStore store = new DefaultXranStore();
 
     private static RnibLink primaryLink0;
@@ -129,6 +161,18 @@ public class DefaultXranStoreTest {
         assertEquals("wrong cell", CELL1, store.getPrimaryCell(UE1).orElseThrow(exception));
     }
 
+    @Test
+    public void changePrimaryLink() throws Exception {
+        store.putPrimaryLink(CELL1, UE0);
+        assertEquals("wrong cell", CELL1, store.getPrimaryCell(UE0).orElseThrow(exception));
+        assertEquals("wrong link", 2, store.getLinks(UEID0).size());
+        assertEquals("wrong link", 2, store.getLinks(CELL1.getEcgi()).size());
+
+        store.putPrimaryLink(CELL0, UE0);
+        assertEquals("wrong cell", CELL0, store.getPrimaryCell(UE0).orElseThrow(exception));
+        assertEquals("wrong link", 2, store.getLinks(UEID0).size());
+    }
+
     @Test
     public void mapSize() throws Exception {
         assertEquals("wrong len", 2, store.getCellNodes().size());
@@ -200,4 +244,439 @@ public class DefaultXranStoreTest {
                 )
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void rebindCrnti() throws Exception {
+        CRNTI crnti = new CRNTI(new byte[]{(byte) 0x0A, (byte) 0x0B}, 16);
+
+        assertEquals("wrong rebind", true, store.rebindCrnti(UE0, CELL0.getEcgi(), CRNTI0, crnti));
+        assertEquals("wrong ue", UE0, store.getUe(CELL0.getEcgi(), crnti).orElseThrow(exception));
+        assertEquals("wrong ue", false, store.getUe(CELL0.getEcgi(), CRNTI0).isPresent());
+        assertEquals("wrong crnti", crnti, store.getCrnti(UEID0).orElseThrow(exception));
+
+        // the UE no longer has the old CRNTI, so a stale rebind must not move it.
+        assertEquals("wrong rebind", false, store.rebindCrnti(UE0, CELL0.getEcgi(), CRNTI0, CRNTI1));
+        assertEquals("wrong ue", UE0, store.getUe(CELL0.getEcgi(), crnti).orElseThrow(exception));
+    }
+
+    @Test
+    public void transact() throws Exception {
+        long version = store.getUeVersion(UEID0);
+
+        assertEquals("wrong transact", true, store.transact(new XranStoreTransaction()
+                .expectUeVersion(UEID0, version)
+                .modifyLinkType(nonServingLink1, RnibLink.Type.SERVING_PRIMARY)));
+        assertEquals("wrong primary", CELL1, store.getPrimaryCell(UE0).orElseThrow(exception));
+        assertEquals("wrong type", RnibLink.Type.NON_SERVING, primaryLink0.getType());
+
+        // the UE changed since the version was read, so the transaction must not apply.
+        assertEquals("wrong transact", false, store.transact(new XranStoreTransaction()
+                .expectUeVersion(UEID0, version)
+                .modifyLinkType(primaryLink0, RnibLink.Type.SERVING_PRIMARY)));
+        assertEquals("wrong primary", CELL1, store.getPrimaryCell(UE0).orElseThrow(exception));
+    }
+
+    @Test
+    public void snapshot() throws Exception {
+        RnibSnapshot snapshot = store.getSnapshot();
+
+        assertEquals("wrong len", 2, snapshot.getCells().size());
+        assertEquals("wrong len", 2, snapshot.getUes().size());
+        assertEquals("wrong len", 4, snapshot.getNodes().size());
+        assertEquals("wrong len", 4, snapshot.getLinks().size());
+
+        // nothing changed, so the same snapshot is shared.
+        assertEquals("wrong snapshot", true, snapshot == store.getSnapshot());
+
+        store.modifyLinkType(nonServingLink0, RnibLink.Type.SERVING_SECONDARY_CA);
+        RnibSnapshot changed = store.getSnapshot();
+        assertEquals("wrong snapshot", true, snapshot.getEpoch() < changed.getEpoch());
+
+        // only the changed link is serialized again.
+        assertEquals("wrong cell", true, snapshot.getCells().get(0) == changed.getCells().get(0));
+        assertEquals("wrong ue", true, snapshot.getUes().get(0) == changed.getUes().get(0));
+        long reserialized = 0;
+        for (int i = 0; i < changed.getLinks().size(); i++) {
+            if (snapshot.getLinks().get(i) != changed.getLinks().get(i)) {
+                reserialized++;
+            }
+        }
+        assertEquals("wrong links", 1, reserialized);
+    }
+
+    @Test
+    public void snapshotBearers() throws Exception {
+        ERABParams bearers = new ERABParams();
+        bearers.getERABParamsItem().add(bearer(1));
+        bearers.getERABParamsItem().add(bearer(2));
+        store.modifyLink(primaryLink0, l -> l.setBearerParameters(bearers));
+        RnibSnapshot snapshot = store.getSnapshot();
+        assertEquals("wrong link", true, contains(snapshot.getLinks(), primaryLink0));
+
+        // a bearer release, as handled for BearerReleaseInd, is seen by the next snapshot.
+        store.modifyLink(primaryLink0, l -> l.releaseBearers(Lists.newArrayList(new ERABID(1))));
+        assertEquals("wrong len", 1, primaryLink0.getBearerParameters().getERABParamsItem().size());
+        RnibSnapshot released = store.getSnapshot();
+        assertEquals("wrong snapshot", true, snapshot.getEpoch() < released.getEpoch());
+        assertEquals("wrong link", false, contains(snapshot.getLinks(), primaryLink0));
+        assertEquals("wrong link", true, contains(released.getLinks(), primaryLink0));
+    }
+
+    private ERABParamsItem bearer(long id) {
+        ERABParamsItem item = new ERABParamsItem();
+        item.setId(new ERABID(id));
+        return item;
+    }
+
+    // whether the snapshot holds the link with its current bearers.
+    private boolean contains(JsonNode links, RnibLink link) {
+        JsonNode json = new ObjectMapper().valueToTree(link);
+        for (JsonNode node : links) {
+            if (node.path("Link-ID").equals(json.path("Link-ID"))
+                    && node.path("BearerParameters").equals(json.path("BearerParameters"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void journal() throws Exception {
+        Path file = Files.createTempFile("rnib", ".journal");
+        DefaultXranStore journaled = new DefaultXranStore();
+        DefaultXranStore restored = new DefaultXranStore();
+        try {
+            journaled.openJournal(file);
+            journaled.storeCell(CELL0);
+            journaled.storeCell(CELL1);
+            journaled.storeUe(CELL0, UE0);
+            journaled.storeUe(CELL1, UE1);
+            journaled.putPrimaryLink(CELL0, UE0);
+            journaled.putPrimaryLink(CELL1, UE1);
+            journaled.putNonServingLink(CELL1, UEID0);
+            journaled.putPrimaryLink(CELL1, UE0);
+            journaled.removeUe(UEID1);
+
+            // restore from the records appended so far, as after a crash.
+            journaled.stopJournal();
+            restored.openJournal(file);
+            assertEquals("wrong len", 2, restored.getCellNodes().size());
+            assertEquals("wrong len", 1, restored.getUeNodes().size());
+            // the links of the removed UE are dropped.
+            assertEquals("wrong len", 2, restored.getLinks().size());
+            assertEquals("wrong type", RnibLink.Type.NON_SERVING,
+                    restored.getLink(CELL0.getEcgi(), UEID0).orElseThrow(exception).getType());
+            RnibUe ue = restored.getUe(CELL1.getEcgi(), CRNTI0).orElseThrow(exception);
+            assertEquals("wrong ue", UEID0, (long) ue.getId());
+            assertEquals("wrong cell", CELL1, restored.getPrimaryCell(ue).orElseThrow(exception));
+        } finally {
+            journaled.closeJournal();
+            restored.closeJournal();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void events() throws Exception {
+        List<XranStoreEvent> events = new ArrayList<>();
+        XranStoreDelegate delegate = events::add;
+        store.setDelegate(delegate);
+        try {
+            store.modifyLinkType(nonServingLink0, RnibLink.Type.SERVING_PRIMARY);
+            store.modifyLinkMeasurements(primaryLink0, measurements -> { });
+        } finally {
+            store.unsetDelegate(delegate);
+        }
+
+        // the previous primary of UE1 is demoted before the link is promoted.
+        assertEquals("wrong len", 3, events.size());
+        assertEquals("wrong event", XranStoreEvent.Type.LINK_TYPE_CHANGED, events.get(0).type());
+        assertEquals("wrong subject", primaryLink1, events.get(0).subject());
+        assertEquals("wrong subject", nonServingLink0, events.get(1).subject());
+        assertEquals("wrong event", XranStoreEvent.Type.LINK_MEASUREMENT_UPDATED, events.get(2).type());
+    }
+
+    @Test
+    public void batchedEvents() throws Exception {
+        List<XranStoreEvent> events = new ArrayList<>();
+        XranStoreEventBatcher batcher = new XranStoreEventBatcher();
+        batcher.addListener(events::add);
+        store.setDelegate(batcher);
+        try {
+            // a link replaced and then removed within a batch is still removed for listeners.
+            store.storeLink(new RnibLink(CELL0, UE1));
+            store.removeLink(nonServingLink0.getLinkId());
+            batcher.flush();
+            assertEquals("wrong len", 1, events.size());
+            assertEquals("wrong event", XranStoreEvent.Type.LINK_REMOVED, events.get(0).type());
+
+            // so is a link removed, added and removed again.
+            store.storeLink(nonServingLink0);
+            batcher.flush();
+            events.clear();
+            store.removeLink(nonServingLink0.getLinkId());
+            store.storeLink(nonServingLink0);
+            store.removeLink(nonServingLink0.getLinkId());
+            batcher.flush();
+            assertEquals("wrong len", 1, events.size());
+            assertEquals("wrong event", XranStoreEvent.Type.LINK_REMOVED, events.get(0).type());
+
+            // and a link added and removed within a batch is never seen.
+            events.clear();
+            store.storeLink(nonServingLink0);
+            store.removeLink(nonServingLink0.getLinkId());
+            batcher.flush();
+            assertEquals("wrong len", 0, events.size());
+        } finally {
+            store.unsetDelegate(batcher);
+            store.storeLink(nonServingLink0);
+        }
+    }
+
+    @Test
+    public void history() throws Exception {
+        store.modifyLinkMeasurements(primaryLink0, measurements -> measurements.setRadioReport(
+                new RnibLink.Measurements.RadioReport(
+                        new RnibLink.Measurements.RadioReport.Cqi(null, 9, 7.5), null, null, null)));
+        long between = RnibLinkHistory.now();
+        store.modifyLinkMeasurements(primaryLink0, measurements -> measurements.setRadioReport(
+                new RnibLink.Measurements.RadioReport(
+                        new RnibLink.Measurements.RadioReport.Cqi(null, 11, 10.5), null, null, null)));
+        // a modification that keeps the reports records nothing.
+        store.modifyLinkMeasurements(primaryLink0, measurements -> { });
+
+        SampleRing.Slice cqi = primaryLink0.getHistory().since(LinkMetric.CQI, 0);
+        assertEquals("wrong len", 2, cqi.size());
+        assertEquals("wrong value", 7.5, cqi.value(0), 0);
+        assertEquals("wrong value", 10.5, cqi.value(1), 0);
+        assertEquals("wrong order", true, cqi.time(0) <= cqi.time(1));
+
+        SampleRing.Slice recent = primaryLink0.getHistory().since(LinkMetric.CQI, cqi.time(1));
+        assertEquals("wrong value", 10.5, recent.value(recent.size() - 1), 0);
+        assertEquals("wrong time", true, between <= cqi.time(1));
+        assertEquals("wrong len", 0,
+                primaryLink0.getHistory().since(LinkMetric.PRB_DL, 0).size());
+
+        // PRBs are reported per QCI and add up.
+        store.modifyLinkMeasurements(primaryLink0, measurements -> measurements.setSchedMeasReport(
+                new RnibLink.Measurements.SchedMeasReport(QciValues.valueOf(new long[]{1, 9}),
+                        new RnibLink.Measurements.SchedMeasReport.ResourceUsage(
+                                QciValues.valueOf(new long[]{3, 4}), QciValues.EMPTY),
+                        null, null, null)));
+        SampleRing.Slice prb = primaryLink0.getHistory().since(LinkMetric.PRB_DL, 0);
+        assertEquals("wrong len", 1, prb.size());
+        assertEquals("wrong value", 7, prb.value(0), 0);
+    }
+
+    @Test
+    public void measurementTable() throws Exception {
+        MeasurementTable table = store.getMeasurementTable();
+        assertEquals("wrong len", 4, table.size());
+
+        setCqi(primaryLink0, 4);
+        setCqi(nonServingLink0, 8);
+        setCqi(primaryLink1, 12);
+
+        assertEquals("wrong mean", 6, table.mean(LinkMetric.CQI, CELL0.getEcgi()), 0);
+        assertEquals("wrong mean", 12, table.mean(LinkMetric.CQI, CELL1.getEcgi()), 0);
+        assertEquals("wrong mean", 8, table.mean(LinkMetric.CQI), 0);
+        assertEquals("wrong mean", true, Double.isNaN(table.mean(LinkMetric.PRB_DL, CELL0.getEcgi())));
+
+        List<RnibLink> top = table.top(LinkMetric.CQI, 2);
+        assertEquals("wrong len", 2, top.size());
+        assertEquals("wrong link", primaryLink1, top.get(0));
+        assertEquals("wrong link", nonServingLink0, top.get(1));
+
+        // the last link moves into the slot of a removed one.
+        store.removeLink(primaryLink0.getLinkId());
+        assertEquals("wrong len", 3, table.size());
+        assertEquals("wrong mean", 8, table.mean(LinkMetric.CQI, CELL0.getEcgi()), 0);
+        assertEquals("wrong value", 12, table.get(primaryLink1, LinkMetric.CQI), 0);
+        store.storeLink(primaryLink0);
+    }
+
+    @Test
+    public void kpiAggregates() throws Exception {
+        MeasurementTable table = store.getMeasurementTable();
+        setCqi(primaryLink0, 4);
+        setCqi(nonServingLink0, 8);
+        setCqi(nonServingLink0, 10);
+
+        KpiAggregate kpis = table.getAggregate(CELL0.getEcgi()).get();
+        assertEquals("wrong len", 2, kpis.getLinks());
+        assertEquals("wrong len", 1, kpis.getServedUes());
+        assertEquals("wrong len", 2, kpis.getCount(LinkMetric.CQI));
+        assertEquals("wrong mean", 7, kpis.getMean(LinkMetric.CQI), 0);
+
+        // a type change keeps the metrics of the link.
+        store.modifyLinkType(nonServingLink0, RnibLink.Type.SERVING_SECONDARY_CA);
+        kpis = table.getAggregate(CELL0.getEcgi()).get();
+        assertEquals("wrong len", 2, kpis.getServedUes());
+        assertEquals("wrong mean", 7, kpis.getMean(LinkMetric.CQI), 0);
+
+        // replacing a value much larger than the others does not leave a rounding residue in the sum.
+        setCqi(primaryLink0, 1e17);
+        setCqi(primaryLink0, 4);
+        kpis = table.getAggregate(CELL0.getEcgi()).get();
+        assertEquals("wrong mean", 7, kpis.getMean(LinkMetric.CQI), 0);
+
+        store.removeLink(primaryLink0.getLinkId());
+        kpis = table.getAggregate(CELL0.getEcgi()).get();
+        assertEquals("wrong len", 1, kpis.getLinks());
+        assertEquals("wrong mean", 10, kpis.getMean(LinkMetric.CQI), 0);
+        store.storeLink(primaryLink0);
+    }
+
+    @Test
+    public void rollups() throws Exception {
+        long from = RnibLinkHistory.now();
+        setCqi(primaryLink0, 4);
+        setCqi(primaryLink0, 8);
+        setCqi(nonServingLink0, 10);
+        long to = RnibLinkHistory.now();
+
+        Rollup.Series link = primaryLink0.getHistory().rollup(LinkMetric.CQI, from, to);
+        assertEquals("wrong width", 1000, link.getWidth());
+        assertEquals("wrong min", 4, min(link), 0);
+        assertEquals("wrong max", 8, max(link), 0);
+        assertEquals("wrong value", 8, link.last(link.size() - 1), 0);
+        assertEquals("wrong len", 0, primaryLink0.getHistory().rollup(LinkMetric.PRB_DL, from, to).size());
+
+        // the CQI of the cell is the mean over its links: 4, 8, then 9.
+        Rollup.Series cell = store.getMeasurementTable().getRollup(CELL0.getEcgi(), LinkMetric.CQI, from, to).get();
+        assertEquals("wrong min", 4, min(cell), 0);
+        assertEquals("wrong max", 9, max(cell), 0);
+        assertEquals("wrong value", 9, cell.last(cell.size() - 1), 0);
+    }
+
+    @Test
+    public void rollupTiers() throws Exception {
+        long[] widths = {1000, 10000};
+        int[] capacities = {5, 4};
+        Rollup rollup = new Rollup(1, widths, capacities);
+        for (long time = 0; time < 10000; time += 500) {
+            rollup.add(time, time / 1000.0);
+        }
+
+        // the 1 s buckets hold the last 4 s, older windows are read from the 10 s buckets.
+        Rollup.Series fine = rollup.window(6000, 9999, 0);
+        assertEquals("wrong width", 1000, fine.getWidth());
+        assertEquals("wrong len", 4, fine.size());
+        assertEquals("wrong mean", 6.25, fine.mean(0), 0);
+        Rollup.Series coarse = rollup.window(0, 9999, 0);
+        assertEquals("wrong width", 10000, coarse.getWidth());
+        assertEquals("wrong len", 1, coarse.size());
+        assertEquals("wrong min", 0, coarse.min(0), 0);
+        assertEquals("wrong max", 9.5, coarse.max(0), 0);
+        assertEquals("wrong value", 9.5, coarse.last(0), 0);
+
+        assertEquals("wrong reach", 30000, Rollup.reach(widths, capacities));
+        assertEquals("wrong reach", 15 * 60000, RnibLinkHistory.LINK_ROLLUP_REACH);
+        assertEquals("wrong reach", 60 * 60000, RnibLinkHistory.CELL_ROLLUP_REACH);
+    }
+
+    @Test
+    public void claimCell() throws Exception {
+        Map<NodeId, ControllerNode.State> states = Maps.newHashMap();
+        states.put(NODE_A, ControllerNode.State.ACTIVE);
+        states.put(NODE_B, ControllerNode.State.ACTIVE);
+        TestOwnerMap owners = new TestOwnerMap();
+        DefaultXranStore storeA = ownerStore(NODE_A, owners, states);
+        DefaultXranStore storeB = ownerStore(NODE_B, owners, states);
+        ECGI ecgi = CELL0.getEcgi();
+
+        assertEquals("wrong claim", true, storeA.claimCell(ecgi));
+        assertEquals("wrong claim", true, storeA.claimCell(ecgi));
+        assertEquals("wrong owner", NODE_A, storeB.getCellOwner(ecgi).orElse(null));
+
+        // a live owner keeps the cell.
+        assertEquals("wrong claim", false, storeB.claimCell(ecgi));
+        assertEquals("wrong owner", NODE_A, storeB.getCellOwner(ecgi).orElse(null));
+
+        // the cell of an owner that left is taken over, and its late release does not drop the new owner.
+        states.put(NODE_A, ControllerNode.State.INACTIVE);
+        assertEquals("wrong claim", true, storeB.claimCell(ecgi));
+        storeA.releaseCell(ecgi);
+        assertEquals("wrong owner", NODE_B, storeA.getCellOwner(ecgi).orElse(null));
+
+        storeB.releaseCell(ecgi);
+        assertEquals("wrong owner", false, storeA.getCellOwner(ecgi).isPresent());
+    }
+
+    private double min(Rollup.Series series) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < series.size(); i++) {
+            min = Math.min(min, series.min(i));
+        }
+        return min;
+    }
+
+    private double max(Rollup.Series series) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < series.size(); i++) {
+            max = Math.max(max, series.max(i));
+        }
+        return max;
+    }
+
+    private DefaultXranStore ownerStore(NodeId node, TestOwnerMap owners, Map<NodeId, ControllerNode.State> states) {
+        DefaultXranStore ownerStore = new DefaultXranStore();
+        ownerStore.localNodeId = node;
+        ownerStore.cellOwnerMap = owners;
+        ownerStore.clusterService = new ClusterServiceAdapter() {
+            @Override
+            public ControllerNode.State getState(NodeId nodeId) {
+                return states.getOrDefault(nodeId, ControllerNode.State.INACTIVE);
+            }
+        };
+        return ownerStore;
+    }
+
+    private void setCqi(RnibLink link, double cqi) {
+        store.modifyLinkMeasurements(link, measurements -> measurements.setRadioReport(
+                new RnibLink.Measurements.RadioReport(
+                        new RnibLink.Measurements.RadioReport.Cqi(null, cqi, cqi), null, null, null)));
+    }
+
+    /**
+     * Owner map of a single instance, versioned like a consistent map.
+     */
+    private static class TestOwnerMap extends ConsistentMapAdapter<DeviceId, NodeId> {
+        private final Map<DeviceId, Versioned<NodeId>> owners = Maps.newHashMap();
+        private long version;
+
+        @Override
+        public Versioned<NodeId> get(DeviceId key) {
+            return owners.get(key);
+        }
+
+        @Override
+        public Versioned<NodeId> putIfAbsent(DeviceId key, NodeId value) {
+            Versioned<NodeId> owner = owners.get(key);
+            if (owner == null) {
+                owners.put(key, new Versioned<>(value, ++version));
+            }
+            return owner;
+        }
+
+        @Override
+        public boolean replace(DeviceId key, long oldVersion, NodeId newValue) {
+            Versioned<NodeId> owner = owners.get(key);
+            if (owner == null || owner.version() != oldVersion) {
+                return false;
+            }
+            owners.put(key, new Versioned<>(newValue, ++version));
+            return true;
+        }
+
+        @Override
+        public boolean remove(DeviceId key, NodeId value) {
+            Versioned<NodeId> owner = owners.get(key);
+            if (owner == null || !owner.value().equals(value)) {
+                return false;
+            }
+            owners.remove(key);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import com.sun.nio.sctp.Association;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.sctp.SctpChannel;
+import io.netty.channel.sctp.SctpMessage;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class SctpStreamLimiterTest {
+
+    private final SctpStreamLimiter limiter = new SctpStreamLimiter();
+
+    @Test
+    public void narrowAssociation() throws Exception {
+        // the CELL accepted 2 outbound streams of the 4 offered.
+        Capture<Object> written = Capture.newInstance(CaptureType.ALL);
+        ChannelHandlerContext ctx = context(new Association(1, 4, 2) { }, written, 3);
+
+        SctpMessage inRange = new SctpMessage(0, 1, Unpooled.buffer(1));
+        SctpMessage outOfRange = new SctpMessage(7, 3, true, Unpooled.buffer(1));
+        limiter.write(ctx, inRange, null);
+        limiter.write(ctx, outOfRange, null);
+        limiter.write(ctx, "other", null);
+        verify(ctx);
+
+        assertEquals("wrong message", inRange, written.getValues().get(0));
+        SctpMessage moved = (SctpMessage) written.getValues().get(1);
+        assertEquals("wrong stream", 0, moved.streamIdentifier());
+        assertEquals("wrong protocol", 7, moved.protocolIdentifier());
+        assertEquals("wrong unordered", true, moved.isUnordered());
+        assertEquals("wrong content", outOfRange.content(), moved.content());
+        assertEquals("wrong message", "other", written.getValues().get(2));
+    }
+
+    @Test
+    public void noAssociation() throws Exception {
+        Capture<Object> written = Capture.newInstance(CaptureType.ALL);
+        ChannelHandlerContext ctx = context(null, written, 1);
+
+        SctpMessage message = new SctpMessage(0, 3, Unpooled.buffer(1));
+        limiter.write(ctx, message, null);
+        verify(ctx);
+        assertEquals("wrong message", message, written.getValue());
+    }
+
+    private static ChannelHandlerContext context(Association association, Capture<Object> written, int writes) {
+        SctpChannel channel = createMock(SctpChannel.class);
+        expect(channel.association()).andReturn(association).anyTimes();
+        ChannelHandlerContext ctx = createMock(ChannelHandlerContext.class);
+        expect(ctx.channel()).andReturn(channel).anyTimes();
+        expect(ctx.write(capture(written), anyObject())).andReturn(null).times(writes);
+        replay(channel, ctx);
+        return ctx;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import com.google.common.collect.Maps;
+import io.netty.channel.sctp.SctpMessage;
+import org.junit.After;
+import org.junit.Test;
+import org.onosproject.xran.XranPduType;
+import org.onosproject.xran.asn1lib.api.ECGI;
+import org.onosproject.xran.asn1lib.api.EUTRANCellIdentifier;
+import org.onosproject.xran.asn1lib.api.PLMNIdentity;
+import org.onosproject.xran.asn1lib.pdu.CellConfigRequest;
+import org.onosproject.xran.asn1lib.pdu.XrancApiID;
+import org.onosproject.xran.asn1lib.pdu.XrancPdu;
+import org.onosproject.xran.asn1lib.pdu.XrancPduHdr;
+import org.onosproject.xran.asn1lib.util.HexConverter;
+
+import javax.xml.bind.DatatypeConverter;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class XranChannelHandlerTest {
+
+    @After
+    public void tearDown() throws Exception {
+        XranChannelHandler.setStreamMap(1, Maps.newHashMap());
+    }
+
+    @Test
+    public void streamMap() throws Exception {
+        Map<String, Integer> streams = Maps.newHashMap();
+        streams.put("UEAdmissionResponse", 1);
+        streams.put("HORequest", 2);
+        streams.put("BearerAdmissionResponse", 3);
+        streams.put("CellConfigRequest", 4);
+        // unknown PDUs and streams the CELLs do not negotiate are left on stream 0.
+        streams.put("NoSuchPdu", 1);
+        streams.put("L2MeasConfig", 5);
+        XranChannelHandler.setStreamMap(5, streams);
+
+        assertEquals("wrong stream", 1, XranChannelHandler.streamOf(pdu(XranPduType.UE_ADMISSION_RESPONSE.apiId())));
+        assertEquals("wrong stream", 2, XranChannelHandler.streamOf(pdu(XranPduType.HO_REQUEST.apiId())));
+        assertEquals("wrong stream", 3,
+                XranChannelHandler.streamOf(pdu(XranPduType.BEARER_ADMISSION_RESPONSE.apiId())));
+        assertEquals("wrong stream", 0, XranChannelHandler.streamOf(pdu(XranPduType.L2_MEAS_CONFIG.apiId())));
+        assertEquals("wrong stream", 0, XranChannelHandler.streamOf(pdu(XranPduType.RRC_MEAS_CONFIG.apiId())));
+        assertEquals("wrong stream", 0, XranChannelHandler.streamOf(pdu(XranPduType.values().length)));
+        assertEquals("wrong stream", 0, XranChannelHandler.streamOf(pdu(-1)));
+
+        // encoded PDUs are sent on the stream of their type.
+        SctpMessage message = XranChannelHandler.getSctpMessage(
+                CellConfigRequest.constructPacket(hexToEcgi("000001", "00000010"))).get();
+        try {
+            assertEquals("wrong stream", 4, message.streamIdentifier());
+            assertEquals("wrong len", true, message.content().readableBytes() > 0);
+        } finally {
+            message.release();
+        }
+
+        XranChannelHandler.setStreamMap(1, Maps.newHashMap());
+        assertEquals("wrong stream", 0, XranChannelHandler.streamOf(pdu(XranPduType.HO_REQUEST.apiId())));
+    }
+
+    private static XrancPdu pdu(int apiId) {
+        XrancPduHdr hdr = new XrancPduHdr();
+        hdr.setApiId(new XrancApiID(apiId));
+        XrancPdu pdu = new XrancPdu();
+        pdu.setHdr(hdr);
+        return pdu;
+    }
+
+    private static ECGI hexToEcgi(String plmnId, String eci) {
+        byte[] bytes = HexConverter.fromShortHexString(plmnId);
+        byte[] bytearray = DatatypeConverter.parseHexBinary(eci);
+
+        ECGI ecgi = new ECGI();
+        ecgi.setEUTRANcellIdentifier(new EUTRANCellIdentifier(bytearray, 28));
+        ecgi.setPLMNIdentity(new PLMNIdentity(bytes));
+        return ecgi;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.xran.XranPacketProcessor;
+import org.onosproject.xran.XranPduType;
+import org.onosproject.xran.asn1lib.pdu.XrancApiID;
+import org.onosproject.xran.asn1lib.pdu.XrancPdu;
+import org.onosproject.xran.asn1lib.pdu.XrancPduHdr;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class XranDispatcherTest {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final List<XranPduType> handled = Collections.synchronizedList(Lists.newArrayList());
+
+    // the first PDU holds the worker until the test lets it go.
+    private final XranPacketProcessor processor = new XranPacketProcessor() {
+        @Override
+        public void handlePacket(XrancPdu pdu, ChannelHandlerContext ctx) throws InterruptedException {
+            started.countDown();
+            blocked.await();
+            handled.add(XranPduType.fromApiId(pdu.getHdr().getApiId().intValue()).get());
+        }
+
+        @Override
+        public boolean isHandled(int apiId) {
+            return true;
+        }
+    };
+
+    private XranDispatcher dispatcher;
+    private ChannelConfig config;
+    private ChannelHandlerContext ctx;
+
+    @Before
+    public void setUp() throws Exception {
+        dispatcher = new XranDispatcher(1, 1);
+        config = createMock(ChannelConfig.class);
+        Channel channel = createMock(Channel.class);
+        expect(channel.config()).andReturn(config).anyTimes();
+        expect(channel.remoteAddress()).andReturn(null).anyTimes();
+        ctx = createMock(ChannelHandlerContext.class);
+        expect(ctx.channel()).andReturn(channel).anyTimes();
+        replay(channel, ctx);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        blocked.countDown();
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void dropWhenFull() throws Exception {
+        replay(config);
+        ByteBuf body = Unpooled.buffer(1);
+
+        assertEquals("wrong dispatch", true, dispatcher.dispatch(pdu(XranPduType.RX_SIG_MEAS_REPORT), ctx, processor));
+        started.await(5, TimeUnit.SECONDS);
+        assertEquals("wrong dispatch", true, dispatcher.dispatch(pdu(XranPduType.RADIO_MEAS_REPORT_PER_UE), ctx,
+                processor));
+        assertEquals("wrong len", 1, dispatcher.getQueueDepth());
+
+        // the queue is full, so the PDU is dropped, counted and released.
+        assertEquals("wrong dispatch", false, dispatcher.dispatch(pdu(XranPduType.L2_MEAS_CONFIG, body), ctx,
+                processor));
+        assertEquals("wrong dropped", 1, dispatcher.getDropped());
+        assertEquals("wrong release", 0, body.refCnt());
+
+        blocked.countDown();
+        awaitHandled(2);
+        assertEquals("wrong handled", Lists.newArrayList(XranPduType.RX_SIG_MEAS_REPORT,
+                XranPduType.RADIO_MEAS_REPORT_PER_UE), Lists.newArrayList(handled));
+        verify(config);
+    }
+
+    @Test
+    public void holdBackHandover() throws Exception {
+        CountDownLatch resumed = new CountDownLatch(1);
+        expect(config.setAutoRead(false)).andReturn(config);
+        expect(config.setAutoRead(true)).andAnswer(() -> {
+            resumed.countDown();
+            return config;
+        });
+        replay(config);
+
+        dispatcher.dispatch(pdu(XranPduType.RX_SIG_MEAS_REPORT), ctx, processor);
+        started.await(5, TimeUnit.SECONDS);
+        dispatcher.dispatch(pdu(XranPduType.RADIO_MEAS_REPORT_PER_UE), ctx, processor);
+
+        // the PDU completing a handover waits for room on the worker instead of being dropped.
+        AtomicBoolean dispatched = new AtomicBoolean();
+        Thread reader = new Thread(() -> dispatched.set(
+                dispatcher.dispatch(pdu(XranPduType.HO_COMPLETE), ctx, processor)));
+        reader.start();
+        reader.join(200);
+        assertEquals("wrong wait", true, reader.isAlive());
+
+        blocked.countDown();
+        reader.join(5000);
+        assertEquals("wrong dispatch", true, dispatched.get());
+        assertEquals("wrong resume", true, resumed.await(5, TimeUnit.SECONDS));
+        assertEquals("wrong dropped", 0, dispatcher.getDropped());
+        assertEquals("wrong handled", Lists.newArrayList(XranPduType.RX_SIG_MEAS_REPORT,
+                XranPduType.RADIO_MEAS_REPORT_PER_UE, XranPduType.HO_COMPLETE), Lists.newArrayList(handled));
+        verify(config);
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handled.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static LazyXrancPdu pdu(XranPduType type) {
+        return pdu(type, Unpooled.buffer(1));
+    }
+
+    private static LazyXrancPdu pdu(XranPduType type, ByteBuf body) {
+        XrancPduHdr hdr = new XrancPduHdr();
+        hdr.setApiId(new XrancApiID(type.apiId()));
+        return new LazyXrancPdu(hdr, body);
+    }
+}
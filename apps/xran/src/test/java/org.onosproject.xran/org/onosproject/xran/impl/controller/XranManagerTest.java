@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.cluster.ClusterServiceAdapter;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.cluster.DefaultControllerNode;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.xran.asn1lib.api.ECGI;
+import org.onosproject.xran.asn1lib.api.EUTRANCellIdentifier;
+import org.onosproject.xran.asn1lib.api.PLMNIdentity;
+import org.onosproject.xran.asn1lib.util.HexConverter;
+import org.onosproject.xran.impl.DefaultXranStore;
+import org.onosproject.xran.impl.XranConfig;
+
+import javax.xml.bind.DatatypeConverter;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.xran.impl.entities.RnibCell.uri;
+
+public class XranManagerTest {
+    private static final String HOST = "10.0.0.1";
+    private static final ECGI ECGI0 = hexToEcgi("000001", "00000010");
+
+    private static final NodeId NODE_A = new NodeId("a");
+    private static final NodeId NODE_B = new NodeId("b");
+    private static final NodeId NODE_C = new NodeId("c");
+    private static final List<NodeId> NODES = Lists.newArrayList(NODE_A, NODE_B, NODE_C);
+
+    @Test
+    public void hashPlacement() throws Exception {
+        XranConfig.CellBalancePolicy hash = XranConfig.CellBalancePolicy.HASH;
+        for (int eci = 1; eci <= 64; eci++) {
+            String cell = uri(hexToEcgi("000001", String.format("%08X", eci << 4))).toString();
+            NodeId preferred = hash.preferredNode(cell, NODES).orElse(null);
+            assertEquals("wrong placement", true, NODES.contains(preferred));
+
+            // the same cell lands on the same instance whatever the order of the nodes.
+            assertEquals("wrong placement", preferred, hash.preferredNode(cell, NODES).orElse(null));
+            assertEquals("wrong placement", preferred, hash.preferredNode(cell, Lists.reverse(NODES)).orElse(null));
+
+            // removing another instance does not move the cell, removing its own moves it to one that is left.
+            List<NodeId> others = Lists.newArrayList(NODES);
+            others.remove(preferred);
+            for (NodeId other : others) {
+                List<NodeId> left = Lists.newArrayList(NODES);
+                left.remove(other);
+                assertEquals("wrong placement", preferred, hash.preferredNode(cell, left).orElse(null));
+            }
+            assertEquals("wrong placement", true, others.contains(hash.preferredNode(cell, others).orElse(null)));
+        }
+        assertEquals("wrong placement", Optional.empty(), hash.preferredNode("cell", Lists.newArrayList()));
+        assertEquals("wrong placement", Optional.empty(),
+                XranConfig.CellBalancePolicy.FIRST.preferredNode("cell", NODES));
+    }
+
+    @Test
+    public void refuseCell() throws Exception {
+        XranManager manager = manager(otherThan(preferred(ECGI0)));
+        ChannelHandlerContext ctx = createMock(ChannelHandlerContext.class);
+        expect(ctx.close()).andReturn(null);
+        replay(ctx);
+
+        assertEquals("wrong accept", false, manager.deviceAgent.addConnectedCell(HOST, ctx));
+        verify(ctx);
+        assertEquals("wrong ctx", false, manager.xranStore.getCtx(ECGI0).isPresent());
+    }
+
+    @Test
+    public void acceptCell() throws Exception {
+        XranManager manager = manager(preferred(ECGI0));
+        ChannelHandlerContext ctx = createMock(ChannelHandlerContext.class);
+        replay(ctx);
+
+        assertEquals("wrong accept", true, manager.deviceAgent.addConnectedCell(HOST, ctx));
+        verify(ctx);
+        assertEquals("wrong ctx", ctx, manager.xranStore.getCtx(ECGI0).orElse(null));
+
+        // any instance accepts the cell when cells are not balanced.
+        manager = manager(otherThan(preferred(ECGI0)));
+        manager.cellBalancePolicy = XranConfig.CellBalancePolicy.FIRST;
+        assertEquals("wrong accept", true, manager.deviceAgent.addConnectedCell(HOST, ctx));
+    }
+
+    @Test
+    public void relinquishCell() throws Exception {
+        NodeId preferred = preferred(ECGI0);
+        NodeId local = otherThan(preferred);
+        NodeId other = NODES.stream().filter(id -> !id.equals(preferred) && !id.equals(local)).findFirst().get();
+
+        // the cell connected here before the cluster changed.
+        XranManager manager = manager(local);
+        manager.cellBalancePolicy = XranConfig.CellBalancePolicy.FIRST;
+        ChannelHandlerContext ctx = createMock(ChannelHandlerContext.class);
+        expect(ctx.close()).andReturn(null);
+        replay(ctx);
+        assertEquals("wrong accept", true, manager.deviceAgent.addConnectedCell(HOST, ctx));
+        manager.cellBalancePolicy = XranConfig.CellBalancePolicy.HASH;
+
+        // the cell is kept unless the new master is the one it would reconnect to.
+        assertEquals("wrong relinquish", false, manager.relinquishCell(ECGI0, null));
+        assertEquals("wrong relinquish", false, manager.relinquishCell(ECGI0, local));
+        assertEquals("wrong relinquish", false, manager.relinquishCell(ECGI0, other));
+        assertEquals("wrong relinquish", true, manager.relinquishCell(ECGI0, preferred));
+        verify(ctx);
+    }
+
+    private static NodeId preferred(ECGI ecgi) {
+        return XranConfig.CellBalancePolicy.HASH.preferredNode(uri(ecgi).toString(), NODES).get();
+    }
+
+    private static NodeId otherThan(NodeId node) {
+        return NODES.stream().filter(id -> !id.equals(node)).findFirst().get();
+    }
+
+    private static XranManager manager(NodeId local) {
+        XranManager manager = new XranManager();
+        manager.clusterService = new TestClusterService(local);
+        manager.xranStore = new DefaultXranStore();
+        manager.cellBalancePolicy = XranConfig.CellBalancePolicy.HASH;
+        manager.legitCells.put(IpAddress.valueOf(HOST), ECGI0);
+        return manager;
+    }
+
+    private static ECGI hexToEcgi(String plmnId, String eci) {
+        byte[] bytes = HexConverter.fromShortHexString(plmnId);
+        byte[] bytearray = DatatypeConverter.parseHexBinary(eci);
+
+        ECGI ecgi = new ECGI();
+        ecgi.setEUTRANcellIdentifier(new EUTRANCellIdentifier(bytearray, 28));
+        ecgi.setPLMNIdentity(new PLMNIdentity(bytes));
+        return ecgi;
+    }
+
+    /**
+     * Cluster of three active instances.
+     */
+    private static class TestClusterService extends ClusterServiceAdapter {
+        private final NodeId local;
+
+        TestClusterService(NodeId local) {
+            this.local = local;
+        }
+
+        @Override
+        public ControllerNode getLocalNode() {
+            return node(local);
+        }
+
+        @Override
+        public Set<ControllerNode> getNodes() {
+            return ImmutableSet.copyOf(NODES.stream().map(this::node).collect(Collectors.toList()));
+        }
+
+        @Override
+        public ControllerNode getNode(NodeId nodeId) {
+            return node(nodeId);
+        }
+
+        @Override
+        public ControllerNode.State getState(NodeId nodeId) {
+            return ControllerNode.State.ACTIVE;
+        }
+
+        private ControllerNode node(NodeId nodeId) {
+            return new DefaultControllerNode(nodeId, IpAddress.valueOf("127.0.0.1"));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import org.junit.Test;
+import org.onosproject.xran.XranPduHandler;
+import org.onosproject.xran.XranPduType;
+import org.onosproject.xran.asn1lib.pdu.XrancApiID;
+import org.onosproject.xran.asn1lib.pdu.XrancPdu;
+import org.onosproject.xran.asn1lib.pdu.XrancPduHdr;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class XranPduHandlerRegistryTest {
+
+    @Test
+    public void handle() throws Exception {
+        XranPduHandlerRegistry registry = new XranPduHandlerRegistry();
+        AtomicInteger handled = new AtomicInteger();
+        registry.addHandler(XranPduType.HO_COMPLETE, (pdu, ctx) -> {
+            throw new IOException("broken PDU");
+        });
+        registry.addHandler(XranPduType.HO_COMPLETE, (pdu, ctx) -> {
+            handled.incrementAndGet();
+            Thread.sleep(1);
+        });
+
+        // a throwing handler does not keep the others from running.
+        assertEquals("wrong accept", true, registry.accept(XranPduType.HO_COMPLETE.apiId()));
+        assertEquals("wrong handle", true, registry.handle(pdu(XranPduType.HO_COMPLETE.apiId()), null));
+        assertEquals("wrong handle", true, registry.handle(pdu(XranPduType.HO_COMPLETE.apiId()), null));
+        assertEquals("wrong invocations", 2, handled.get());
+        assertEquals("wrong invocations", 4, registry.getInvocations(XranPduType.HO_COMPLETE));
+        assertEquals("wrong failures", 2, registry.getFailures(XranPduType.HO_COMPLETE));
+        assertEquals("wrong nanos", true, registry.getNanos(XranPduType.HO_COMPLETE) >= 2000000);
+
+        assertEquals("wrong invocations", 0, registry.getInvocations(XranPduType.HO_FAILURE));
+        assertEquals("wrong failures", 0, registry.getFailures(XranPduType.HO_FAILURE));
+        assertEquals("wrong nanos", 0, registry.getNanos(XranPduType.HO_FAILURE));
+        assertEquals("wrong unhandled", 0, registry.getUnhandled());
+    }
+
+    @Test
+    public void unhandled() throws Exception {
+        XranPduHandlerRegistry registry = new XranPduHandlerRegistry();
+        registry.addHandler(XranPduType.HO_COMPLETE, (pdu, ctx) -> { });
+
+        // known API ID without a handler, and API IDs out of range.
+        assertEquals("wrong accept", false, registry.accept(XranPduType.HO_FAILURE.apiId()));
+        assertEquals("wrong accept", false, registry.accept(XranPduType.values().length));
+        assertEquals("wrong accept", false, registry.accept(-1));
+        assertEquals("wrong unhandled", 3, registry.getUnhandled());
+
+        assertEquals("wrong handle", false, registry.handle(pdu(XranPduType.HO_FAILURE.apiId()), null));
+        assertEquals("wrong handle", false, registry.handle(pdu(XranPduType.values().length), null));
+        assertEquals("wrong handle", false, registry.handle(pdu(-1), null));
+        assertEquals("wrong unhandled", 6, registry.getUnhandled());
+        assertEquals("wrong invocations", 0, registry.getInvocations(XranPduType.HO_COMPLETE));
+    }
+
+    @Test
+    public void removeHandler() throws Exception {
+        XranPduHandlerRegistry registry = new XranPduHandlerRegistry();
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        XranPduHandler firstHandler = (pdu, ctx) -> first.incrementAndGet();
+        XranPduHandler secondHandler = (pdu, ctx) -> second.incrementAndGet();
+        registry.addHandler(XranPduType.UE_CONTEXT_UPDATE, firstHandler);
+        registry.addHandler(XranPduType.UE_CONTEXT_UPDATE, secondHandler);
+
+        registry.removeHandler(XranPduType.UE_CONTEXT_UPDATE, firstHandler);
+        assertEquals("wrong handle", true, registry.handle(pdu(XranPduType.UE_CONTEXT_UPDATE.apiId()), null));
+        assertEquals("wrong invocations", 0, first.get());
+        assertEquals("wrong invocations", 1, second.get());
+
+        // counters outlive the handlers.
+        registry.removeHandler(XranPduType.UE_CONTEXT_UPDATE, secondHandler);
+        assertEquals("wrong accept", false, registry.accept(XranPduType.UE_CONTEXT_UPDATE.apiId()));
+        assertEquals("wrong handle", false, registry.handle(pdu(XranPduType.UE_CONTEXT_UPDATE.apiId()), null));
+        assertEquals("wrong invocations", 1, registry.getInvocations(XranPduType.UE_CONTEXT_UPDATE));
+        assertEquals("wrong unhandled", 2, registry.getUnhandled());
+
+        registry.addHandler(XranPduType.UE_CONTEXT_UPDATE, firstHandler);
+        registry.clear();
+        assertEquals("wrong accept", false, registry.accept(XranPduType.UE_CONTEXT_UPDATE.apiId()));
+    }
+
+    private static XrancPdu pdu(int apiId) {
+        XrancPduHdr hdr = new XrancPduHdr();
+        hdr.setApiId(new XrancApiID(apiId));
+        XrancPdu pdu = new XrancPdu();
+        pdu.setHdr(hdr);
+        return pdu;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.controller;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.xran.XranStore;
+import org.onosproject.xran.asn1lib.api.ECGI;
+import org.onosproject.xran.asn1lib.api.EUTRANCellIdentifier;
+import org.onosproject.xran.asn1lib.api.PLMNIdentity;
+import org.onosproject.xran.asn1lib.pdu.CellConfigRequest;
+import org.onosproject.xran.asn1lib.util.HexConverter;
+
+import javax.xml.bind.DatatypeConverter;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createStrictMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class XranReconcilerTest {
+    private static final ECGI ECGI0 = hexToEcgi("000001", "00000010");
+    private static final ECGI ECGI1 = hexToEcgi("000002", "00000020");
+    private static final long BASE_DELAY_MS = 100;
+
+    private XranStore store;
+    private XranReconciler reconciler;
+
+    @Before
+    public void setUp() throws Exception {
+        store = createMock(XranStore.class);
+        reconciler = new XranReconciler(store, false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reconciler.stop();
+        assertEquals("wrong len", 0, reconciler.getQueueDepth());
+    }
+
+    @Test
+    public void retry() throws Exception {
+        replay(store);
+        AtomicInteger attempts = new AtomicInteger();
+        reconciler.submit("ue", outbox -> attempts.incrementAndGet() == 3, BASE_DELAY_MS);
+        reconciler.submit("failing", outbox -> {
+            throw new IllegalStateException("no reply");
+        }, BASE_DELAY_MS);
+
+        reconciler.tick(0);
+        assertEquals("wrong attempts", 1, attempts.get());
+        assertEquals("wrong len", 2, reconciler.getQueueDepth());
+
+        // nothing is attempted again before it is due.
+        long due = reconciler.getDue("ue").get();
+        reconciler.tick(due - 1);
+        assertEquals("wrong attempts", 1, attempts.get());
+
+        reconciler.tick(due);
+        assertEquals("wrong attempts", 2, attempts.get());
+        reconciler.tick(reconciler.getDue("ue").get());
+        assertEquals("wrong attempts", 3, attempts.get());
+
+        // a complete task is dropped, a task that throws is kept and retried.
+        assertEquals("wrong due", false, reconciler.getDue("ue").isPresent());
+        assertEquals("wrong due", true, reconciler.getDue("failing").get() > 0);
+        assertEquals("wrong len", 1, reconciler.getQueueDepth());
+        verify(store);
+    }
+
+    @Test
+    public void backoff() throws Exception {
+        replay(store);
+        reconciler.submit("ue", outbox -> false, BASE_DELAY_MS);
+        assertEquals("wrong due", Long.valueOf(0), reconciler.getDue("ue").get());
+
+        long now = 0;
+        for (int attempt = 0; attempt < 8; attempt++) {
+            reconciler.tick(now);
+            long due = reconciler.getDue("ue").get();
+
+            // the delay doubles with each attempt up to 16 times the base delay, give or take the jitter.
+            long delay = BASE_DELAY_MS << Math.min(attempt, 4);
+            assertEquals("wrong delay " + (due - now), true,
+                    due - now >= delay * 0.8 - 1 && due - now <= delay * 1.2);
+            now = due;
+        }
+        verify(store);
+    }
+
+    @Test
+    public void flushPerCell() throws Exception {
+        ChannelHandlerContext ctx0 = createStrictMock(ChannelHandlerContext.class);
+        expect(ctx0.write(anyObject())).andReturn(null).times(3);
+        expect(ctx0.flush()).andReturn(ctx0);
+        ChannelHandlerContext ctx1 = createStrictMock(ChannelHandlerContext.class);
+        expect(ctx1.write(anyObject())).andReturn(null);
+        expect(ctx1.flush()).andReturn(ctx1);
+        expect(store.getCtx(ECGI0)).andReturn(Optional.of(ctx0));
+        expect(store.getCtx(ECGI1)).andReturn(Optional.of(ctx1));
+        replay(store, ctx0, ctx1);
+
+        // the PDUs of all tasks are written first, then each CELL is flushed once.
+        reconciler.submit(ECGI0, outbox -> {
+            outbox.put(ECGI0, CellConfigRequest.constructPacket(ECGI0));
+            outbox.put(ECGI0, CellConfigRequest.constructPacket(ECGI0));
+            return true;
+        }, BASE_DELAY_MS);
+        reconciler.submit(ECGI1, outbox -> {
+            outbox.put(ECGI1, CellConfigRequest.constructPacket(ECGI1));
+            return false;
+        }, BASE_DELAY_MS);
+        reconciler.submit("ue", outbox -> outbox.put(ECGI0, CellConfigRequest.constructPacket(ECGI0)),
+                BASE_DELAY_MS);
+
+        reconciler.tick(0);
+        verify(store, ctx0, ctx1);
+        assertEquals("wrong len", 1, reconciler.getQueueDepth());
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        replay(store);
+        AtomicInteger attempts = new AtomicInteger();
+        reconciler.submit(ECGI0, outbox -> attempts.incrementAndGet() < 0, BASE_DELAY_MS);
+        reconciler.submit(ECGI1, outbox -> attempts.incrementAndGet() < 0, BASE_DELAY_MS);
+        assertEquals("wrong len", 2, reconciler.getQueueDepth());
+
+        // a task submitted again under the same key replaces the pending one.
+        reconciler.submit(ECGI1, outbox -> attempts.incrementAndGet() < 0, BASE_DELAY_MS);
+        assertEquals("wrong len", 2, reconciler.getQueueDepth());
+
+        reconciler.cancel(ECGI0);
+        reconciler.cancel("unknown");
+        assertEquals("wrong len", 1, reconciler.getQueueDepth());
+        assertEquals("wrong due", false, reconciler.getDue(ECGI0).isPresent());
+
+        reconciler.tick(0);
+        assertEquals("wrong attempts", 1, attempts.get());
+        assertEquals("wrong len", 1, reconciler.getQueueDepth());
+        verify(store);
+    }
+
+    private static ECGI hexToEcgi(String plmnId, String eci) {
+        byte[] bytes = HexConverter.fromShortHexString(plmnId);
+        byte[] bytearray = DatatypeConverter.parseHexBinary(eci);
+
+        ECGI ecgi = new ECGI();
+        ecgi.setEUTRANcellIdentifier(new EUTRANCellIdentifier(bytearray, 28));
+        ecgi.setPLMNIdentity(new PLMNIdentity(bytes));
+        return ecgi;
+    }
+}
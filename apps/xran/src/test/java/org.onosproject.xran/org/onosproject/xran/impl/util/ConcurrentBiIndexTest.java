@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConcurrentBiIndexTest {
+
+    @Test
+    public void putAndRemove() throws Exception {
+        ConcurrentBiIndex<String, Long> index = new ConcurrentBiIndex<>();
+        index.put("a", 1L);
+        assertEquals("wrong value", Long.valueOf(1), index.get("a"));
+        assertEquals("wrong key", "a", index.getKey(1L));
+
+        // a new value of a key unbinds its old value.
+        index.put("a", 2L);
+        assertNull("wrong key", index.getKey(1L));
+        assertEquals("wrong key", "a", index.getKey(2L));
+
+        // a new key of a value unbinds its old key.
+        index.put("b", 2L);
+        assertNull("wrong value", index.get("a"));
+        assertEquals("wrong key", "b", index.getKey(2L));
+        assertEquals("wrong len", 1, index.size());
+
+        index.put("c", 3L);
+        assertEquals("wrong value", Long.valueOf(3), index.removeKey("c"));
+        assertNull("wrong key", index.getKey(3L));
+        assertNull("wrong value", index.removeKey("c"));
+
+        assertEquals("wrong key", "b", index.removeValue(2L));
+        assertNull("wrong value", index.get("b"));
+        assertNull("wrong key", index.removeValue(2L));
+        assertEquals("wrong len", 0, index.size());
+    }
+
+    @Test
+    public void rebind() throws Exception {
+        ConcurrentBiIndex<String, Long> index = new ConcurrentBiIndex<>();
+        index.put("a", 1L);
+        index.put("b", 2L);
+
+        assertEquals("wrong rebind", true, index.rebind(1L, "a", "c"));
+        assertNull("wrong value", index.get("a"));
+        assertEquals("wrong value", Long.valueOf(1), index.get("c"));
+        assertEquals("wrong key", "c", index.getKey(1L));
+
+        // the value is no longer bound to the old key.
+        assertEquals("wrong rebind", false, index.rebind(1L, "a", "d"));
+        assertNull("wrong value", index.get("d"));
+
+        // the value bound to the new key is unbound.
+        assertEquals("wrong rebind", true, index.rebind(1L, "c", "b"));
+        assertNull("wrong key", index.getKey(2L));
+        assertEquals("wrong key", "b", index.getKey(1L));
+        assertEquals("wrong len", 1, index.size());
+    }
+
+    @Test
+    public void listener() throws Exception {
+        List<String> changes = Lists.newArrayList();
+        ConcurrentBiIndex<String, Long> index = new ConcurrentBiIndex<>((key, value) -> changes.add(key + "=" + value));
+
+        index.put("a", 1L);
+        index.put("b", 1L);
+        index.rebind(1L, "b", "c");
+        index.rebind(1L, "b", "d");
+        index.put("e", 2L);
+        index.removeKey("c");
+        index.removeValue(2L);
+        index.removeValue(3L);
+        index.put("f", 4L);
+        index.clear();
+
+        assertEquals("wrong changes", Lists.newArrayList(
+                "a=1", "a=null", "b=1",
+                "b=null", "c=1",
+                "e=2",
+                "c=null",
+                "e=null",
+                "f=4"), changes);
+        assertEquals("wrong len", 0, index.size());
+    }
+
+    @Test
+    public void concurrentRebinds() throws Exception {
+        ConcurrentMap<String, Long> secondary = Maps.newConcurrentMap();
+        ConcurrentBiIndex<String, Long> index = new ConcurrentBiIndex<>((key, value) -> {
+            if (value == null) {
+                secondary.remove(key);
+            } else {
+                secondary.put(key, value);
+            }
+        });
+        index.put("start", 1L);
+
+        int threads = 8;
+        int rebinds = 1000;
+        AtomicInteger moved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = Lists.newArrayList();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "t" + t + "-";
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // every thread keeps moving the same value to keys of its own.
+                for (int i = 0; i < rebinds; i++) {
+                    String current = index.getKey(1L);
+                    if (current != null && index.rebind(1L, current, prefix + i)) {
+                        moved.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // the value ends up bound to exactly one key, and the listener saw the same.
+        String key = index.getKey(1L);
+        assertEquals("wrong len", 1, index.size());
+        assertEquals("wrong value", Long.valueOf(1), index.get(key));
+        Map<String, Long> expected = Maps.newHashMap();
+        expected.put(key, 1L);
+        assertEquals("wrong secondary index", expected, Maps.newHashMap(secondary));
+        assertEquals("wrong rebinds", true, moved.get() > 0);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017-present Open Networking Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.xran.impl.util;
+
+import org.junit.Test;
+import org.onosproject.xran.impl.identifiers.PackedKeys;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConcurrentLongMapTest {
+
+    @Test
+    public void putGetRemove() throws Exception {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        assertNull("wrong value", map.put(1, "a"));
+        assertEquals("wrong value", "a", map.put(1, "b"));
+        assertEquals("wrong value", "b", map.get(1));
+        assertNull("wrong value", map.get(2));
+        assertEquals("wrong len", 1, map.size());
+
+        assertEquals("wrong remove", false, map.remove(1, "a"));
+        assertEquals("wrong remove", true, map.remove(1, "b"));
+        assertNull("wrong value", map.get(1));
+        assertNull("wrong value", map.remove(1));
+        assertEquals("wrong len", 0, map.size());
+
+        assertNull("wrong value", map.compute(3, old -> old == null ? "c" : old + "c"));
+        assertEquals("wrong value", "c", map.compute(3, old -> old + "d"));
+        assertEquals("wrong value", "cd", map.get(3));
+        map.compute(3, old -> null);
+        assertEquals("wrong len", 0, map.size());
+    }
+
+    @Test
+    public void reuseTombstone() throws Exception {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        int capacity = map.capacityOf(7);
+        // the same key keeps taking its own slot back, so the table never fills up with tombstones.
+        for (int i = 0; i < 1000; i++) {
+            map.put(7, "a");
+            assertEquals("wrong remove", "a", map.remove(7));
+        }
+        assertEquals("wrong capacity", capacity, map.capacityOf(7));
+        map.put(7, "b");
+        assertEquals("wrong value", "b", map.get(7));
+        assertEquals("wrong len", 1, map.size());
+    }
+
+    @Test
+    public void rebuild() throws Exception {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        long[] keys = sameSegment(3, false);
+        map.put(keys[0], keys[0]);
+        map.put(keys[1], keys[1]);
+        int capacity = map.capacityOf(keys[0]);
+        assertEquals("wrong capacity", 4, capacity);
+
+        // a third key would leave the table over half used.
+        map.put(keys[2], keys[2]);
+        assertEquals("wrong capacity", true, map.capacityOf(keys[0]) > capacity);
+        for (long key : keys) {
+            assertEquals("wrong value", Long.valueOf(key), map.get(key));
+        }
+
+        // many keys keep every value reachable through the rebuilds.
+        for (long key = 0; key < 10000; key++) {
+            map.put(key * 31, key);
+        }
+        for (long key = 0; key < 10000; key++) {
+            assertEquals("wrong value", Long.valueOf(key), map.get(key * 31));
+        }
+    }
+
+    @Test
+    public void collidingKeys() throws Exception {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        long[] keys = sameSegment(2, true);
+        map.put(keys[0], "a");
+        map.put(keys[1], "b");
+        assertEquals("wrong value", "a", map.get(keys[0]));
+        assertEquals("wrong value", "b", map.get(keys[1]));
+
+        // the probe for the second key runs past the tombstone of the first.
+        map.remove(keys[0]);
+        assertNull("wrong value", map.get(keys[0]));
+        assertEquals("wrong value", "b", map.get(keys[1]));
+
+        map.put(keys[0], "c");
+        assertEquals("wrong value", "c", map.get(keys[0]));
+        assertEquals("wrong value", "b", map.get(keys[1]));
+        assertEquals("wrong len", 2, map.size());
+    }
+
+    @Test
+    public void negativeKeys() throws Exception {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        // NONE is not reserved by the map; callers keep it out.
+        map.put(PackedKeys.NONE, "none");
+        map.put(Long.MIN_VALUE, "min");
+        map.put(0, "zero");
+        assertEquals("wrong value", "none", map.get(PackedKeys.NONE));
+        assertEquals("wrong value", "min", map.get(Long.MIN_VALUE));
+        assertEquals("wrong value", "zero", map.get(0));
+        assertNull("wrong value", map.get(-2));
+        assertEquals("wrong remove", "none", map.remove(PackedKeys.NONE));
+        assertEquals("wrong len", 2, map.size());
+    }
+
+    @Test
+    public void concurrentReader() throws Exception {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        map.put(-1, -1L);
+        AtomicLong written = new AtomicLong(-1);
+        AtomicInteger wrong = new AtomicInteger();
+
+        Thread reader = new Thread(() -> {
+            long last;
+            do {
+                last = written.get();
+                Long stable = map.get(-1);
+                Long latest = map.get(last);
+                if (stable == null || stable != -1L || latest == null || latest != last) {
+                    wrong.incrementAndGet();
+                }
+            } while (last < 100000);
+        });
+        reader.start();
+
+        // the writer grows the tables, and leaves tombstones of short lived keys, which forces rebuilds while the
+        // reader looks up.
+        for (long key = 0; key <= 100000; key++) {
+            map.put(key, key);
+            written.set(key);
+            map.put(-key - 2, key);
+            map.remove(-key - 2);
+        }
+        reader.join();
+
+        assertEquals("wrong reads", 0, wrong.get());
+        assertEquals("wrong len", 100002, map.size());
+    }
+
+    // keys that fall in the same segment, and in the same slot of its smallest table if colliding.
+    private static long[] sameSegment(int count, boolean colliding) {
+        long[] keys = new long[count];
+        long first = ConcurrentLongMap.mix(0);
+        keys[0] = 0;
+        int found = 1;
+        for (long key = 1; found < count; key++) {
+            long hash = ConcurrentLongMap.mix(key);
+            if (hash >>> 58 == first >>> 58 && (!colliding || (hash & 3) == (first & 3))) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+}